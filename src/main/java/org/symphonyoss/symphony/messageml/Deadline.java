@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import org.symphonyoss.symphony.messageml.exceptions.DeadlineExceededException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time by which a message must be parsed, checked between the phases of the parse.
+ *
+ * An exceeded deadline is signalled with an unchecked exception, so that it is not handled as invalid input by the
+ * elements of the message, and converted to a {@link DeadlineExceededException} by {@link MessageMLEngine}.
+ */
+final class Deadline {
+  private static final long MAXIMUM_TIMEOUT = Long.MAX_VALUE >> 1;
+
+  private final long deadline;
+
+  private Deadline(long deadline) {
+    this.deadline = deadline;
+  }
+
+  /**
+   * Create a deadline the given time from now.
+   */
+  static Deadline after(long timeout, TimeUnit unit) {
+    return new Deadline(System.nanoTime() + Math.min(unit.toNanos(Math.max(timeout, 0)), MAXIMUM_TIMEOUT));
+  }
+
+  /**
+   * Retrieve the time left before the deadline, in nanoseconds, or 0 if it has passed.
+   */
+  long remainingNanos() {
+    return Math.max(deadline - System.nanoTime(), 0);
+  }
+
+  /**
+   * Check that the deadline has not passed.
+   * @param phase the phase of the parse being run, e.g. "parsing XML"
+   * @throws Exceeded thrown if the deadline has passed
+   */
+  void check(String phase) {
+    if (deadline - System.nanoTime() <= 0) {
+      throw new Exceeded(getMessage(phase));
+    }
+  }
+
+  static String getMessage(String phase) {
+    return "Deadline exceeded while " + phase;
+  }
+
+  /**
+   * Unchecked signal of an exceeded deadline.
+   */
+  static final class Exceeded extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    Exceeded(String message) {
+      super(message, null, false, false);
+    }
+
+    DeadlineExceededException toCheckedException() {
+      return new DeadlineExceededException(getMessage());
+    }
+  }
+}
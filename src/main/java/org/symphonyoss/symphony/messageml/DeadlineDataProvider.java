@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.IDeadlineAwareDataProvider;
+import org.symphonyoss.symphony.messageml.util.IUserPresentation;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A data provider checking the deadline of a parse before and after each lookup of another one. The time left is
+ * passed to the lookups of an {@link IDeadlineAwareDataProvider}.
+ */
+class DeadlineDataProvider implements IDataProvider {
+  private static final String USER_LOOKUP = "looking up users";
+  private static final String URI_CHECK = "checking URIs";
+
+  private final IDataProvider dataProvider;
+  private final IDeadlineAwareDataProvider deadlineAwareDataProvider;
+  private final Deadline deadline;
+
+  DeadlineDataProvider(IDataProvider dataProvider, Deadline deadline) {
+    this.dataProvider = dataProvider;
+    this.deadlineAwareDataProvider = (dataProvider instanceof IDeadlineAwareDataProvider)
+        ? (IDeadlineAwareDataProvider) dataProvider : null;
+    this.deadline = deadline;
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(String emailAddress) throws InvalidInputException {
+    deadline.check(USER_LOOKUP);
+
+    try {
+      if (deadlineAwareDataProvider != null) {
+        return deadlineAwareDataProvider.getUserPresentation(emailAddress, deadline.remainingNanos(),
+            TimeUnit.NANOSECONDS);
+      }
+      return dataProvider.getUserPresentation(emailAddress);
+    } finally {
+      deadline.check(USER_LOOKUP);
+    }
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+    deadline.check(USER_LOOKUP);
+
+    try {
+      if (deadlineAwareDataProvider != null) {
+        return deadlineAwareDataProvider.getUserPresentation(uid, deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+      }
+      return dataProvider.getUserPresentation(uid);
+    } finally {
+      deadline.check(USER_LOOKUP);
+    }
+  }
+
+  @Override
+  public Collection<IUserPresentation> getUserPresentations(Collection<Long> uids,
+      Collection<String> emailAddresses) throws ProcessingException {
+    deadline.check(USER_LOOKUP);
+
+    try {
+      if (deadlineAwareDataProvider != null) {
+        return deadlineAwareDataProvider.getUserPresentations(uids, emailAddresses, deadline.remainingNanos(),
+            TimeUnit.NANOSECONDS);
+      }
+      return dataProvider.getUserPresentations(uids, emailAddresses);
+    } finally {
+      deadline.check(USER_LOOKUP);
+    }
+  }
+
+  @Override
+  public void validateURI(URI uri) throws InvalidInputException, ProcessingException {
+    deadline.check(URI_CHECK);
+
+    try {
+      if (deadlineAwareDataProvider != null) {
+        deadlineAwareDataProvider.validateURI(uri, deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+      } else {
+        dataProvider.validateURI(uri);
+      }
+    } finally {
+      deadline.check(URI_CHECK);
+    }
+  }
+}
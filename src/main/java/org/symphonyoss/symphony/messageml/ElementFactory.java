@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import org.symphonyoss.symphony.messageml.elements.Element;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+
+import java.util.Map;
+
+/**
+ * Creates the MessageML element for a tag of the input message. Factories are registered by tag, or by a shorthand
+ * class or input type, with an {@link ElementFactoryRegistry}.
+ */
+@FunctionalInterface
+public interface ElementFactory {
+
+  /**
+   * Create the element.
+   * @param parser parser of the message, holding its format and EntityJSON
+   * @param parent parent of the created element
+   * @param attributes attributes of the input tag; shorthand values registered to be consumed are already removed
+   * @throws InvalidInputException thrown when the element is not allowed in the message
+   */
+  Element create(MessageMLParser parser, Element parent, Map<String, String> attributes) throws InvalidInputException;
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import org.symphonyoss.symphony.messageml.elements.Bold;
+import org.symphonyoss.symphony.messageml.elements.BulletList;
+import org.symphonyoss.symphony.messageml.elements.Button;
+import org.symphonyoss.symphony.messageml.elements.Card;
+import org.symphonyoss.symphony.messageml.elements.CardBody;
+import org.symphonyoss.symphony.messageml.elements.CardHeader;
+import org.symphonyoss.symphony.messageml.elements.CashTag;
+import org.symphonyoss.symphony.messageml.elements.Checkbox;
+import org.symphonyoss.symphony.messageml.elements.Chime;
+import org.symphonyoss.symphony.messageml.elements.Code;
+import org.symphonyoss.symphony.messageml.elements.DateSelector;
+import org.symphonyoss.symphony.messageml.elements.Div;
+import org.symphonyoss.symphony.messageml.elements.Element;
+import org.symphonyoss.symphony.messageml.elements.Emoji;
+import org.symphonyoss.symphony.messageml.elements.Entity;
+import org.symphonyoss.symphony.messageml.elements.Form;
+import org.symphonyoss.symphony.messageml.elements.FormElement;
+import org.symphonyoss.symphony.messageml.elements.FormatEnum;
+import org.symphonyoss.symphony.messageml.elements.HashTag;
+import org.symphonyoss.symphony.messageml.elements.Header;
+import org.symphonyoss.symphony.messageml.elements.HorizontalRule;
+import org.symphonyoss.symphony.messageml.elements.Image;
+import org.symphonyoss.symphony.messageml.elements.Italic;
+import org.symphonyoss.symphony.messageml.elements.LineBreak;
+import org.symphonyoss.symphony.messageml.elements.Link;
+import org.symphonyoss.symphony.messageml.elements.ListItem;
+import org.symphonyoss.symphony.messageml.elements.Mention;
+import org.symphonyoss.symphony.messageml.elements.Option;
+import org.symphonyoss.symphony.messageml.elements.OrderedList;
+import org.symphonyoss.symphony.messageml.elements.Paragraph;
+import org.symphonyoss.symphony.messageml.elements.Password;
+import org.symphonyoss.symphony.messageml.elements.PersonSelector;
+import org.symphonyoss.symphony.messageml.elements.Preformatted;
+import org.symphonyoss.symphony.messageml.elements.Radio;
+import org.symphonyoss.symphony.messageml.elements.Select;
+import org.symphonyoss.symphony.messageml.elements.Span;
+import org.symphonyoss.symphony.messageml.elements.Table;
+import org.symphonyoss.symphony.messageml.elements.TableBody;
+import org.symphonyoss.symphony.messageml.elements.TableCell;
+import org.symphonyoss.symphony.messageml.elements.TableFooter;
+import org.symphonyoss.symphony.messageml.elements.TableHeader;
+import org.symphonyoss.symphony.messageml.elements.TableHeaderCell;
+import org.symphonyoss.symphony.messageml.elements.TableRow;
+import org.symphonyoss.symphony.messageml.elements.TextArea;
+import org.symphonyoss.symphony.messageml.elements.TextField;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.symphonyoss.symphony.messageml.elements.Element.CLASS_ATTR;
+
+/**
+ * Maps the tags of an input message to the {@link ElementFactory} creating their MessageML elements.
+ *
+ * Besides its tag, an element can be identified by a shorthand value of one of its attributes, such as the
+ * <i>card</i> class of a PresentationML <i>div</i> or the <i>text</i> type of an <i>input</i>. The attribute is
+ * split into whitespace separated values once per element and each value is looked up in a table of the tag's
+ * shorthands. When several shorthands are present, the one registered first wins.
+ *
+ * A new registry contains the built-in MessageML and PresentationML elements, to which custom elements can be
+ * added before passing it to a {@link MessageMLEngine}. The engine takes a copy of the registry, so that it can be
+ * shared between threads.
+ */
+public final class ElementFactoryRegistry {
+  static final ElementFactoryRegistry DEFAULT = new ElementFactoryRegistry();
+
+  private final Map<String, TagEntry> tags = new HashMap<>();
+  private int shorthandCount;
+
+  /**
+   * Create a registry of the built-in elements.
+   */
+  public ElementFactoryRegistry() {
+    for (int level = 1; level <= 6; level++) {
+      String tag = "h" + level;
+      register(tag, (parser, parent, attributes) -> new Header(parent, tag));
+    }
+
+    register(Chime.MESSAGEML_TAG, messageMLOnly(Chime.MESSAGEML_TAG,
+        (parser, parent, attributes) -> new Chime(parent, FormatEnum.MESSAGEML)));
+    register(Chime.PRESENTATIONML_TAG, (parser, parent, attributes) -> new Chime(parent, FormatEnum.PRESENTATIONML));
+    register(Paragraph.MESSAGEML_TAG, (parser, parent, attributes) -> new Paragraph(parent));
+    register(LineBreak.MESSAGEML_TAG, (parser, parent, attributes) -> new LineBreak(parent));
+    register(HorizontalRule.MESSAGEML_TAG, (parser, parent, attributes) -> new HorizontalRule(parent));
+
+    register(Span.MESSAGEML_TAG, (parser, parent, attributes) -> new Span(parent));
+    register(Span.MESSAGEML_TAG, CLASS_ATTR, Entity.PRESENTATIONML_CLASS,
+        (parser, parent, attributes) -> parser.createEntity(Span.MESSAGEML_TAG, attributes, parent), false);
+
+    register(Div.MESSAGEML_TAG, (parser, parent, attributes) -> new Div(parent));
+    register(Div.MESSAGEML_TAG, CLASS_ATTR, Entity.PRESENTATIONML_CLASS,
+        (parser, parent, attributes) -> parser.createEntity(Div.MESSAGEML_TAG, attributes, parent), false);
+    registerShorthand(Div.MESSAGEML_TAG, CLASS_ATTR, Card.PRESENTATIONML_CLASS,
+        (parser, parent, attributes) -> new Card(parent, FormatEnum.PRESENTATIONML));
+    registerShorthand(Div.MESSAGEML_TAG, CLASS_ATTR, CardBody.PRESENTATIONML_CLASS,
+        (parser, parent, attributes) -> new CardBody(parent, FormatEnum.PRESENTATIONML));
+    registerShorthand(Div.MESSAGEML_TAG, CLASS_ATTR, CardHeader.PRESENTATIONML_CLASS,
+        (parser, parent, attributes) -> new CardHeader(parent, FormatEnum.PRESENTATIONML));
+    registerShorthand(Div.MESSAGEML_TAG, CLASS_ATTR, PersonSelector.MESSAGEML_TAG,
+        (parser, parent, attributes) -> new PersonSelector(parent, FormatEnum.PRESENTATIONML));
+    registerShorthand(Div.MESSAGEML_TAG, CLASS_ATTR, DateSelector.MESSAGEML_TAG,
+        (parser, parent, attributes) -> new DateSelector(parent, FormatEnum.PRESENTATIONML));
+    registerShorthand(Div.MESSAGEML_TAG, CLASS_ATTR, Checkbox.PRESENTATIONML_DIV_CLASS,
+        (parser, parent, attributes) -> new Checkbox(parent, FormatEnum.PRESENTATIONML));
+    registerShorthand(Div.MESSAGEML_TAG, CLASS_ATTR, Radio.PRESENTATIONML_DIV_CLASS,
+        (parser, parent, attributes) -> new Radio(parent, FormatEnum.PRESENTATIONML));
+
+    register(FormElement.INPUT_TAG, (parser, parent, attributes) -> {
+      throw new InvalidInputException(String.format("The input type \"%s\" is not allowed on PresentationML",
+          attributes.getOrDefault(FormElement.TYPE_ATTR, "")));
+    });
+    registerShorthand(FormElement.INPUT_TAG, FormElement.TYPE_ATTR, TextField.PRESENTATIONML_INPUT_TYPE,
+        (parser, parent, attributes) -> new TextField(parent));
+    registerShorthand(FormElement.INPUT_TAG, FormElement.TYPE_ATTR, Password.PRESENTATIONML_INPUT_TYPE,
+        (parser, parent, attributes) -> new Password(parent));
+    register(FormElement.INPUT_TAG, FormElement.TYPE_ATTR, Checkbox.PRESENTATIONML_INPUT_TYPE,
+        (parser, parent, attributes) -> new Checkbox(parent, FormatEnum.PRESENTATIONML), false);
+    register(FormElement.INPUT_TAG, FormElement.TYPE_ATTR, Radio.PRESENTATIONML_INPUT_TYPE,
+        (parser, parent, attributes) -> new Radio(parent, FormatEnum.PRESENTATIONML), false);
+
+    register(Bold.MESSAGEML_TAG, (parser, parent, attributes) -> new Bold(parent));
+    register(Italic.MESSAGEML_TAG, (parser, parent, attributes) -> new Italic(parent));
+    register(Preformatted.MESSAGEML_TAG, (parser, parent, attributes) -> new Preformatted(parent));
+    register(HashTag.MESSAGEML_TAG, messageMLOnly(HashTag.MESSAGEML_TAG,
+        (parser, parent, attributes) -> new HashTag(parent, parser.nextIndex())));
+    register(CashTag.MESSAGEML_TAG, messageMLOnly(CashTag.MESSAGEML_TAG,
+        (parser, parent, attributes) -> new CashTag(parent, parser.nextIndex())));
+    register(Mention.MESSAGEML_TAG, messageMLOnly(Mention.MESSAGEML_TAG,
+        (parser, parent, attributes) -> parser.createMention(parent)));
+    register(Link.MESSAGEML_TAG, (parser, parent, attributes) -> parser.createLink(parent));
+    register(Image.MESSAGEML_TAG, (parser, parent, attributes) -> new Image(parent));
+    register(BulletList.MESSAGEML_TAG, (parser, parent, attributes) -> new BulletList(parent));
+    register(OrderedList.MESSAGEML_TAG, (parser, parent, attributes) -> new OrderedList(parent));
+    register(ListItem.MESSAGEML_TAG, (parser, parent, attributes) -> new ListItem(parent));
+    register(Table.MESSAGEML_TAG, (parser, parent, attributes) -> new Table(parent));
+    register(TableHeader.MESSAGEML_TAG, (parser, parent, attributes) -> new TableHeader(parent));
+    register(TableBody.MESSAGEML_TAG, (parser, parent, attributes) -> new TableBody(parent));
+    register(TableFooter.MESSAGEML_TAG, (parser, parent, attributes) -> new TableFooter(parent));
+    register(TableRow.MESSAGEML_TAG, (parser, parent, attributes) -> new TableRow(parent));
+    register(TableHeaderCell.MESSAGEML_TAG, (parser, parent, attributes) -> new TableHeaderCell(parent));
+    register(TableCell.MESSAGEML_TAG, (parser, parent, attributes) -> new TableCell(parent));
+    register(Card.MESSAGEML_TAG, messageMLOnly(Card.MESSAGEML_TAG,
+        (parser, parent, attributes) -> new Card(parent, FormatEnum.MESSAGEML)));
+    register(Code.MESSAGEML_TAG, (parser, parent, attributes) -> new Code(parent));
+    register(CardHeader.MESSAGEML_TAG, messageMLOnly(CardHeader.MESSAGEML_TAG,
+        (parser, parent, attributes) -> new CardHeader(parent, FormatEnum.MESSAGEML)));
+    register(CardBody.MESSAGEML_TAG, messageMLOnly(CardBody.MESSAGEML_TAG,
+        (parser, parent, attributes) -> new CardBody(parent, FormatEnum.MESSAGEML)));
+    register(Emoji.MESSAGEML_TAG, (parser, parent, attributes) -> new Emoji(parent, parser.nextIndex()));
+    register(Form.MESSAGEML_TAG, (parser, parent, attributes) -> new Form(parent));
+    register(Select.MESSAGEML_TAG, (parser, parent, attributes) -> new Select(parent));
+    register(Option.MESSAGEML_TAG, (parser, parent, attributes) -> new Option(parent));
+    register(Button.MESSAGEML_TAG, (parser, parent, attributes) -> new Button(parent));
+    register(TextField.MESSAGEML_TAG, (parser, parent, attributes) -> new TextField(parent));
+    register(Checkbox.MESSAGEML_TAG, (parser, parent, attributes) -> new Checkbox(parent, FormatEnum.MESSAGEML));
+    register(Radio.MESSAGEML_TAG, (parser, parent, attributes) -> new Radio(parent, FormatEnum.MESSAGEML));
+    register(PersonSelector.MESSAGEML_TAG,
+        (parser, parent, attributes) -> new PersonSelector(parent, FormatEnum.MESSAGEML));
+    register(DateSelector.MESSAGEML_TAG,
+        (parser, parent, attributes) -> new DateSelector(parent, FormatEnum.MESSAGEML));
+    register(TextArea.MESSAGEML_TAG, (parser, parent, attributes) -> new TextArea(parent));
+    register(Password.MESSAGEML_TAG, (parser, parent, attributes) -> new Password(parent));
+  }
+
+  /**
+   * Create a copy of the registry.
+   */
+  public ElementFactoryRegistry(ElementFactoryRegistry registry) {
+    for (Map.Entry<String, TagEntry> entry : registry.tags.entrySet()) {
+      tags.put(entry.getKey(), new TagEntry(entry.getValue()));
+    }
+    this.shorthandCount = registry.shorthandCount;
+  }
+
+  /**
+   * Register the factory of elements with the given tag, replacing any factory previously registered for it.
+   * Shorthands registered for the tag take precedence.
+   */
+  public ElementFactoryRegistry register(String tag, ElementFactory factory) {
+    getTagEntry(tag).factory = factory;
+    return this;
+  }
+
+  /**
+   * Register the factory of elements with the given tag and shorthand attribute value, e.g. a class of a <i>div</i>
+   * element. The shorthand value is removed from the attribute of the created element, and the attribute itself is
+   * removed if no other values are left.
+   * @param attribute attribute holding shorthand values of the tag; a tag can only have one
+   * @param value shorthand value, matched as one of the whitespace separated values of the attribute
+   * @throws IllegalArgumentException thrown when shorthands of the tag are held by another attribute
+   */
+  public ElementFactoryRegistry registerShorthand(String tag, String attribute, String value,
+      ElementFactory factory) {
+    return register(tag, attribute, value, factory, true);
+  }
+
+  /**
+   * Create the element for the tag and attributes of the input message.
+   */
+  Element create(MessageMLParser parser, String tag, Map<String, String> attributes, Element parent)
+      throws InvalidInputException {
+    TagEntry entry = tags.get(tag);
+
+    if (entry != null && entry.shorthands != null) {
+      String value = attributes.get(entry.attribute);
+      Shorthand shorthand = (value != null) ? entry.findShorthand(value) : null;
+
+      if (shorthand != null) {
+        if (shorthand.consumed) {
+          removeShorthand(attributes, entry.attribute, value, shorthand.value);
+        }
+        return shorthand.factory.create(parser, parent, attributes);
+      }
+    }
+
+    if (entry == null || entry.factory == null) {
+      throw new InvalidInputException("Invalid MessageML content at element \"" + tag + "\"");
+    }
+
+    return entry.factory.create(parser, parent, attributes);
+  }
+
+  /**
+   * Return the attribute holding the shorthand values of the tag, or null if it has none.
+   */
+  String getShorthandAttribute(String tag) {
+    TagEntry entry = tags.get(tag);
+    return (entry != null) ? entry.attribute : null;
+  }
+
+  private ElementFactoryRegistry register(String tag, String attribute, String value, ElementFactory factory,
+      boolean consumed) {
+    TagEntry entry = getTagEntry(tag);
+
+    if (entry.shorthands == null) {
+      entry.attribute = attribute;
+      entry.shorthands = new HashMap<>();
+    } else if (!entry.attribute.equals(attribute)) {
+      throw new IllegalArgumentException("Shorthands of element \"" + tag + "\" are held by the \"" + entry.attribute
+          + "\" attribute");
+    }
+
+    Shorthand previous = entry.shorthands.get(value);
+    int priority = (previous != null) ? previous.priority : shorthandCount++;
+    entry.shorthands.put(value, new Shorthand(value, factory, priority, consumed));
+
+    return this;
+  }
+
+  private TagEntry getTagEntry(String tag) {
+    return tags.computeIfAbsent(tag, key -> new TagEntry());
+  }
+
+  /**
+   * Throw an exception if the enclosing message is in PresentationML, for shorthand MessageML tags.
+   */
+  private static ElementFactory messageMLOnly(String tag, ElementFactory factory) {
+    return (parser, parent, attributes) -> {
+      parser.validateFormat(tag);
+      return factory.create(parser, parent, attributes);
+    };
+  }
+
+  /**
+   * Remove all occurrences of the shorthand value from the attribute, ignoring case.
+   */
+  private static void removeShorthand(Map<String, String> attributes, String attribute, String value,
+      String shorthand) {
+    StringBuilder result = new StringBuilder(value.length());
+    int length = value.length();
+    int start = skipWhitespace(value, 0);
+
+    while (start < length) {
+      int end = skipValue(value, start);
+
+      if (end - start != shorthand.length() || !value.regionMatches(true, start, shorthand, 0, end - start)) {
+        if (result.length() > 0) {
+          result.append(' ');
+        }
+        result.append(value, start, end);
+      }
+
+      start = skipWhitespace(value, end);
+    }
+
+    if (result.length() > 0) {
+      attributes.put(attribute, result.toString());
+    } else {
+      attributes.remove(attribute);
+    }
+  }
+
+  private static int skipWhitespace(String value, int index) {
+    while (index < value.length() && isWhitespace(value.charAt(index))) {
+      index++;
+    }
+    return index;
+  }
+
+  private static int skipValue(String value, int index) {
+    while (index < value.length() && !isWhitespace(value.charAt(index))) {
+      index++;
+    }
+    return index;
+  }
+
+  /**
+   * Whitespace separating attribute values, as matched by the "\s" regular expression class.
+   */
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  private static final class TagEntry {
+    private ElementFactory factory;
+    private String attribute;
+    private Map<String, Shorthand> shorthands;
+
+    TagEntry() {
+    }
+
+    TagEntry(TagEntry entry) {
+      this.factory = entry.factory;
+      this.attribute = entry.attribute;
+      this.shorthands = (entry.shorthands != null) ? new HashMap<>(entry.shorthands) : null;
+    }
+
+    /**
+     * Find the first registered shorthand among the whitespace separated values of the attribute.
+     */
+    Shorthand findShorthand(String value) {
+      Shorthand result = null;
+      int length = value.length();
+      int start = skipWhitespace(value, 0);
+
+      while (start < length) {
+        int end = skipValue(value, start);
+        Shorthand shorthand = shorthands.get((start == 0 && end == length) ? value : value.substring(start, end));
+
+        if (shorthand != null && (result == null || shorthand.priority < result.priority)) {
+          result = shorthand;
+        }
+
+        start = skipWhitespace(value, end);
+      }
+
+      return result;
+    }
+  }
+
+  private static final class Shorthand {
+    private final String value;
+    private final ElementFactory factory;
+    private final int priority;
+    private final boolean consumed;
+
+    Shorthand(String value, ElementFactory factory, int priority, boolean consumed) {
+      this.value = value;
+      this.factory = factory;
+      this.priority = priority;
+      this.consumed = consumed;
+    }
+  }
+}
@@ -18,20 +18,17 @@ package org.symphonyoss.symphony.messageml;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.apache.commons.lang3.StringUtils;
 import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.exceptions.DeadlineExceededException;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
-import org.symphonyoss.symphony.messageml.markdown.MarkdownParser;
-import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The main entry point for parsing string message data in MessageML or Markdown formats and associated JSON entity
@@ -39,20 +36,39 @@ import java.io.IOException;
  *
  * To generate a messageML tree, use one of parseMessageML() or parseMarkdown(). Once the message has been parsed,
  * use one of the get() methods to retrieve the desired output format.
+ *
+ * A context holds the last parsed message and is not thread-safe. To share a parser between threads, use
+ * {@link MessageMLEngine} directly.
  * @author lukasz
  * @since 3/21/17
  */
 public class MessageMLContext {
 
-  private final MessageMLParser messageMLParser;
-  private final MarkdownParser markdownParser;
-  private MarkdownRenderer markdownRenderer;
-  private MessageML messageML;
-  private ObjectNode entityJson;
+  private final MessageMLEngine engine;
+  private ParseResult result;
 
   public MessageMLContext(IDataProvider dataProvider) {
-    this.markdownParser = new MarkdownParser(dataProvider);
-    this.messageMLParser = new MessageMLParser(dataProvider);
+    this(dataProvider, XmlParserEnum.DOM);
+  }
+
+  /**
+   * Create a context reading MessageML input with the given XML parser. Markdown and legacy entities are generated
+   * while each message is parsed, so that errors converting the message are thrown by the parse() methods.
+   * @param xmlParser {@link XmlParserEnum#STAX} to convert the message in a single streaming pass, or
+   * {@link XmlParserEnum#DOM} to build an intermediate document tree first
+   */
+  public MessageMLContext(IDataProvider dataProvider, XmlParserEnum xmlParser) {
+    this(new MessageMLEngineBuilder(dataProvider).withXmlParser(xmlParser).withOutputs(EnumSet.of(OutputEnum.MARKDOWN))
+        .build());
+  }
+
+  /**
+   * Create a context parsing messages with a shared engine. Outputs which the engine does not generate up front are
+   * generated when first retrieved, in which case errors converting the message to Markdown are thrown by the get()
+   * methods as {@link IllegalStateException}.
+   */
+  public MessageMLContext(MessageMLEngine engine) {
+    this.engine = engine;
   }
 
   /**
@@ -68,10 +84,24 @@ public class MessageMLContext {
    */
   public void parseMessageML(String message, String entityJson, String version) throws InvalidInputException, IOException,
       ProcessingException {
+    this.result = engine.parseMessageML(message, entityJson, version);
+  }
 
-    this.messageML = messageMLParser.parse(message, entityJson, version);
-    this.entityJson = messageMLParser.getEntityJson();
-    this.markdownRenderer = new MarkdownRenderer(messageML.asMarkdown());
+  /**
+   * Parse the text contents of the message and optionally EntityJSON into a MessageMLV2 message within the given
+   * time, see {@link MessageMLEngine#parseMessageML(String, String, String, long, TimeUnit)}.
+   * @param message string containing a MessageMLV2 message with optional Freemarker templates
+   * @param entityJson string containing EntityJSON data
+   * @param version string containing the version of the message format
+   * @param timeout time to parse the message
+   * @throws InvalidInputException thrown on invalid MessageMLV2 input
+   * @throws DeadlineExceededException thrown if the message cannot be parsed in time
+   * @throws ProcessingException thrown on errors generating the document tree
+   * @throws IOException thrown on invalid EntityJSON input
+   */
+  public void parseMessageML(String message, String entityJson, String version, long timeout, TimeUnit unit)
+      throws InvalidInputException, IOException, ProcessingException {
+    this.result = engine.parseMessageML(message, entityJson, version, timeout, unit);
   }
 
   /**
@@ -81,22 +111,28 @@ public class MessageMLContext {
    * @param entities additional entity data in JSON
    */
   public void parseMarkdown(String message, JsonNode entities, JsonNode media) throws InvalidInputException {
-    this.messageML = markdownParser.parse(message, entities, media);
-    this.entityJson = messageML.asEntityJson(this.entityJson);
-    this.markdownRenderer = new MarkdownRenderer(messageML.asMarkdown());
+    this.result = engine.parseMarkdown(message, entities, media);
   }
 
   /**
-   * Retrieve the MessageML document tree.
+   * Retrieve the result of the last parse() call.
    * @throws IllegalStateException thrown if the message hasn't been parsed yet
    */
-  public MessageML getMessageML() throws IllegalStateException {
-    if (messageML == null) {
+  public ParseResult getResult() throws IllegalStateException {
+    if (result == null) {
       throw new IllegalStateException("The message hasn't been parsed yet. "
           + "Please call MessageMLContext.parse() first.");
     }
 
-    return messageML;
+    return result;
+  }
+
+  /**
+   * Retrieve the MessageML document tree.
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   */
+  public MessageML getMessageML() throws IllegalStateException {
+    return getResult().getMessageML();
   }
 
   /**
@@ -104,60 +140,81 @@ public class MessageMLContext {
    * @throws IllegalStateException thrown if the message hasn't been parsed yet
    */
   public String getPresentationML() throws IllegalStateException {
-    if (messageML == null) {
-      throw new IllegalStateException("The message hasn't been parsed yet. "
-          + "Please call MessageMLContext.parse() first.");
-    }
-
-    ByteArrayOutputStream bout = new ByteArrayOutputStream();
-    XmlPrintStream out = new XmlPrintStream(bout);
-
-    out.setNoIndent(true);
-    out.setNoNl(true);
+    return getResult().getPresentationML();
+  }
 
-    messageML.asPresentationML(out);
+  /**
+   * Retrieve the PresentationML representation of the message encoded in UTF-8.
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   */
+  public byte[] getPresentationMLBytes() throws IllegalStateException {
+    return getResult().getPresentationMLBytes();
+  }
 
-    out.close();
+  /**
+   * Write the PresentationML representation of the message to the provided stream, encoded in UTF-8. The stream is
+   * flushed but not closed.
+   * @throws IOException thrown on errors writing to the stream
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   */
+  public void writePresentationML(OutputStream out) throws IOException, IllegalStateException {
+    getResult().writePresentationML(out);
+  }
 
-    return bout.toString();
+  /**
+   * Append the PresentationML representation of the message to the provided output.
+   * @throws IOException thrown on errors writing to the output
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   */
+  public void writePresentationML(Appendable out) throws IOException, IllegalStateException {
+    getResult().writePresentationML(out);
   }
 
   /**
    * Retrieve a JSON representation of entity data (EntityJSON).
    */
   public ObjectNode getEntityJson() {
-    if (messageML == null) {
-      throw new IllegalStateException("The message hasn't been parsed yet. "
-          + "Please call MessageMLContext.parse() first.");
-    }
-
-    return entityJson;
+    return getResult().getEntityJson();
   }
 
   /**
    * Retrieve a string representation of the message in Markdown.
-   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet, or if it cannot be converted to
+   * Markdown
    */
   public String getMarkdown() throws IllegalStateException {
-    if (messageML == null) {
-      throw new IllegalStateException("The message hasn't been parsed yet. "
-          + "Please call MessageMLContext.parse() first.");
+    try {
+      return getResult().getMarkdown();
+    } catch (InvalidInputException e) {
+      throw new IllegalStateException(e.getMessage(), e);
     }
-
-    return markdownRenderer.getText();
   }
 
   /**
    * Retrieve message entities (tags, mentions, urls) in the legacy JSON format.
-   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet, or if it cannot be converted to
+   * Markdown
    */
   public JsonNode getEntities() throws IllegalStateException {
-    if (messageML == null) {
-      throw new IllegalStateException("The message hasn't been parsed yet. "
-          + "Please call MessageMLContext.parse() first.");
+    try {
+      return getResult().getEntities();
+    } catch (InvalidInputException e) {
+      throw new IllegalStateException(e.getMessage(), e);
     }
+  }
 
-    return markdownRenderer.getJson();
+  /**
+   * Write message entities (tags, mentions, urls) in the legacy JSON format to the provided stream encoded in UTF-8.
+   * @throws IOException thrown on errors writing to the stream
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet, or if it cannot be converted to
+   * Markdown
+   */
+  public void writeEntities(OutputStream out) throws IOException, IllegalStateException {
+    try {
+      getResult().writeEntities(out);
+    } catch (InvalidInputException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
   }
 
   /**
@@ -167,14 +224,7 @@ public class MessageMLContext {
    * @throws IllegalStateException thrown if the message hasn't been parsed yet
    */
   public String getText() throws InvalidInputException, ProcessingException, IllegalStateException {
-    if (messageML == null) {
-      throw new IllegalStateException("The message hasn't been parsed yet. "
-          + "Please call MessageMLContext.parse() first.");
-    }
-
-    String presentationML = getPresentationML();
-    Element doc = messageMLParser.parseDocument(presentationML);
-    return doc.getTextContent();
+    return getResult().getText();
   }
 
   /**
@@ -186,31 +236,7 @@ public class MessageMLContext {
    * @throws IllegalStateException thrown if the message hasn't been parsed yet
    */
   public String getText(boolean preserveWhitespace) throws InvalidInputException, ProcessingException, IllegalStateException {
-    if (messageML == null) {
-      throw new IllegalStateException("The message hasn't been parsed yet. "
-          + "Please call MessageMLContext.parse() first.");
-    }
-
-    StringBuilder sb = new StringBuilder();
-
-    String presentationML = getPresentationML();
-    Element doc = messageMLParser.parseDocument(presentationML);
-
-    NodeList nodes = doc.getChildNodes();
-
-    for (int i = 0; i < nodes.getLength(); i++) {
-      Node node = nodes.item(i);
-      String text = (preserveWhitespace) ? node.getTextContent() : node.getTextContent().trim();
-
-      // Prepend space unless we're at the first node or we trim whitespace and current text is blank
-      if (i > 0 && StringUtils.isNotEmpty(text)) {
-        sb.append(" ");
-      }
-
-      sb.append(text);
-    }
-
-    return sb.toString();
+    return getResult().getText(preserveWhitespace);
   }
 
 }
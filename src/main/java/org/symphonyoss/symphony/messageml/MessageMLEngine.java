@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.CacheStats;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.elements.Styles;
+import org.symphonyoss.symphony.messageml.exceptions.DeadlineExceededException;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownParser;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.IDeadlineAwareDataProvider;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe entry point for parsing string message data in MessageML or Markdown formats and associated JSON
+ * entity data into {@link ParseResult} objects.
+ *
+ * The engine holds no per-message state: it is configured once and a single instance can be shared by all threads.
+ * Each call creates its own parser state and returns an immutable result. The {@link IDataProvider} must be
+ * thread-safe as well. Engines are configured with a {@link MessageMLEngineBuilder}.
+ */
+public final class MessageMLEngine {
+  private final IDataProvider dataProvider;
+  private final XmlParserEnum xmlParser;
+  private final Set<OutputEnum> outputs;
+  private final ElementFactoryRegistry elementFactories;
+  private final Executor lookupExecutor;
+  private final ParseLimits limits;
+  private final Styles styles;
+
+  /**
+   * Create an engine with the default options, see {@link MessageMLEngineBuilder} to configure it.
+   */
+  public MessageMLEngine(IDataProvider dataProvider) {
+    this(new MessageMLEngineBuilder(dataProvider));
+  }
+
+  MessageMLEngine(MessageMLEngineBuilder builder) {
+    ElementFactoryRegistry elementFactories = builder.getElementFactories();
+
+    this.dataProvider = builder.getDataProvider();
+    this.xmlParser = builder.getXmlParser();
+    this.outputs = builder.getOutputs();
+    // The default registry is never modified, so it can be shared
+    this.elementFactories = (elementFactories != null) ? new ElementFactoryRegistry(elementFactories)
+        : ElementFactoryRegistry.DEFAULT;
+    this.lookupExecutor = builder.getLookupExecutor();
+    this.limits = builder.getLimits();
+    this.styles = new Styles(builder.getStyleCacheSize());
+  }
+
+  /**
+   * Parse the text contents of the message and optionally EntityJSON into a MessageMLV2 message. Expands
+   * Freemarker templates and generates document tree structures for serialization into output formats.
+   * @param message string containing a MessageMLV2 message with optional Freemarker templates
+   * @param entityJson string containing EntityJSON data
+   * @param version string containing the version of the message format
+   * @throws InvalidInputException thrown on invalid MessageMLV2 input
+   * @throws ProcessingException thrown on errors generating the document tree
+   * @throws IOException thrown on invalid EntityJSON input
+   */
+  public ParseResult parseMessageML(String message, String entityJson, String version) throws InvalidInputException,
+      IOException, ProcessingException {
+    MessageMLParser messageMLParser = new MessageMLParser(dataProvider, xmlParser, elementFactories,
+        lookupExecutor, null, limits, styles);
+    MessageML messageML = messageMLParser.parse(message, entityJson, version);
+
+    return new ParseResult(messageML, messageMLParser.getEntityJson(), outputs,
+        limits.getMaxPresentationMLBytes());
+  }
+
+  /**
+   * Parse the text contents of the message and optionally EntityJSON into a MessageMLV2 message within the given
+   * time. The time left is checked between the phases of the parse and as the document tree is built, and is passed
+   * to the lookups of an {@link IDeadlineAwareDataProvider}. Template expansion and lookups of other data providers
+   * are not interrupted, but the parse fails as soon as they complete after the deadline.
+   * @param message string containing a MessageMLV2 message with optional Freemarker templates
+   * @param entityJson string containing EntityJSON data
+   * @param version string containing the version of the message format
+   * @param timeout time to parse the message and generate the outputs of the engine
+   * @throws InvalidInputException thrown on invalid MessageMLV2 input
+   * @throws DeadlineExceededException thrown if the message cannot be parsed in time
+   * @throws ProcessingException thrown on errors generating the document tree
+   * @throws IOException thrown on invalid EntityJSON input
+   */
+  public ParseResult parseMessageML(String message, String entityJson, String version, long timeout, TimeUnit unit)
+      throws InvalidInputException, IOException, ProcessingException {
+    Deadline deadline = Deadline.after(timeout, unit);
+
+    try {
+      MessageMLParser messageMLParser = new MessageMLParser(dataProvider, xmlParser, elementFactories,
+          lookupExecutor, deadline, limits, styles);
+      MessageML messageML = messageMLParser.parse(message, entityJson, version);
+      ParseResult result = new ParseResult(messageML, messageMLParser.getEntityJson(), outputs,
+          limits.getMaxPresentationMLBytes());
+      deadline.check("rendering the message");
+
+      return result;
+    } catch (Deadline.Exceeded e) {
+      throw e.toCheckedException();
+    }
+  }
+
+  /**
+   * Parse a Markdown message into its MessageMLV2 representation. Generates document tree structures for
+   * serialization into output formats.
+   * @param message string containing a message in Markdown
+   * @param entities additional entity data in JSON
+   */
+  public ParseResult parseMarkdown(String message, JsonNode entities, JsonNode media) throws InvalidInputException {
+    MessageML messageML = new MarkdownParser(dataProvider).parse(message, entities, media);
+
+    return new ParseResult(messageML, new ObjectNode(JsonNodeFactory.instance), outputs);
+  }
+
+  /**
+   * Retrieve hit, miss and eviction counters of the compiled Freemarker template cache. The cache is shared by all
+   * engines and contexts and is bounded by the total length of the cached messages.
+   */
+  public static CacheStats getTemplateCacheStats() {
+    return MessageMLParser.getTemplateCacheStats();
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.symphony.messageml;
+
+import org.symphonyoss.symphony.messageml.elements.Styles;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Builder of {@link MessageMLEngine} instances. Options which are not set keep their defaults, as in engines created
+ * with {@link MessageMLEngine#MessageMLEngine(IDataProvider)}.
+ *
+ * Fluent interface. The builder is not thread-safe, the engines it builds are.
+ */
+public class MessageMLEngineBuilder {
+  private final IDataProvider dataProvider;
+  private XmlParserEnum xmlParser = XmlParserEnum.DOM;
+  private Set<OutputEnum> outputs = EnumSet.noneOf(OutputEnum.class);
+  private ElementFactoryRegistry elementFactories;
+  private Executor lookupExecutor;
+  private ParseLimits limits = new ParseLimits();
+  private int styleCacheSize;
+
+  /**
+   * @param dataProvider provider of user and URI lookups, which must be thread-safe
+   */
+  public MessageMLEngineBuilder(IDataProvider dataProvider) {
+    this.dataProvider = dataProvider;
+  }
+
+  /**
+   * Set the XML parser reading MessageML input, {@link XmlParserEnum#DOM} by default.
+   * @param xmlParser {@link XmlParserEnum#STAX} to convert the message in a single streaming pass, or
+   * {@link XmlParserEnum#DOM} to build an intermediate document tree first
+   * @return this (fluent interface)
+   */
+  public MessageMLEngineBuilder withXmlParser(XmlParserEnum xmlParser) {
+    this.xmlParser = xmlParser;
+    return this;
+  }
+
+  /**
+   * Set the outputs generated for each message when it is parsed, none by default. Other outputs are generated when
+   * first retrieved from the {@link ParseResult}.
+   * @param outputs outputs which will be retrieved from most messages
+   * @return this (fluent interface)
+   */
+  public MessageMLEngineBuilder withOutputs(Set<OutputEnum> outputs) {
+    this.outputs = (outputs.isEmpty()) ? EnumSet.noneOf(OutputEnum.class) : EnumSet.copyOf(outputs);
+    return this;
+  }
+
+  /**
+   * Set the element factories of the engine, e.g. to support custom elements. By default the engine accepts the
+   * built-in elements.
+   * @param elementFactories registry of the elements the engine accepts; the engine keeps a copy of it
+   * @return this (fluent interface)
+   */
+  public MessageMLEngineBuilder withElementFactories(ElementFactoryRegistry elementFactories) {
+    this.elementFactories = elementFactories;
+    return this;
+  }
+
+  /**
+   * Run the data provider lookups of each MessageML message concurrently on the given executor. The URIs of links
+   * are checked while the document tree is built and the users of mentions are looked up once it is built, so that
+   * a message takes about as long as its slowest lookup. Errors are reported as when the lookups are run one by one.
+   * @param lookupExecutor executor running the lookups, or null to run them one by one on the parsing thread, the
+   * default
+   * @return this (fluent interface)
+   */
+  public MessageMLEngineBuilder withLookupExecutor(Executor lookupExecutor) {
+    this.lookupExecutor = lookupExecutor;
+    return this;
+  }
+
+  /**
+   * Reject MessageML messages which exceed the given limits, e.g. to protect a service parsing messages from
+   * untrusted senders. Messages are unlimited by default.
+   * @param limits limits on the size and structure of messages; the builder keeps a copy of them
+   * @return this (fluent interface)
+   */
+  public MessageMLEngineBuilder withLimits(ParseLimits limits) {
+    this.limits = new ParseLimits(limits);
+    return this;
+  }
+
+  /**
+   * Keep up to the given number of style attributes which passed validation, so that attributes repeated across
+   * messages, e.g. by templates, are not checked again. Each engine has its own cache, and only attributes of up to
+   * {@link Styles#MAX_CACHED_LENGTH} characters are cached.
+   * @param styleCacheSize maximum number of style attributes to keep, or 0 to check every attribute, the default
+   * @return this (fluent interface)
+   */
+  public MessageMLEngineBuilder withStyleCacheSize(int styleCacheSize) {
+    this.styleCacheSize = styleCacheSize;
+    return this;
+  }
+
+  /**
+   * Create an engine from the current state of this builder.
+   */
+  public MessageMLEngine build() {
+    return new MessageMLEngine(this);
+  }
+
+  IDataProvider getDataProvider() {
+    return dataProvider;
+  }
+
+  XmlParserEnum getXmlParser() {
+    return xmlParser;
+  }
+
+  Set<OutputEnum> getOutputs() {
+    return outputs;
+  }
+
+  ElementFactoryRegistry getElementFactories() {
+    return elementFactories;
+  }
+
+  Executor getLookupExecutor() {
+    return lookupExecutor;
+  }
+
+  ParseLimits getLimits() {
+    return limits;
+  }
+
+  int getStyleCacheSize() {
+    return styleCacheSize;
+  }
+}
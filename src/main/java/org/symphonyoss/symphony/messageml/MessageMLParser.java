@@ -5,42 +5,49 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import freemarker.core.TemplateClassResolver;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
 import freemarker.template.TemplateExceptionHandler;
-import org.apache.commons.io.input.ReaderInputStream;
+import freemarker.template.TemplateModel;
 import org.apache.commons.lang3.StringUtils;
 import org.symphonyoss.symphony.messageml.elements.*;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.JsonFieldIndex;
+import org.symphonyoss.symphony.messageml.util.JsonNodeObjectWrapper;
 import org.symphonyoss.symphony.messageml.util.NoOpEntityResolver;
 import org.symphonyoss.symphony.messageml.util.NullErrorHandler;
 import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-
-import static org.symphonyoss.symphony.messageml.elements.Element.CLASS_ATTR;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Converts a string representation of the message and optional entity data into a MessageMLV2 document tree.
@@ -50,23 +57,107 @@ import static org.symphonyoss.symphony.messageml.elements.Element.CLASS_ATTR;
 public class MessageMLParser {
   private static final ObjectMapper MAPPER = new ObjectMapper();
   private static final Configuration FREEMARKER = new Configuration(Configuration.getVersion());
+  /** Total length in characters of the messages whose compiled templates are kept. */
+  static final int TEMPLATE_CACHE_WEIGHT = 1 << 20;
+  private static final Cache<String, Template> TEMPLATES = CacheBuilder.newBuilder()
+      .maximumWeight(TEMPLATE_CACHE_WEIGHT)
+      .weigher((String message, Template template) -> message.length())
+      .recordStats()
+      .build();
+  private static final XMLInputFactory STAX = XMLInputFactory.newInstance();
+  private static final String STAX_REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+  private static final String STAX_MESSAGE_PREFIX = "\nMessage: ";
+  private static final ParseLimits NO_LIMITS = new ParseLimits();
+  private static final String DOCTYPE_DISALLOWED = "DOCTYPE is disallowed when the feature "
+      + "\"http://apache.org/xml/features/disallow-doctype-decl\" set to true.";
   private final IDataProvider dataProvider;
+  private final XmlParserEnum xmlParser;
+  private final ElementFactoryRegistry elementFactories;
+  private final Executor lookupExecutor;
+  private final Deadline deadline;
+  private final ParseLimits limits;
+  private final Styles styles;
+  private final List<Mention> mentions = new ArrayList<>();
+  private final List<Link> links = new ArrayList<>();
 
   private FormatEnum messageFormat;
   private MessageML messageML;
   private ObjectNode entityJson;
+  private JsonFieldIndex entityIndex;
 
   private int index;
+  private int elementCount;
+  private int entityCount;
+  private int tableCellCount;
 
   static {
     FREEMARKER.setDefaultEncoding("UTF-8");
     FREEMARKER.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
     FREEMARKER.setLogTemplateExceptions(false);
     FREEMARKER.setNewBuiltinClassResolver(TemplateClassResolver.ALLOWS_NOTHING_RESOLVER);
+    FREEMARKER.setObjectWrapper(new JsonNodeObjectWrapper(FREEMARKER.getIncompatibleImprovements()));
+
+    //XXE prevention as per https://www.owasp.org/index.php/XML_External_Entity_(XXE)_Prevention_Cheat_Sheet
+    STAX.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    STAX.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    STAX.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    STAX.setProperty(XMLInputFactory.IS_COALESCING, false);
+    if (STAX.isPropertySupported(STAX_REPORT_CDATA)) {
+      STAX.setProperty(STAX_REPORT_CDATA, true);
+    }
   }
 
   MessageMLParser(IDataProvider dataProvider) {
-    this.dataProvider = dataProvider;
+    this(dataProvider, XmlParserEnum.DOM);
+  }
+
+  MessageMLParser(IDataProvider dataProvider, XmlParserEnum xmlParser) {
+    this(dataProvider, xmlParser, ElementFactoryRegistry.DEFAULT);
+  }
+
+  MessageMLParser(IDataProvider dataProvider, XmlParserEnum xmlParser, ElementFactoryRegistry elementFactories) {
+    this(dataProvider, xmlParser, elementFactories, null);
+  }
+
+  /**
+   * @param lookupExecutor executor running the data provider lookups of a message concurrently, or null to run them
+   * one by one on the parsing thread
+   */
+  MessageMLParser(IDataProvider dataProvider, XmlParserEnum xmlParser, ElementFactoryRegistry elementFactories,
+      Executor lookupExecutor) {
+    this(dataProvider, xmlParser, elementFactories, lookupExecutor, null);
+  }
+
+  /**
+   * @param deadline time by which messages must be parsed, checked between the phases of the parse and passed to
+   * the data provider lookups, or null to parse messages without a time limit
+   */
+  MessageMLParser(IDataProvider dataProvider, XmlParserEnum xmlParser, ElementFactoryRegistry elementFactories,
+      Executor lookupExecutor, Deadline deadline) {
+    this(dataProvider, xmlParser, elementFactories, lookupExecutor, deadline, NO_LIMITS);
+  }
+
+  /**
+   * @param limits limits on the size and structure of messages; the parser does not modify them
+   */
+  MessageMLParser(IDataProvider dataProvider, XmlParserEnum xmlParser, ElementFactoryRegistry elementFactories,
+      Executor lookupExecutor, Deadline deadline, ParseLimits limits) {
+    this(dataProvider, xmlParser, elementFactories, lookupExecutor, deadline, limits, new Styles(0));
+  }
+
+  /**
+   * @param styles checker of the style attributes of messages, which may be shared with other parsers to cache
+   * the attributes which passed
+   */
+  MessageMLParser(IDataProvider dataProvider, XmlParserEnum xmlParser, ElementFactoryRegistry elementFactories,
+      Executor lookupExecutor, Deadline deadline, ParseLimits limits, Styles styles) {
+    this.dataProvider = (deadline != null) ? new DeadlineDataProvider(dataProvider, deadline) : dataProvider;
+    this.xmlParser = xmlParser;
+    this.elementFactories = elementFactories;
+    this.lookupExecutor = lookupExecutor;
+    this.deadline = deadline;
+    this.limits = limits;
+    this.styles = styles;
   }
 
   /**
@@ -82,12 +173,21 @@ public class MessageMLParser {
   MessageML parse(String message, String entityJson, String version) throws InvalidInputException, ProcessingException,
       IOException {
     this.index = 0;
+    this.elementCount = 0;
+    this.entityCount = 0;
+    this.tableCellCount = 0;
+    this.entityIndex = null;
+    this.mentions.clear();
+    this.links.clear();
     String expandedMessage;
 
     if (StringUtils.isBlank(message)) {
      throw new InvalidInputException("Error parsing message: the message cannot be null or empty");
     }
 
+    ParseLimits.checkBytes(message, limits.getMaxInputBytes(), "The message");
+    ParseLimits.checkBytes(entityJson, limits.getMaxInputBytes(), "The EntityJSON");
+
     if (StringUtils.isNotBlank(entityJson)) {
       try {
         this.entityJson = (ObjectNode) MAPPER.readTree(entityJson);
@@ -99,7 +199,7 @@ public class MessageMLParser {
     }
 
     try {
-      expandedMessage = expandTemplates(message, this.entityJson);
+      expandedMessage = hasTemplates(message) ? expandTemplates(message, this.entityJson) : message;
     } catch (IOException e) {
       throw new InvalidInputException("Error parsing EntityJSON: " + e.getMessage());
     } catch (TemplateException e) {
@@ -107,11 +207,22 @@ public class MessageMLParser {
           + "column %s", e.getLineNumber(), e.getColumnNumber()));
     }
 
-    this.messageML = parseMessageML(expandedMessage, version);
+    checkDeadline("expanding templates");
 
-    if (this.messageML != null) {
-      this.entityJson = this.messageML.asEntityJson(this.entityJson);
+    if (expandedMessage != message) {
+      ParseLimits.checkBytes(expandedMessage, limits.getMaxInputBytes(), "The expanded message");
+    }
 
+    switch (xmlParser) {
+      case STAX:
+        this.messageML = parseMessageMLStream(expandedMessage, version);
+        break;
+      default:
+        this.messageML = parseMessageML(expandedMessage, version);
+        break;
+    }
+
+    if (this.messageML != null) {
       return this.messageML;
     }
 
@@ -119,7 +230,8 @@ public class MessageMLParser {
   }
 
   /**
-   * Retrieve a JSON representation of entity data (EntityJSON).
+   * Retrieve the EntityJSON provided with the message. Entities of the document tree are added by
+   * {@link MessageML#asEntityJson(ObjectNode)}.
    */
   ObjectNode getEntityJson() {
     return entityJson;
@@ -139,57 +251,177 @@ public class MessageMLParser {
   }
 
   /**
-   * Check whether <i>data-entity-id</i> attributes in the message match EntityJSON entities.
+   * Check whether the <i>data-entity-id</i> attribute of a DOM element matches an EntityJSON entity. Elements built
+   * with {@link #createElement(org.w3c.dom.Element, Element)} are checked there; this is meant for elements
+   * consumed without creating MessageML elements.
+   * @param deep whether to check the element's descendants as well
    */
-  private static void validateEntities(org.w3c.dom.Element document, JsonNode entityJson) throws InvalidInputException,
-      ProcessingException {
-    XPathFactory xPathfactory = XPathFactory.newInstance();
-    XPath xpath = xPathfactory.newXPath();
+  public void validateEntities(org.w3c.dom.Element element, boolean deep) throws InvalidInputException {
+    if (element.hasAttribute(Entity.ENTITY_ID_ATTR)) {
+      validateEntity(element.getAttribute(Entity.ENTITY_ID_ATTR));
+    }
 
-    NodeList nodes;
-    try {
-      XPathExpression expr = xpath.compile("//@data-entity-id");
-      nodes = (NodeList) expr.evaluate(document, XPathConstants.NODESET);
-    } catch (XPathExpressionException e) {
-      throw new ProcessingException("Internal error processing document tree: " + e.getMessage());
-    }
-
-    for (int i = 0; i < nodes.getLength(); i++) {
-      Node node = nodes.item(i);
-      String entityId = ((org.w3c.dom.Attr) node).getValue();
-
-      JsonNode entityNode = entityJson.findPath(entityId);
-      if (entityNode.isMissingNode()) {
-        throw new InvalidInputException("Error processing EntityJSON: "
-            + "no entity data provided for \"data-entity-id\"=\"" + entityId + "\"");
-      } else if (!entityNode.isObject()) {
-        throw new InvalidInputException("Error processing EntityJSON: "
-            + "the node \"" + entityId + "\" has to be an object");
+    if (deep) {
+      NodeList children = element.getChildNodes();
+
+      for (int i = 0; i < children.getLength(); i++) {
+        if (children.item(i).getNodeType() == Node.ELEMENT_NODE) {
+          validateEntities((org.w3c.dom.Element) children.item(i), true);
+        }
       }
     }
   }
 
+  /**
+   * Retrieve the index of EntityJSON fields, building it on first use.
+   */
+  private JsonFieldIndex getEntityIndex() {
+    if (entityIndex == null) {
+      entityIndex = new JsonFieldIndex(entityJson);
+    }
+
+    return entityIndex;
+  }
+
+  /**
+   * Check whether a <i>data-entity-id</i> attribute value matches an EntityJSON entity.
+   */
+  private void validateEntity(String entityId) throws InvalidInputException {
+    JsonNode entityNode = getEntityIndex().findPath(entityId);
+    if (entityNode.isMissingNode()) {
+      throw new InvalidInputException("Error processing EntityJSON: "
+          + "no entity data provided for \"data-entity-id\"=\"" + entityId + "\"");
+    } else if (!entityNode.isObject()) {
+      throw new InvalidInputException("Error processing EntityJSON: "
+          + "the node \"" + entityId + "\" has to be an object");
+    }
+  }
+
   /**
    * Throw an exception if the enclosing message is in PresentationML and a MessageML tag is used.
    */
-  private void validateFormat(String tag) throws InvalidInputException {
+  void validateFormat(String tag) throws InvalidInputException {
     if (messageFormat == FormatEnum.PRESENTATIONML) {
       throw new InvalidInputException("Shorthand tag \"" + tag + "\" is not allowed in PresentationML");
     }
   }
 
+  /**
+   * Return the index of the next hashtag, cashtag, mention or emoji of the message.
+   */
+  int nextIndex() {
+    return ++index;
+  }
+
+  /**
+   * Create a mention whose user is looked up together with the other mentions of the message, once the document
+   * tree is built.
+   */
+  Mention createMention(Element parent) {
+    return deferUserLookup(new Mention(parent, nextIndex(), dataProvider));
+  }
+
+  /**
+   * Create a link whose URI is checked on the lookup executor, if any, while the rest of the document tree is built.
+   */
+  Link createLink(Element parent) throws InvalidInputException {
+    Link link = new Link(parent, dataProvider);
+
+    if (lookupExecutor != null) {
+      link.setURICheckExecutor(lookupExecutor);
+      links.add(link);
+    }
+
+    return link;
+  }
+
+  private Mention deferUserLookup(Mention mention) {
+    mention.setLookupDeferred(true);
+    mentions.add(mention);
+    return mention;
+  }
+
+  /**
+   * Look up the users of all mentions of the message with a single call to the data provider.
+   */
+  private void resolveMentions() throws InvalidInputException, ProcessingException {
+    try {
+      Mention.resolveUsers(mentions, dataProvider, lookupExecutor, getRemainingNanos(), TimeUnit.NANOSECONDS);
+    } finally {
+      mentions.clear();
+    }
+  }
+
+  /**
+   * Check that the deadline of the parse, if any, has not passed.
+   * @param phase the phase of the parse being run
+   * @throws Deadline.Exceeded thrown if the deadline has passed
+   */
+  private void checkDeadline(String phase) {
+    if (deadline != null) {
+      deadline.check(phase);
+    }
+  }
+
+  private long getRemainingNanos() {
+    return (deadline != null) ? deadline.remainingNanos() : Long.MAX_VALUE;
+  }
+
+  /**
+   * Wait for the URI checks of the links built so far, rethrowing the error of the first link which failed, as it
+   * would have been thrown while building the document tree. The checks still pending after an error are cancelled.
+   */
+  private void awaitURIChecks() throws InvalidInputException, ProcessingException {
+    try {
+      for (Link link : links) {
+        link.awaitURICheck(getRemainingNanos(), TimeUnit.NANOSECONDS);
+      }
+    } finally {
+      for (Link link : links) {
+        link.cancelURICheck();
+      }
+      links.clear();
+    }
+  }
+
+  /**
+   * Check whether the message contains Freemarker interpolations (<i>${</i>, <i>#{</i>) or directives and macro
+   * calls (<i>&lt;#</i>, <i>&lt;/#</i>, <i>&lt;@</i>, <i>&lt;/@</i>). Messages without them are returned unchanged
+   * by Freemarker, so template expansion can be skipped.
+   */
+  static boolean hasTemplates(String message) {
+    int length = message.length();
+
+    for (int i = message.indexOf('{', 1); i > 0; i = message.indexOf('{', i + 1)) {
+      char prev = message.charAt(i - 1);
+      if (prev == '$' || prev == '#') {
+        return true;
+      }
+    }
+
+    for (int i = message.indexOf('<'); i >= 0; i = message.indexOf('<', i + 1)) {
+      int next = (i + 1 < length && message.charAt(i + 1) == '/') ? i + 2 : i + 1;
+      if (next < length && (message.charAt(next) == '#' || message.charAt(next) == '@')) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
   /**
    * Expand Freemarker templates.
    */
-  private String expandTemplates(String message, JsonNode entityJson) throws IOException, TemplateException {
-    // Read entityJSON data
+  static String expandTemplates(String message, JsonNode entityJson) throws IOException, TemplateException {
+    // Wrap entityJSON data, read lazily by the template
+    TemplateModel entityData = FREEMARKER.getObjectWrapper().wrap(entityJson);
     Map<String, Object> data = new HashMap<>();
-    data.put("data", MAPPER.convertValue(entityJson, Map.class));
-    data.put("entity", MAPPER.convertValue(entityJson, Map.class));
+    data.put("data", entityData);
+    data.put("entity", entityData);
 
     // Read MessageMLV2 template
     StringWriter sw = new StringWriter();
-    Template template = new Template("messageML", message, FREEMARKER);
+    Template template = getTemplate(message);
 
     // Expand the template
     template.process(data, sw);
@@ -197,6 +429,27 @@ public class MessageMLParser {
     return sw.toString();
   }
 
+  /**
+   * Retrieve the compiled Freemarker template for the message, compiling and caching it on first use. The cache is
+   * bounded by the total length of the cached messages, so a few large messages evict many small ones rather than
+   * pinning their templates in memory.
+   */
+  private static Template getTemplate(String message) throws IOException {
+    try {
+      return TEMPLATES.get(message, () -> new Template("messageML", message, FREEMARKER));
+    } catch (ExecutionException e) {
+      // Template compilation only throws IOException (including Freemarker's ParseException)
+      throw (IOException) e.getCause();
+    }
+  }
+
+  /**
+   * Retrieve hit, miss and eviction counters of the compiled template cache.
+   */
+  static CacheStats getTemplateCacheStats() {
+    return TEMPLATES.stats();
+  }
+
   /**
    * Parse the message string into its MessageML representation.
    */
@@ -204,10 +457,78 @@ public class MessageMLParser {
     validateMessageText(messageML);
 
     org.w3c.dom.Element docElement = parseDocument(messageML);
+    checkDeadline("parsing XML");
 
-    validateEntities(docElement, entityJson);
+    validateEntities(docElement, false);
 
-    switch (docElement.getTagName()) {
+    MessageML result = createMessageML(docElement.getTagName(), version);
+    try {
+      result.buildAll(this, docElement);
+    } catch (InvalidInputException | ProcessingException e) {
+      awaitURIChecks();
+      throw e;
+    }
+
+    awaitURIChecks();
+    resolveMentions();
+    result.validate();
+    checkDeadline("validating the message");
+
+    return result;
+  }
+
+  /**
+   * Parse the message string into its MessageML representation in a single pass over a StAX stream, without
+   * building an intermediate DOM tree.
+   */
+  private MessageML parseMessageMLStream(String messageML, String version) throws InvalidInputException,
+      ProcessingException {
+    validateMessageText(messageML);
+
+    XMLStreamReader reader = null;
+    try {
+      reader = STAX.createXMLStreamReader(new StringReader(messageML));
+
+      while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+        if (reader.getEventType() == XMLStreamConstants.DTD) {
+          throw new InvalidInputException("Invalid messageML: " + DOCTYPE_DISALLOWED);
+        }
+      }
+
+      Map<String, String> attributes = getAttributes(reader);
+      MessageML result = createMessageML(reader.getLocalName(), version);
+      try {
+        result.buildAll(this, reader, attributes);
+      } catch (InvalidInputException | ProcessingException | XMLStreamException e) {
+        awaitURIChecks();
+        throw e;
+      }
+
+      awaitURIChecks();
+      resolveMentions();
+
+      // Read the rest of the document to report trailing content
+      while (reader.hasNext()) {
+        reader.next();
+      }
+
+      result.validate();
+      checkDeadline("validating the message");
+
+      return result;
+
+    } catch (XMLStreamException e) {
+      throw new InvalidInputException("Invalid messageML: " + getStreamErrorMessage(e), e);
+    } finally {
+      closeQuietly(reader);
+    }
+  }
+
+  /**
+   * Create the root MessageML element and set the message format based on its tag.
+   */
+  private MessageML createMessageML(String tag, String version) throws InvalidInputException {
+    switch (tag) {
       case MessageML.MESSAGEML_TAG:
         this.messageFormat = FormatEnum.MESSAGEML;
         if (StringUtils.isBlank(version)) {
@@ -224,17 +545,54 @@ public class MessageMLParser {
             + " or <" + MessageML.PRESENTATIONML_TAG + ">");
     }
 
-    MessageML result = new MessageML(messageFormat, version);
-    result.buildAll(this, docElement);
-    result.validate();
+    return new MessageML(messageFormat, version, styles);
+  }
 
-    return result;
+  /**
+   * Read the attributes of the start tag the StAX stream is positioned at, sorted by name as in a DOM tree, and
+   * check whether <i>data-entity-id</i> attributes match EntityJSON entities.
+   */
+  public Map<String, String> getAttributes(XMLStreamReader reader) throws InvalidInputException {
+    Map<String, String> attributes = new TreeMap<>();
+
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      String name = reader.getAttributeLocalName(i);
+      String value = reader.getAttributeValue(i);
+
+      if (Entity.ENTITY_ID_ATTR.equals(name)) {
+        validateEntity(value);
+      }
+
+      attributes.put(name, value);
+    }
+
+    return attributes;
+  }
+
+  /**
+   * Strip the location prefix added by the StAX parser, to report the same messages as the DOM parser.
+   */
+  private static String getStreamErrorMessage(XMLStreamException e) {
+    String message = e.getMessage();
+    int index = (message != null) ? message.indexOf(STAX_MESSAGE_PREFIX) : -1;
+
+    return (index < 0) ? message : message.substring(index + STAX_MESSAGE_PREFIX.length());
+  }
+
+  private static void closeQuietly(XMLStreamReader reader) {
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (XMLStreamException e) {
+        // nothing to release
+      }
+    }
   }
 
   /**
    * Parse the message string into a DOM element tree.
    */
-  org.w3c.dom.Element parseDocument(String messageML) throws InvalidInputException, ProcessingException {
+  static org.w3c.dom.Element parseDocument(String messageML) throws InvalidInputException, ProcessingException {
     try {
       DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
       //XXE prevention as per https://www.owasp.org/index.php/XML_External_Entity_(XXE)_Prevention_Cheat_Sheet
@@ -248,9 +606,7 @@ public class MessageMLParser {
       dBuilder.setErrorHandler(new NullErrorHandler()); // default handler prints to stderr
       dBuilder.setEntityResolver(new NoOpEntityResolver());
 
-      StringReader sr = new StringReader(messageML);
-      ReaderInputStream ris = new ReaderInputStream(sr);
-      Document doc = dBuilder.parse(ris);
+      Document doc = dBuilder.parse(new InputSource(new StringReader(messageML)));
 
       doc.getDocumentElement().normalize();
 
@@ -263,233 +619,98 @@ public class MessageMLParser {
     }
   }
 
-  private boolean containsAttribute(String input, String attribute) {
-    String[] splitInput = input.split("\\s+");
-
-    return Arrays.asList(splitInput).contains(attribute);
-  }
-
-  private void removeAttribute(org.w3c.dom.Element element, String input, String attribute) {
-    if (element.hasAttribute(input)) {
-      String newAttribute = Arrays.stream(element.getAttribute(input).split("\\s+"))
-          .filter(it -> !it.equalsIgnoreCase(attribute))
-          .collect(Collectors.joining(" "));
+  private void updateAttribute(org.w3c.dom.Element element, Map<String, String> attributes, String input) {
+    String value = attributes.get(input);
 
-      if (StringUtils.isNotBlank(newAttribute)) {
-        element.setAttribute(input, newAttribute);
-      } else {
-        element.removeAttribute(input);
-      }
+    if (value == null) {
+      element.removeAttribute(input);
+    } else if (!value.equals(element.getAttribute(input))) {
+      element.setAttribute(input, value);
     }
   }
 
   /**
-   * Create a MessageML element based on the DOM element's name and attributes.
+   * Create a MessageML element based on the DOM element's name and attributes, checking whether its
+   * <i>data-entity-id</i> attribute matches an EntityJSON entity.
    */
   public Element createElement(org.w3c.dom.Element element, Element parent) throws
       InvalidInputException {
-    String tag = element.getNodeName();
-
-    if (Header.isHeaderElement(tag)) {
-      return new Header(parent, tag);
-    }
-
-    String elementClass = element.getAttribute(CLASS_ATTR);
-    switch (tag) {
-      case Chime.MESSAGEML_TAG:
-        validateFormat(tag);
-        return new Chime(parent, FormatEnum.MESSAGEML);
-
-      case Chime.PRESENTATIONML_TAG:
-        return new Chime(parent, FormatEnum.PRESENTATIONML);
+    Map<String, String> attributes = new HashMap<>();
+    NamedNodeMap attr = element.getAttributes();
 
-      case Paragraph.MESSAGEML_TAG:
-        return new Paragraph(parent);
+    for (int i = 0; i < attr.getLength(); i++) {
+      String name = attr.item(i).getNodeName();
+      String value = attr.item(i).getNodeValue();
 
-      case LineBreak.MESSAGEML_TAG:
-        return new LineBreak(parent);
-
-      case HorizontalRule.MESSAGEML_TAG:
-        return new HorizontalRule(parent);
-
-      case Span.MESSAGEML_TAG:
-        if (containsAttribute(elementClass, Entity.PRESENTATIONML_CLASS)) {
-            return createEntity(element, parent);
-        } else {
-            return new Span(parent);
-        }
-
-      case Div.MESSAGEML_TAG:
-        return createElementFromDiv(element, parent);
-
-      case FormElement.INPUT_TAG:
-        return createElementFromInput(element, parent);
-
-      case Bold.MESSAGEML_TAG:
-        return new Bold(parent);
-
-      case Italic.MESSAGEML_TAG:
-        return new Italic(parent);
-
-      case Preformatted.MESSAGEML_TAG:
-        return new Preformatted(parent);
-
-      case HashTag.MESSAGEML_TAG:
-        validateFormat(tag);
-        return new HashTag(parent, ++index);
-
-      case CashTag.MESSAGEML_TAG:
-        validateFormat(tag);
-        return new CashTag(parent, ++index);
-
-      case Mention.MESSAGEML_TAG:
-        validateFormat(tag);
-        return new Mention(parent, ++index, dataProvider);
-
-      case Link.MESSAGEML_TAG:
-        return new Link(parent, dataProvider);
-
-      case Image.MESSAGEML_TAG:
-        return new Image(parent);
-
-      case BulletList.MESSAGEML_TAG:
-        return new BulletList(parent);
-
-      case OrderedList.MESSAGEML_TAG:
-        return new OrderedList(parent);
-
-      case ListItem.MESSAGEML_TAG:
-        return new ListItem(parent);
-
-      case Table.MESSAGEML_TAG:
-        return new Table(parent);
-
-      case TableHeader.MESSAGEML_TAG:
-        return new TableHeader(parent);
-
-      case TableBody.MESSAGEML_TAG:
-        return new TableBody(parent);
-
-      case TableFooter.MESSAGEML_TAG:
-        return new TableFooter(parent);
-
-      case TableRow.MESSAGEML_TAG:
-        return new TableRow(parent);
-
-      case TableHeaderCell.MESSAGEML_TAG:
-        return new TableHeaderCell(parent);
-
-      case TableCell.MESSAGEML_TAG:
-        return new TableCell(parent);
-
-      case Card.MESSAGEML_TAG:
-        validateFormat(tag);
-        return new Card(parent, FormatEnum.MESSAGEML);
-
-      case Code.MESSAGEML_TAG:
-        return new Code(parent);
-
-      case CardHeader.MESSAGEML_TAG:
-        validateFormat(tag);
-        return new CardHeader(parent, FormatEnum.MESSAGEML);
-
-      case CardBody.MESSAGEML_TAG:
-        validateFormat(tag);
-        return new CardBody(parent, FormatEnum.MESSAGEML);
-
-      case Emoji.MESSAGEML_TAG:
-        return new Emoji(parent, ++index);
-
-      case Form.MESSAGEML_TAG:
-        return new Form(parent);
-
-      case Select.MESSAGEML_TAG:
-        return new Select(parent);
-
-      case Option.MESSAGEML_TAG:
-        return new Option(parent);
-
-      case Button.MESSAGEML_TAG:
-        return new Button(parent);
-        
-      case TextField.MESSAGEML_TAG:
-        return new TextField(parent);
-
-      case Checkbox.MESSAGEML_TAG:
-        return new Checkbox(parent, FormatEnum.MESSAGEML);
-
-      case Radio.MESSAGEML_TAG:
-        return new Radio(parent, FormatEnum.MESSAGEML);
+      if (Entity.ENTITY_ID_ATTR.equals(name)) {
+        validateEntity(value);
+      }
 
-      case PersonSelector.MESSAGEML_TAG:
-        return new PersonSelector(parent, FormatEnum.MESSAGEML);
+      attributes.put(name, value);
+    }
 
-      case DateSelector.MESSAGEML_TAG:
-        return new DateSelector(parent, FormatEnum.MESSAGEML);
+    String tag = element.getNodeName();
+    Element result = createElement(tag, attributes, parent);
 
-      case TextArea.MESSAGEML_TAG:
-        return new TextArea(parent);
+    // Shorthand classes and input types are consumed by the created element
+    String shorthandAttribute = elementFactories.getShorthandAttribute(tag);
+    if (shorthandAttribute != null) {
+      updateAttribute(element, attributes, shorthandAttribute);
+    }
 
-      case Password.MESSAGEML_TAG:
-        return new Password(parent);
+    return result;
+  }
 
-      default:
-        throw new InvalidInputException("Invalid MessageML content at element \"" + tag + "\"");
+  /**
+   * Create a MessageML element based on the tag name and attributes. Shorthand classes and input types identifying
+   * the element are removed from the attributes.
+   */
+  public Element createElement(String tag, Map<String, String> attributes, Element parent) throws
+      InvalidInputException {
+    checkDeadline("building the document tree");
+    checkStructureLimits(parent);
+
+    Element element = elementFactories.create(this, tag, attributes, parent);
+
+    if (element instanceof Entity && ++entityCount > limits.getMaxEntities()) {
+      throw new InvalidInputException("The message exceeds the maximum number of " + limits.getMaxEntities()
+          + " entities");
+    } else if ((element instanceof TableCell || element instanceof TableHeaderCell)
+        && ++tableCellCount > limits.getMaxTableCells()) {
+      throw new InvalidInputException("The message exceeds the maximum number of " + limits.getMaxTableCells()
+          + " table cells");
     }
+
+    return element;
   }
 
-  private Element createElementFromInput(org.w3c.dom.Element element, Element parent) throws InvalidInputException {
-    String elementType = element.getAttribute(FormElement.TYPE_ATTR);
+  /**
+   * Check that one more element can be added to the document tree under the given parent.
+   */
+  private void checkStructureLimits(Element parent) throws InvalidInputException {
+    if (++elementCount > limits.getMaxElements()) {
+      throw new InvalidInputException("The message exceeds the maximum number of " + limits.getMaxElements()
+          + " elements");
+    }
 
-    if (containsAttribute(elementType, TextField.PRESENTATIONML_INPUT_TYPE)) {
-      removeAttribute(element, FormElement.TYPE_ATTR, TextField.PRESENTATIONML_INPUT_TYPE);
-      return new TextField(parent);
-    } else if (containsAttribute(elementType, Password.PRESENTATIONML_INPUT_TYPE)) {
-        removeAttribute(element, FormElement.TYPE_ATTR, Password.PRESENTATIONML_INPUT_TYPE);
-        return new Password(parent);
-    } else if (containsAttribute(elementType, Checkbox.PRESENTATIONML_INPUT_TYPE)) {
-      return new Checkbox(parent, FormatEnum.PRESENTATIONML);
-    } else if (containsAttribute(elementType, Radio.PRESENTATIONML_INPUT_TYPE)) { 
-      return new Radio(parent, FormatEnum.PRESENTATIONML);
-    } else {
-      throw new InvalidInputException(String.format("The input type \"%s\" is not allowed on PresentationML", elementType));
-    }
-  }
-
-  private Element createElementFromDiv(org.w3c.dom.Element element, Element parent) throws InvalidInputException {
-    String elementClass = element.getAttribute(CLASS_ATTR);
-    if (containsAttribute(elementClass, Entity.PRESENTATIONML_CLASS)) {
-      return createEntity(element, parent);
-    } else if (containsAttribute(elementClass, Card.PRESENTATIONML_CLASS)) {
-      removeAttribute(element, CLASS_ATTR, Card.PRESENTATIONML_CLASS);
-      return new Card(parent, FormatEnum.PRESENTATIONML);
-    } else if (containsAttribute(elementClass, CardBody.PRESENTATIONML_CLASS)) {
-      removeAttribute(element, CLASS_ATTR, CardBody.PRESENTATIONML_CLASS);
-      return new CardBody(parent, FormatEnum.PRESENTATIONML);
-    } else if (containsAttribute(elementClass, CardHeader.PRESENTATIONML_CLASS)) {
-      removeAttribute(element, CLASS_ATTR, CardHeader.PRESENTATIONML_CLASS);
-      return new CardHeader(parent, FormatEnum.PRESENTATIONML);
-    } else if (containsAttribute(elementClass, PersonSelector.MESSAGEML_TAG)) {
-      removeAttribute(element, CLASS_ATTR, PersonSelector.MESSAGEML_TAG);
-      return new PersonSelector(parent, FormatEnum.PRESENTATIONML);
-    } else if (containsAttribute(elementClass, DateSelector.MESSAGEML_TAG)) {
-      removeAttribute(element, CLASS_ATTR, DateSelector.MESSAGEML_TAG);
-      return new DateSelector(parent, FormatEnum.PRESENTATIONML);
-    } else if (containsAttribute(elementClass, Checkbox.PRESENTATIONML_DIV_CLASS)) {
-      removeAttribute(element, CLASS_ATTR, Checkbox.PRESENTATIONML_DIV_CLASS);
-      return new Checkbox(parent, FormatEnum.PRESENTATIONML);
-    }  else if (containsAttribute(elementClass, Radio.PRESENTATIONML_DIV_CLASS)) {
-      removeAttribute(element, CLASS_ATTR, Radio.PRESENTATIONML_DIV_CLASS);
-      return new Radio(parent, FormatEnum.PRESENTATIONML);
-    } else {
-      return new Div(parent);
+    if (limits.getMaxDepth() != ParseLimits.UNLIMITED) {
+      int depth = 1;
+      for (Element ancestor = parent; ancestor != null; ancestor = ancestor.getParent()) {
+        if (++depth > limits.getMaxDepth()) {
+          throw new InvalidInputException("The message exceeds the maximum depth of " + limits.getMaxDepth()
+              + " nested elements");
+        }
+      }
     }
   }
 
-  private Element createEntity(org.w3c.dom.Element element, Element parent) throws InvalidInputException {
-    String entityId = element.getAttribute(Entity.ENTITY_ID_ATTR);
-    String tag = element.getNodeName();
-    List<JsonNode> entityList = entityJson.findValues(entityId);
+  /**
+   * Create a hashtag, cashtag or mention from the EntityJSON entity referenced by the element's
+   * <i>data-entity-id</i> attribute, or a plain element if the entity is of another type.
+   */
+  Element createEntity(String tag, Map<String, String> attributes, Element parent) throws InvalidInputException {
+    String entityId = attributes.getOrDefault(Entity.ENTITY_ID_ATTR, "");
+    List<JsonNode> entityList = getEntityIndex().findValues(entityId);
 
     if (entityList.isEmpty()) {
       throw new InvalidInputException("The attribute \"data-entity-id\" is required");
@@ -508,7 +729,7 @@ public class MessageMLParser {
       case HashTag.ENTITY_TYPE:
           return new HashTag(parent, tag, value.asText());
       case Mention.ENTITY_TYPE:
-          return new Mention(parent, tag, value.asLong(), dataProvider);
+          return deferUserLookup(new Mention(parent, tag, value.asLong(), dataProvider));
       default:
           break;
       }
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+/**
+ * Output format of a parsed message.
+ *
+ * Outputs are generated from the document tree when first retrieved from {@link ParseResult}. Outputs passed to
+ * {@link MessageMLEngine} are generated when the message is parsed instead, so that errors converting the message
+ * into them are reported by the parse() methods. MARKDOWN and ENTITIES are generated together.
+ */
+public enum OutputEnum {
+  PRESENTATIONML, ENTITYJSON, MARKDOWN, ENTITIES, TEXT
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+
+/**
+ * Limits on the size of the MessageML messages parsed by {@link MessageMLEngine}, protecting the threads parsing
+ * them from oversized input. A message crossing a limit is rejected with an {@link InvalidInputException} as soon
+ * as the limit is crossed: input sizes are checked before the message is parsed, the structure of the message as
+ * its document tree is built, and the size of its PresentationML as it is generated.
+ *
+ * All limits are disabled by default. Instances are not thread-safe; engines keep a copy of their limits.
+ */
+public class ParseLimits {
+  public static final int UNLIMITED = Integer.MAX_VALUE;
+
+  private int maxInputBytes = UNLIMITED;
+  private int maxDepth = UNLIMITED;
+  private int maxElements = UNLIMITED;
+  private int maxEntities = UNLIMITED;
+  private int maxTableCells = UNLIMITED;
+  private int maxPresentationMLBytes = UNLIMITED;
+
+  public ParseLimits() {
+  }
+
+  public ParseLimits(ParseLimits limits) {
+    this.maxInputBytes = limits.maxInputBytes;
+    this.maxDepth = limits.maxDepth;
+    this.maxElements = limits.maxElements;
+    this.maxEntities = limits.maxEntities;
+    this.maxTableCells = limits.maxTableCells;
+    this.maxPresentationMLBytes = limits.maxPresentationMLBytes;
+  }
+
+  /**
+   * Maximum size in UTF-8 bytes of the message and of its EntityJSON, each. Messages with Freemarker templates are
+   * checked again once the templates are expanded.
+   */
+  public int getMaxInputBytes() {
+    return maxInputBytes;
+  }
+
+  public void setMaxInputBytes(int maxInputBytes) {
+    this.maxInputBytes = checkLimit(maxInputBytes);
+  }
+
+  /**
+   * Maximum nesting depth of elements, the root element having a depth of 1.
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  public void setMaxDepth(int maxDepth) {
+    this.maxDepth = checkLimit(maxDepth);
+  }
+
+  /**
+   * Maximum number of elements, excluding the root element and text.
+   */
+  public int getMaxElements() {
+    return maxElements;
+  }
+
+  public void setMaxElements(int maxElements) {
+    this.maxElements = checkLimit(maxElements);
+  }
+
+  /**
+   * Maximum number of hashtags, cashtags, mentions and emojis.
+   */
+  public int getMaxEntities() {
+    return maxEntities;
+  }
+
+  public void setMaxEntities(int maxEntities) {
+    this.maxEntities = checkLimit(maxEntities);
+  }
+
+  /**
+   * Maximum number of table cells, including header cells, over all tables.
+   */
+  public int getMaxTableCells() {
+    return maxTableCells;
+  }
+
+  public void setMaxTableCells(int maxTableCells) {
+    this.maxTableCells = checkLimit(maxTableCells);
+  }
+
+  /**
+   * Maximum size in UTF-8 bytes of the PresentationML generated for the message. When set, PresentationML is
+   * generated while the message is parsed, along with the outputs requested from the engine, and the message is
+   * rejected as soon as its PresentationML crosses the limit.
+   */
+  public int getMaxPresentationMLBytes() {
+    return maxPresentationMLBytes;
+  }
+
+  public void setMaxPresentationMLBytes(int maxPresentationMLBytes) {
+    this.maxPresentationMLBytes = checkLimit(maxPresentationMLBytes);
+  }
+
+  /**
+   * Check that the text is no larger than the given number of bytes once encoded in UTF-8.
+   * @param description description of the text for the error message, e.g. "The message"
+   */
+  static void checkBytes(String text, int maxBytes, String description) throws InvalidInputException {
+    if (maxBytes != UNLIMITED && text != null && exceedsBytes(text, maxBytes)) {
+      throw new InvalidInputException(description + " exceeds the maximum size of " + maxBytes + " bytes");
+    }
+  }
+
+  /**
+   * Return whether the text is larger than the given number of bytes once encoded in UTF-8, as by
+   * {@link String#getBytes(java.nio.charset.Charset)}, counting its encoded length only as far as needed.
+   */
+  static boolean exceedsBytes(CharSequence text, int maxBytes) {
+    int length = text.length();
+
+    if (length > maxBytes) {
+      return true;
+    } else if ((long) length * 3 <= maxBytes) {
+      return false;
+    }
+
+    long bytes = 0;
+    for (int i = 0; i < length && bytes <= maxBytes; i++) {
+      char c = text.charAt(i);
+
+      if (c < 0x80) {
+        bytes++;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+        bytes += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        // Unpaired surrogates are encoded as '?'
+        bytes++;
+      } else {
+        bytes += 3;
+      }
+    }
+
+    return bytes > maxBytes;
+  }
+
+  private static int checkLimit(int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("Limits cannot be negative: " + limit);
+    }
+    return limit;
+  }
+}
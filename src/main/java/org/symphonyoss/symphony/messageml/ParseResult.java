@@ -0,0 +1,348 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.elements.PresentationTextSink;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The result of parsing a single message with {@link MessageMLEngine}. Holds the {@link MessageML} document tree
+ * and its EntityJSON, and converts them to output formats (PresentationML, Markdown and text).
+ *
+ * Each output is generated when first retrieved and memoised, unless it was requested from the engine up front.
+ * Outputs are generated by separate traversals of the document tree, except that Markdown and its legacy entities,
+ * which refer to positions in the Markdown text, share one, as do the text and its top-level nodes.
+ * Instances can be shared between threads. The EntityJSON returned by {@link #getEntityJson()} and the document
+ * tree returned by {@link #getMessageML()} are shared and must be treated as read-only; {@link #getEntities()}
+ * returns a new tree on each call.
+ */
+public final class ParseResult {
+  private static final int MAX_REUSED_WRITER_LENGTH = 64 * 1024;
+  private static final ThreadLocal<XmlWriter> WRITERS = ThreadLocal.withInitial(XmlWriter::new);
+  private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+  private final MessageML messageML;
+  private final ObjectNode entityData;
+
+  private volatile String presentationML;
+  private volatile ObjectNode entityJson;
+  private volatile MarkdownRenderer markdownRenderer;
+  private volatile String text;
+  private volatile List<String> textNodes;
+
+  /**
+   * @param entityData EntityJSON provided with the message, to be completed with the entities of the document tree
+   * @param outputs outputs to generate immediately
+   */
+  ParseResult(MessageML messageML, ObjectNode entityData, Set<OutputEnum> outputs) throws InvalidInputException {
+    this(messageML, entityData, outputs, ParseLimits.UNLIMITED);
+  }
+
+  /**
+   * @param entityData EntityJSON provided with the message, to be completed with the entities of the document tree
+   * @param outputs outputs to generate immediately
+   * @param maxPresentationMLBytes maximum size in UTF-8 bytes of the PresentationML of the message; when set,
+   * PresentationML is generated immediately along with the other outputs, and stops as soon as it exceeds the limit
+   * @throws InvalidInputException thrown if the PresentationML of the message exceeds its maximum size
+   */
+  ParseResult(MessageML messageML, ObjectNode entityData, Set<OutputEnum> outputs, int maxPresentationMLBytes)
+      throws InvalidInputException {
+    this.messageML = messageML;
+    this.entityData = entityData;
+
+    if (!outputs.isEmpty() || maxPresentationMLBytes != ParseLimits.UNLIMITED) {
+      buildOutputs(outputs, maxPresentationMLBytes);
+    }
+  }
+
+  /**
+   * Generate the given outputs, each in its own traversal of the document tree: a traversal per output is cheaper
+   * than passing the elements to all outputs in one traversal.
+   */
+  private void buildOutputs(Set<OutputEnum> outputs, int maxPresentationMLBytes) throws InvalidInputException {
+    if (outputs.contains(OutputEnum.PRESENTATIONML) || maxPresentationMLBytes != ParseLimits.UNLIMITED) {
+      XmlWriter out = WRITERS.get();
+      out.reset();
+      out.setMaxBytes(maxPresentationMLBytes);
+
+      try {
+        messageML.asPresentationML(out);
+        presentationML = out.toString();
+      } catch (XmlWriter.LimitExceeded e) {
+        throw new InvalidInputException("The PresentationML of the message exceeds the maximum size of "
+            + maxPresentationMLBytes + " bytes");
+      } finally {
+        release(out);
+      }
+    }
+    if (outputs.contains(OutputEnum.TEXT)) {
+      PresentationTextSink out = new PresentationTextSink();
+      out.write(messageML);
+      textNodes = out.getTextNodes();
+      text = out.getText();
+    }
+    if (outputs.contains(OutputEnum.MARKDOWN) || outputs.contains(OutputEnum.ENTITIES)) {
+      buildMarkdown();
+    }
+    if (outputs.contains(OutputEnum.ENTITYJSON)) {
+      buildEntityJson();
+    }
+  }
+
+  /**
+   * Retrieve the MessageML document tree.
+   */
+  public MessageML getMessageML() {
+    return messageML;
+  }
+
+  /**
+   * Retrieve a string representation of the message in PresentationML.
+   */
+  public String getPresentationML() {
+    // Generating the output twice on concurrent first calls is harmless, it is the same string
+    if (presentationML == null) {
+      presentationML = buildPresentationML();
+    }
+    return presentationML;
+  }
+
+  private String buildPresentationML() {
+    XmlWriter out = printPresentationML();
+    String presentationML = out.toString();
+    release(out);
+
+    return presentationML;
+  }
+
+  /**
+   * Retrieve the PresentationML representation of the message encoded in UTF-8.
+   */
+  public byte[] getPresentationMLBytes() {
+    String presentationML = this.presentationML;
+
+    if (presentationML != null) {
+      return presentationML.getBytes(StandardCharsets.UTF_8);
+    }
+
+    XmlWriter out = printPresentationML();
+    byte[] bytes = out.toByteArray();
+    release(out);
+
+    return bytes;
+  }
+
+  /**
+   * Write the PresentationML representation of the message to the provided stream, encoded in UTF-8. The stream is
+   * flushed but not closed.
+   * @throws IOException thrown on errors writing to the stream
+   */
+  public void writePresentationML(OutputStream stream) throws IOException {
+    String presentationML = this.presentationML;
+
+    if (presentationML != null) {
+      stream.write(presentationML.getBytes(StandardCharsets.UTF_8));
+    } else {
+      XmlWriter out = printPresentationML();
+      try {
+        out.writeTo(stream);
+      } finally {
+        release(out);
+      }
+    }
+
+    stream.flush();
+  }
+
+  /**
+   * Append the PresentationML representation of the message to the provided output. A {@link Writer} is flushed
+   * but not closed.
+   * @throws IOException thrown on errors writing to the output
+   */
+  public void writePresentationML(Appendable appendable) throws IOException {
+    String presentationML = this.presentationML;
+
+    if (presentationML != null) {
+      appendable.append(presentationML);
+    } else {
+      XmlWriter out = printPresentationML();
+      try {
+        out.writeTo(appendable);
+      } finally {
+        release(out);
+      }
+    }
+
+    if (appendable instanceof Writer) {
+      ((Writer) appendable).flush();
+    }
+  }
+
+  /**
+   * Print the PresentationML representation of the message to the writer of the current thread, which must be
+   * released after use.
+   */
+  private XmlWriter printPresentationML() {
+    XmlWriter out = WRITERS.get();
+    out.reset();
+
+    messageML.asPresentationML(out);
+
+    return out;
+  }
+
+  /**
+   * Stop reusing the writer of the current thread if it has grown too large to be kept around.
+   */
+  private static void release(XmlWriter out) {
+    if (out.length() > MAX_REUSED_WRITER_LENGTH) {
+      WRITERS.remove();
+    }
+  }
+
+  /**
+   * Retrieve a JSON representation of entity data (EntityJSON). The EntityJSON is built once and the same node is
+   * returned to every caller, so it must be treated as read-only; copy it with {@link ObjectNode#deepCopy()} to
+   * modify it.
+   */
+  public ObjectNode getEntityJson() {
+    return buildEntityJson();
+  }
+
+  private ObjectNode buildEntityJson() {
+    // Adding the message entities modifies the provided EntityJSON, so this must only happen once
+    if (entityJson == null) {
+      synchronized (this) {
+        if (entityJson == null) {
+          entityJson = messageML.asEntityJson(entityData);
+        }
+      }
+    }
+    return entityJson;
+  }
+
+  /**
+   * Retrieve a string representation of the message in Markdown.
+   * @throws InvalidInputException thrown if the message cannot be converted to Markdown
+   */
+  public String getMarkdown() throws InvalidInputException {
+    return buildMarkdown().getText();
+  }
+
+  /**
+   * Retrieve message entities (tags, mentions, urls) in the legacy JSON format.
+   * @throws InvalidInputException thrown if the message cannot be converted to Markdown
+   */
+  public JsonNode getEntities() throws InvalidInputException {
+    return buildMarkdown().getJson();
+  }
+
+  /**
+   * Write message entities (tags, mentions, urls) in the legacy JSON format to the provided stream encoded in UTF-8,
+   * without building the JSON tree returned by {@link #getEntities()}. The stream is not closed.
+   * @throws InvalidInputException thrown if the message cannot be converted to Markdown
+   * @throws IOException thrown on errors writing to the stream
+   */
+  public void writeEntities(OutputStream stream) throws InvalidInputException, IOException {
+    try (JsonGenerator generator = JSON_FACTORY.createGenerator(stream)) {
+      writeEntities(generator);
+    }
+  }
+
+  /**
+   * Write message entities (tags, mentions, urls) in the legacy JSON format to the provided generator, without
+   * building the JSON tree returned by {@link #getEntities()}.
+   * @throws InvalidInputException thrown if the message cannot be converted to Markdown
+   * @throws IOException thrown on errors writing to the generator
+   */
+  public void writeEntities(JsonGenerator generator) throws InvalidInputException, IOException {
+    buildMarkdown().writeJson(generator);
+  }
+
+  private MarkdownRenderer buildMarkdown() throws InvalidInputException {
+    if (markdownRenderer == null) {
+      markdownRenderer = new MarkdownRenderer(messageML);
+    }
+    return markdownRenderer;
+  }
+
+  /**
+   * Retrieve a string representation of the message by getting the values of
+   * its PresentationML elements.
+   * This method returns the text content of the top-level PresentationML document tree, as
+   * {@link org.w3c.dom.Node#getTextContent()} would for the parsed document, read directly from the document tree.
+   */
+  public String getText() throws InvalidInputException, ProcessingException {
+    return buildText();
+  }
+
+  private String buildText() {
+    if (text == null) {
+      text = messageML.asPresentationText();
+    }
+    return text;
+  }
+
+  /**
+   * Retrieve a string representation of the message by getting the values of
+   * its PresentationML elements.
+   * This method returns the text content of each individual top-level node of the PresentationML document tree,
+   * separated by a single space
+   * @param preserveWhitespace if false, trims the leading and trailing whitespce of each element
+   */
+  public String getText(boolean preserveWhitespace) throws InvalidInputException, ProcessingException {
+    StringBuilder sb = new StringBuilder();
+
+    List<String> nodes = buildTextNodes();
+
+    for (int i = 0; i < nodes.size(); i++) {
+      String text = (preserveWhitespace) ? nodes.get(i) : nodes.get(i).trim();
+
+      // Prepend space unless we're at the first node or we trim whitespace and current text is blank
+      if (i > 0 && StringUtils.isNotEmpty(text)) {
+        sb.append(" ");
+      }
+
+      sb.append(text);
+    }
+
+    return sb.toString();
+  }
+
+  private List<String> buildTextNodes() {
+    if (textNodes == null) {
+      textNodes = messageML.asPresentationTextNodes();
+    }
+    return textNodes;
+  }
+}
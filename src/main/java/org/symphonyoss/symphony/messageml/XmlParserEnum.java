@@ -0,0 +1,27 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+/**
+ * XML parser used to read MessageML input.
+ *
+ * DOM parses the message into a document tree before converting it into MessageML elements. STAX converts the
+ * message into MessageML elements in a single pass over the input stream, without an intermediate document tree.
+ */
+public enum XmlParserEnum {
+  DOM, STAX
+}
@@ -19,6 +19,7 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.commonmark.node.Node;
 import org.commonmark.node.StrongEmphasis;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 
 /**
  * Class representing bold text.
@@ -39,6 +40,11 @@ public class Bold extends Element {
     return new StrongEmphasis(MARKDOWN);
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderDelimited(this, MARKDOWN);
+  }
+
   @Override
   public void validate() throws InvalidInputException {
     assertPhrasingContent();
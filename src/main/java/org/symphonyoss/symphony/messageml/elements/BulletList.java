@@ -18,8 +18,7 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-
-import java.util.Collections;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 
 /**
  * Class representing a bulleted list container.
@@ -29,6 +28,8 @@ import java.util.Collections;
  */
 public class BulletList extends Element {
   public static final String MESSAGEML_TAG = "ul";
+  private static final ContentModel PERMITTED_CHILDREN = ContentModel.of(ListItem.class);
+  private static final char MARKDOWN_MARKER = '-';
 
   public BulletList(Element parent) {
     super(parent, MESSAGEML_TAG);
@@ -37,15 +38,20 @@ public class BulletList extends Element {
   @Override
   public Node asMarkdown() {
     org.commonmark.node.BulletList ul = new org.commonmark.node.BulletList();
-    ul.setBulletMarker('-');
+    ul.setBulletMarker(MARKDOWN_MARKER);
     ul.setTight(false);
     return ul;
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderBulletList(this, MARKDOWN_MARKER);
+  }
+
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Collections.<Class<? extends Element>>singleton(ListItem.class));
+    assertContentModel(PERMITTED_CHILDREN);
   }
 
 }
@@ -2,14 +2,13 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.apache.commons.lang3.StringUtils;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.ButtonNode;
 
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
-
 /**
  * Class representing a Symphony Elements button
  *
@@ -18,6 +17,7 @@ import java.util.Set;
  */
 public class Button extends FormElement {
   public static final String MESSAGEML_TAG = "button";
+  private static final ContentModel PERMITTED_CHILDREN = ContentModel.of(TextNode.class);
 
   private static final Set<String> VALID_CLASSES = new HashSet<>(Arrays.asList("primary", "secondary",
           "primary-destructive", "secondary-destructive"));
@@ -29,22 +29,22 @@ public class Button extends FormElement {
   }
 
   @Override
-  public void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  public void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case NAME_ATTR:
-        setAttribute(NAME_ATTR, getStringAttribute(item).toLowerCase());
+        setAttribute(NAME_ATTR, value.toLowerCase());
         break;
 
       case TYPE_ATTR:
-        setAttribute(TYPE_ATTR, getStringAttribute(item).toLowerCase());
+        setAttribute(TYPE_ATTR, value.toLowerCase());
         break;
 
       case CLASS_ATTR:
-        setAttribute(CLASS_ATTR, getStringAttribute(item).toLowerCase());
+        setAttribute(CLASS_ATTR, value.toLowerCase());
         break;
 
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName()
+        throw new InvalidInputException("Attribute \"" + name
                 + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
@@ -54,6 +54,11 @@ public class Button extends FormElement {
     return new ButtonNode();
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderButton(this);
+  }
+
   @Override
   public void validate() throws InvalidInputException {
     super.validate();
@@ -72,6 +77,6 @@ public class Button extends FormElement {
     if (type.equals("action") && StringUtils.isBlank(name)) {
       throw new InvalidInputException("Attribute \"name\" is required for generic action buttons");
     }
-    assertContentModel(Collections.singleton(TextNode.class));
+    assertContentModel(PERMITTED_CHILDREN);
   }
 }
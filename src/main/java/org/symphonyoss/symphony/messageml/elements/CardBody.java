@@ -19,7 +19,8 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.commonmark.node.Node;
 import org.commonmark.node.Paragraph;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 import java.util.Collections;
 
@@ -32,6 +33,7 @@ public class CardBody extends Element {
 
   public static final String MESSAGEML_TAG = "body";
   public static final String PRESENTATIONML_CLASS = "cardBody";
+  private static final ContentModel PERMITTED_PARENTS = ContentModel.of(Card.class);
   private static final String PRESENTATIONML_TAG = "div";
 
   public CardBody(Element parent, FormatEnum format) {
@@ -39,20 +41,15 @@ public class CardBody extends Element {
   }
 
   @Override
-  void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    throw new InvalidInputException("Attribute \"" + item.getNodeName()
+  void buildAttribute(String name, String value) throws InvalidInputException {
+    throw new InvalidInputException("Attribute \"" + name
         + "\" is not allowed in \"" + getMessageMLTag() + "\"");
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  boolean startPresentationML(XmlWriter out) {
     out.openElement(PRESENTATIONML_TAG, Collections.singletonMap(CLASS_ATTR, PRESENTATIONML_CLASS));
-
-    for (Element child : getChildren()) {
-      child.asPresentationML(out);
-    }
-
-    out.closeElement();
+    return true;
   }
 
   @Override
@@ -60,10 +57,15 @@ public class CardBody extends Element {
     return new Paragraph();
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderParagraph(this);
+  }
+
   @Override
   void validate() throws InvalidInputException {
     assertNoAttributes();
-    assertParent(Collections.singleton(Card.class));
+    assertParent(PERMITTED_PARENTS);
   }
 
 }
@@ -19,7 +19,8 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.commonmark.node.Node;
 import org.commonmark.node.Paragraph;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 import java.util.Collections;
 
@@ -40,20 +41,15 @@ public class CardHeader extends Element {
   }
 
   @Override
-  void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    throw new InvalidInputException("Attribute \"" + item.getNodeName()
+  void buildAttribute(String name, String value) throws InvalidInputException {
+    throw new InvalidInputException("Attribute \"" + name
         + "\" is not allowed in \"" + getMessageMLTag() + "\"");
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  boolean startPresentationML(XmlWriter out) {
     out.openElement(PRESENTATIONML_TAG, Collections.singletonMap(CLASS_ATTR, PRESENTATIONML_CLASS));
-
-    for (Element child : getChildren()) {
-      child.asPresentationML(out);
-    }
-
-    out.closeElement();
+    return true;
   }
 
   @Override
@@ -61,6 +57,11 @@ public class CardHeader extends Element {
     return new Paragraph();
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderParagraph(this);
+  }
+
   @Override
   void validate() throws InvalidInputException {
     assertNoAttributes();
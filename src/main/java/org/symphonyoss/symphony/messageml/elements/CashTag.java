@@ -17,8 +17,14 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.commonmark.node.Node;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.KeywordNode;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Class representing a convenience element for a cash tag. Translated to an anchor element.
  *
@@ -32,6 +38,8 @@ public class CashTag extends Keyword {
   public static final String CASHTAG_PATTERN = "^(?!(?:[0-9,.]+$))(?!(?:[0-9,.]+(m|b|t|mm|bn|M|B|T|MM|BN|\\+|\\-|\\)|\\(|\\[|\\]|\\*|\\/)(\\s|$)))[^\\s\\$]*[^\\s!@#$%^&*()+=<>,.\\/?`~:;'\"\\\\|\\-]+[^\\s\\$]*$";
   private static final String ENTITY_SUBTYPE = "org.symphonyoss.fin.security.id.ticker";
   private static final String ENTITY_VERSION = "1.0";
+  private static final Set<String> AMOUNT_SUFFIXES = new HashSet<>(Arrays.asList("m", "b", "t", "mm", "bn", "M", "B",
+      "T", "MM", "BN", "+", "-", ")", "(", "[", "]", "*", "/"));
 
   public CashTag(Element parent, int entityIndex) {
     super(parent, MESSAGEML_TAG, DEFAULT_PRESENTATIONML_TAG, FormatEnum.MESSAGEML);
@@ -59,6 +67,11 @@ public class CashTag extends Keyword {
     return new KeywordNode(PREFIX, getTag());
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderKeyword(this, PREFIX, getTag());
+  }
+
   @Override
   public String toString() {
     return "CashTag(" + getTag() + ")";
@@ -69,6 +82,52 @@ public class CashTag extends Keyword {
     return CASHTAG_PATTERN;
   }
 
+  /**
+   * A cashtag is made of characters other than whitespace and "$", at least one of which is not punctuation. It
+   * cannot be an amount: a number, optionally followed by a unit or an operator. Checked in a single pass, as the
+   * lookaheads of {@link #CASHTAG_PATTERN} backtrack over the tag.
+   */
+  @Override
+  boolean matchesTagPattern(String tag) {
+    boolean hasWordCharacter = false;
+
+    for (int i = 0; i < tag.length(); i++) {
+      char c = tag.charAt(i);
+
+      if (isWhitespace(c) || c == '$') {
+        return false;
+      }
+      hasWordCharacter |= !isPunctuation(c);
+    }
+
+    return hasWordCharacter && !isAmount(tag);
+  }
+
+  private static boolean isAmount(String tag) {
+    int end = tag.length();
+
+    // The "$" anchor of the lookaheads also matches before a line terminator ending the tag
+    if (end > 0 && isLineTerminator(tag.charAt(end - 1))) {
+      end--;
+    }
+
+    int digits = 0;
+    while (digits < end && isNumberCharacter(tag.charAt(digits))) {
+      digits++;
+    }
+
+    return digits > 0
+        && (digits == end || (end - digits <= 2 && AMOUNT_SUFFIXES.contains(tag.substring(digits, end))));
+  }
+
+  private static boolean isNumberCharacter(char c) {
+    return (c >= '0' && c <= '9') || c == ',' || c == '.';
+  }
+
+  private static boolean isLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
   @Override
   protected String getEntitySubType() {
     return ENTITY_SUBTYPE;
@@ -17,7 +17,7 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 /**
  * Class representing a convenience element for a chime. Translated to an audio element.
@@ -43,10 +43,10 @@ public class Chime extends Element {
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_SRC:
-        if (!getStringAttribute(item).equalsIgnoreCase(SRC)) {
+        if (!value.equalsIgnoreCase(SRC)) {
           throw new InvalidInputException("Attribute \"" + ATTR_SRC
               + "\" value needs to be \"" + SRC + "\"");
         }
@@ -54,15 +54,16 @@ public class Chime extends Element {
       case ATTR_AUTOPLAY:
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName()
+        throw new InvalidInputException("Attribute \"" + name
             + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  boolean startPresentationML(XmlWriter out) {
     out.printElement(PRESENTATIONML_TAG, null, ATTR_SRC, SRC,
         ATTR_AUTOPLAY, "true");
+    return false;
   }
 
   @Override
@@ -19,6 +19,7 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.commonmark.node.FencedCodeBlock;
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 
 /**
  * Class representing a block container for block or inline content.
@@ -45,6 +46,11 @@ public class Code extends Element {
     return node;
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderCode(this, MARKDOWN_DELIMITER_CHAR, MARKDOWN_DELIMITER_LENGTH);
+  }
+
   @Override
   public void validate() throws InvalidInputException {
     assertNoAttributes();
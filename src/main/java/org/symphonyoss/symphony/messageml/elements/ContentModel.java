@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.elements;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A set of element classes permitted as children or parents of an element. Each element class is given a kind id on
+ * first use, so that checking an element against the set is a single bit test. Subclasses of the listed classes
+ * defined in this package are not included, while custom elements defined elsewhere, e.g. registered with an
+ * {@link org.symphonyoss.symphony.messageml.ElementFactoryRegistry}, are permitted wherever the built-in element
+ * they extend is.
+ */
+final class ContentModel {
+  private static final String PACKAGE = ContentModel.class.getPackage().getName();
+  private static final AtomicInteger KIND_COUNT = new AtomicInteger();
+  private static final ClassValue<Integer> KINDS = new ClassValue<Integer>() {
+    @Override
+    protected Integer computeValue(Class<?> type) {
+      // Custom elements share the kind of their superclass, up to the built-in element they extend
+      if (!isBuiltIn(type) && Element.class.isAssignableFrom(type.getSuperclass())) {
+        return get(type.getSuperclass());
+      }
+      return KIND_COUNT.getAndIncrement();
+    }
+  };
+
+  static final ContentModel PHRASING = of(TextNode.class, Link.class, Chime.class, Bold.class, Italic.class,
+      Image.class, LineBreak.class, Span.class, Emoji.class, HashTag.class, CashTag.class, Mention.class);
+
+  private final List<Class<? extends Element>> classes;
+  private final BitSet kinds = new BitSet();
+
+  @SafeVarargs
+  private ContentModel(Class<? extends Element>... classes) {
+    this.classes = Collections.unmodifiableList(Arrays.asList(classes));
+
+    for (Class<? extends Element> type : classes) {
+      kinds.set(kindOf(type));
+    }
+  }
+
+  @SafeVarargs
+  static ContentModel of(Class<? extends Element>... classes) {
+    return new ContentModel(classes);
+  }
+
+  /**
+   * Return the kind id of the element class, which is the kind id of the built-in class it extends for a custom
+   * element.
+   */
+  static int kindOf(Class<? extends Element> type) {
+    return KINDS.get(type);
+  }
+
+  /**
+   * Whether the element class is defined in this package rather than being a custom element.
+   */
+  private static boolean isBuiltIn(Class<?> type) {
+    String name = type.getName();
+    return name.lastIndexOf('.') == PACKAGE.length() && name.startsWith(PACKAGE);
+  }
+
+  /**
+   * Whether the class of the element, or the built-in element class a custom element extends, is one of the
+   * permitted classes.
+   */
+  boolean contains(Element element) {
+    return kinds.get(element.getKind());
+  }
+
+  /**
+   * Return the permitted classes, in the order they were given.
+   */
+  List<Class<? extends Element>> getClasses() {
+    return classes;
+  }
+}
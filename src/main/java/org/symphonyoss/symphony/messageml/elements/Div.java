@@ -20,6 +20,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.commonmark.node.Node;
 import org.commonmark.node.Paragraph;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 
 /**
  * Class representing a block container for block or inline content.
@@ -38,22 +39,22 @@ public class Div extends Element {
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_ENTITY_ID:
-        setAttribute(ATTR_ENTITY_ID, getStringAttribute(item));
+        setAttribute(ATTR_ENTITY_ID, value);
         break;
 
       case ATTR_ICON_SRC:
-        setAttribute(ATTR_ICON_SRC, getStringAttribute(item));
+        setAttribute(ATTR_ICON_SRC, value);
         break;
 
       case ATTR_ACCENT_COLOR:
-        setAttribute(ATTR_ACCENT_COLOR, getStringAttribute(item));
+        setAttribute(ATTR_ACCENT_COLOR, value);
         break;
 
       default:
-        super.buildAttribute(item);
+        super.buildAttribute(name, value);
     }
   }
 
@@ -62,6 +63,11 @@ public class Div extends Element {
     return new Paragraph();
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderParagraph(this);
+  }
+
   @Override
   public ObjectNode asEntityJson(ObjectNode parent) {
     String entityId = getAttribute(ATTR_ENTITY_ID);
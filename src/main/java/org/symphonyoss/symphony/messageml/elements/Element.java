@@ -21,22 +21,33 @@ import org.apache.commons.lang3.StringUtils;
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.MessageMLContext;
 import org.symphonyoss.symphony.messageml.MessageMLParser;
+import org.symphonyoss.symphony.messageml.exceptions.DeadlineExceededException;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.NodeList;
 import org.w3c.dom.Text;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
@@ -59,6 +70,7 @@ public abstract class Element {
   private final Map<String, String> attributes = new LinkedHashMap<>();
   private final List<Element> children = new ArrayList<>();
   private final Element parent;
+  private final int kind = ContentModel.kindOf(getClass());
   private String messageMLTag;
 
   Element(Element parent) {
@@ -97,21 +109,34 @@ public abstract class Element {
    * Parse a DOM attribute into MessageML element properties.
    */
   void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+    buildAttribute(item.getNodeName(), item.getNodeValue());
+  }
+
+  /**
+   * Parse an attribute name and value into MessageML element properties.
+   */
+  void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case CLASS_ATTR:
-        attributes.put(CLASS_ATTR, getStringAttribute(item));
+        attributes.put(CLASS_ATTR, value);
         break;
       case STYLE_ATTR:
-        final String styleAttribute = getStringAttribute(item);
-        Styles.validate(styleAttribute);
-        attributes.put(STYLE_ATTR, styleAttribute);
+        getStyles().check(value);
+        attributes.put(STYLE_ATTR, value);
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName()
+        throw new InvalidInputException("Attribute \"" + name
             + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
 
+  /**
+   * Get the checker of style attributes of the message the element belongs to.
+   */
+  Styles getStyles() {
+    return (parent != null) ? parent.getStyles() : Styles.UNCACHED;
+  }
+
   /**
    * Build a text node or a MessageML element based on the provided DOM node.
    */
@@ -146,9 +171,115 @@ public abstract class Element {
    * Build the text content of the element.
    */
   void buildText(Text text) {
+    buildText(text.getTextContent());
+  }
+
+  /**
+   * Build the text content of the element.
+   */
+  void buildText(String text) {
     addChild(new TextNode(this, text)); // do not escape here
   }
 
+  /**
+   * Process a StAX stream positioned at the element's start tag, descending into its children, and construct the
+   * output MessageML tree. The stream is consumed up to and including the matching end tag.
+   * @param attributes the element's attributes, as read by {@link MessageMLParser#getAttributes(XMLStreamReader)}
+   */
+  public void buildAll(MessageMLParser context, XMLStreamReader reader, Map<String, String> attributes)
+      throws InvalidInputException, ProcessingException, XMLStreamException {
+    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+      buildAttribute(attribute.getKey(), attribute.getValue());
+    }
+
+    buildNodes(context, reader);
+  }
+
+  /**
+   * Build text nodes and MessageML elements from the StAX stream until the end tag of the element is reached.
+   * Adjacent character events are merged into a single text node, as in a normalized DOM tree.
+   */
+  void buildNodes(MessageMLParser context, XMLStreamReader reader) throws InvalidInputException,
+      ProcessingException, XMLStreamException {
+    StringBuilder text = new StringBuilder();
+
+    while (true) {
+      int event = reader.next();
+
+      if (text.length() > 0 && event != XMLStreamConstants.CHARACTERS && event != XMLStreamConstants.SPACE) {
+        buildText(text.toString());
+        text.setLength(0);
+      }
+
+      switch (event) {
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.SPACE:
+          text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+          break;
+
+        case XMLStreamConstants.START_ELEMENT:
+          buildElement(context, reader);
+          break;
+
+        case XMLStreamConstants.END_ELEMENT:
+          return;
+
+        case XMLStreamConstants.CDATA:
+          throw new InvalidInputException("Invalid element \"#cdata-section\"");
+
+        case XMLStreamConstants.COMMENT:
+          throw new InvalidInputException("Invalid element \"#comment\"");
+
+        case XMLStreamConstants.PROCESSING_INSTRUCTION:
+          throw new InvalidInputException("Invalid element \"" + reader.getPITarget() + "\"");
+
+        case XMLStreamConstants.ENTITY_REFERENCE:
+          throw new InvalidInputException("Invalid element \"" + reader.getLocalName() + "\"");
+
+        default:
+          throw new ProcessingException("Internal error processing document tree: unexpected XML event " + event);
+      }
+    }
+  }
+
+  /**
+   * Build a MessageML element based on the start tag the StAX stream is positioned at and descend into its children.
+   */
+  private void buildElement(MessageMLParser context, XMLStreamReader reader) throws InvalidInputException,
+      ProcessingException, XMLStreamException {
+    Map<String, String> attributes = context.getAttributes(reader);
+    Element child = context.createElement(reader.getLocalName(), attributes, this);
+    child.buildAll(context, reader, attributes);
+    child.validate();
+    addChild(child);
+  }
+
+  /**
+   * Skip the remaining content of the element the StAX stream is positioned in, up to and including its end tag.
+   * Attributes of skipped elements are still read, so that their entity references are checked.
+   */
+  void skipNodes(MessageMLParser context, XMLStreamReader reader) throws InvalidInputException, XMLStreamException {
+    int depth = 0;
+
+    while (true) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          context.getAttributes(reader);
+          depth++;
+          break;
+
+        case XMLStreamConstants.END_ELEMENT:
+          if (depth-- == 0) {
+            return;
+          }
+          break;
+
+        default:
+          break;
+      }
+    }
+  }
+
   /**
    * Traverse the element and its children to construct its representation as a Markdown tree.
    */
@@ -188,15 +319,40 @@ public abstract class Element {
   }
 
   /**
-   * Print a PresentationML representation of the element and its children to the provided PrintStream.
+   * Render the Markdown representation of the element and its children to the provided renderer, as the
+   * {@link Node} returned by {@link #asMarkdown()} would be rendered, without creating it.
    */
-  void asPresentationML(XmlPrintStream out) {
-    out.openElement(getMessageMLTag(), getAttributes());
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderChildren(this);
+  }
 
-    for (Element child : getChildren()) {
-      child.asPresentationML(out);
+  /**
+   * Print a PresentationML representation of the element and its children to the provided XmlWriter.
+   */
+  public void asPresentationML(XmlWriter out) {
+    if (startPresentationML(out)) {
+      for (Element child : children) {
+        child.asPresentationML(out);
+      }
+
+      endPresentationML(out);
     }
+  }
 
+  /**
+   * Print the start of the PresentationML representation of the element, before its children.
+   * @return true if the children of the element and its end are to be printed, false if the element is printed
+   * completely
+   */
+  boolean startPresentationML(XmlWriter out) {
+    out.openElement(getMessageMLTag(), getAttributes());
+    return true;
+  }
+
+  /**
+   * Print the end of the PresentationML representation of the element, after its children.
+   */
+  void endPresentationML(XmlWriter out) {
     out.closeElement();
   }
 
@@ -214,71 +370,105 @@ public abstract class Element {
   }
 
   /**
-   * Return the EntityJSON representation of the node.
+   * Return the text content of the PresentationML representation of the element, as read from the parsed
+   * PresentationML document with {@link org.w3c.dom.Node#getTextContent()}.
    */
-  ObjectNode asEntityJson(ObjectNode parent) {
-    return null;
+  public String asPresentationText() {
+    PresentationTextSink out = new PresentationTextSink();
+    buildPresentationText(out);
+    return out.getText();
   }
 
   /**
-   * Check the syntax and contents of the element.
+   * Append the text content of the PresentationML representation of the element and its children to the provided
+   * sink, descending into its children.
    */
-  void validate() throws InvalidInputException {
+  void buildPresentationText(PresentationTextSink out) {
+    if (startPresentationText(out)) {
+      for (Element child : children) {
+        child.buildPresentationText(out);
+      }
+
+      endPresentationText(out);
+    }
+  }
+
+  /**
+   * Append the text content of the PresentationML representation of the element preceding its children.
+   * @return true if the text of the children of the element and its end are to be appended, false if the text of
+   * the element is appended completely
+   */
+  boolean startPresentationText(PresentationTextSink out) {
+    return true;
+  }
+
+  /**
+   * Append the text content of the PresentationML representation of the element following its children.
+   */
+  void endPresentationText(PresentationTextSink out) {
   }
 
   /**
-   * Get a DOM attribute as a String value.
+   * Whether the element is printed as character data rather than as an element in PresentationML.
    */
-  String getStringAttribute(org.w3c.dom.Node attribute) {
-    return attribute.getTextContent();
+  boolean isPresentationText() {
+    return false;
   }
 
   /**
-   * Get a DOM attribute as a Long value.
+   * Return the EntityJSON representation of the node.
    */
-  Long getLongAttribute(org.w3c.dom.Node attribute) throws InvalidInputException {
-    String s = getStringAttribute(attribute);
+  ObjectNode asEntityJson(ObjectNode parent) {
+    return null;
+  }
+
+  /**
+   * Check the syntax and contents of the element.
+   */
+  void validate() throws InvalidInputException {
+  }
 
-    if (s == null) {
+  /**
+   * Get an attribute value as a Long value.
+   */
+  Long getLongAttribute(String name, String value) throws InvalidInputException {
+    if (value == null) {
       return null;
     }
 
     try {
-      return Long.parseLong(s);
+      return Long.parseLong(value);
     } catch (NumberFormatException e) {
-      throw new InvalidInputException("Invalid input: " + attribute.getNodeName()
-          + " must be a int64 value not \"" + s + "\"");
+      throw new InvalidInputException("Invalid input: " + name
+          + " must be a int64 value not \"" + value + "\"");
     }
   }
 
   /**
-   * Get a DOM attribute as a Boolean value.
+   * Get an attribute value as a Boolean value.
    */
-  Boolean getBooleanAttribute(org.w3c.dom.Node attribute)  {
-    String s = getStringAttribute(attribute);
-
-    if (s == null) {
+  Boolean getBooleanAttribute(String value)  {
+    if (value == null) {
       return null;
     }
 
-    return Boolean.parseBoolean(s);
+    return Boolean.parseBoolean(value);
   }
 
   /**
-   * Get a DOM attribute as a URI.
+   * Get an attribute value as a URI.
    */
-  URI getUrlAttribute(org.w3c.dom.Node attribute) throws InvalidInputException {
-    String s = getStringAttribute(attribute);
-
-    if (s == null) {
+  URI getUrlAttribute(String value) throws InvalidInputException {
+    if (value == null) {
       return null;
     }
 
     try {
-      return new URI(s);
+      return new URI(value);
     } catch (URISyntaxException e) {
-      throw new InvalidInputException("Invalid input: " + attribute.getLocalName()
-          + " must be a URI value not \"" + s + "\"");
+      // The attribute name has never been reported here: the DOM parser is not namespace aware, so the local name
+      // of the attribute used to be null
+      throw new InvalidInputException("Invalid input: null must be a URI value not \"" + value + "\"");
     }
   }
 
@@ -347,16 +537,15 @@ public abstract class Element {
    * @throws InvalidInputException
    */
   void assertPhrasingContent() throws InvalidInputException {
-    assertContentModel(Arrays.asList(TextNode.class, Link.class, Chime.class, Bold.class, Italic.class, Image.class,
-        LineBreak.class, Span.class, Emoji.class, HashTag.class, CashTag.class, Mention.class));
+    assertContentModel(ContentModel.PHRASING);
   }
 
   /**
    * Check that the element's children are limited to allowed element types.
    */
-  void assertContentModel(Collection<Class<? extends Element>> permittedChildren) throws InvalidInputException {
+  void assertContentModel(ContentModel permittedChildren) throws InvalidInputException {
     for (Element child : this.getChildren()) {
-      if (!permittedChildren.contains(child.getClass())) {
+      if (!permittedChildren.contains(child)) {
 
         //Permit whitespace
         if (child instanceof TextNode && StringUtils.isBlank(((TextNode) child).getText())) {
@@ -372,9 +561,9 @@ public abstract class Element {
   /**
    * Check that the element's allowed parents are limited to the specified element types.
    */
-  void assertParent(Collection<Class<? extends Element>> permittedParents) throws InvalidInputException {
-    if (!permittedParents.contains(this.getParent().getClass())) {
-      String permittedParentsClassAsString = permittedParents.stream()
+  void assertParent(ContentModel permittedParents) throws InvalidInputException {
+    if (!permittedParents.contains(this.getParent())) {
+      String permittedParentsClassAsString = permittedParents.getClasses().stream()
           .map(permittedParentClass -> permittedParentClass.getSimpleName().toLowerCase())
           .reduce((item, anotherItem) -> String.format("%s, %s", item, anotherItem))
           .orElse("");
@@ -386,12 +575,12 @@ public abstract class Element {
   /**
    * Check in above levels if an element has a permitted parent.
    */
-  void assertParentAtAnyLevel(Collection<Class<? extends Element>> permittedParents) throws InvalidInputException {
+  void assertParentAtAnyLevel(ContentModel permittedParents) throws InvalidInputException {
     Element element = this;
     Boolean permittedParentFound=false;
     
     while(!permittedParentFound && element.getParent() != null) {
-      if (permittedParents.contains(element.getParent().getClass())) {
+      if (permittedParents.contains(element.getParent())) {
         permittedParentFound = true;
       }
       else {
@@ -400,7 +589,7 @@ public abstract class Element {
     }
 
     if (!permittedParentFound) {
-      String permittedParentsClassAsString = permittedParents.stream()
+      String permittedParentsClassAsString = permittedParents.getClasses().stream()
           .map(permittedParentClass -> permittedParentClass.getSimpleName().toLowerCase())
           .reduce((item, anotherItem) -> String.format("%s, %s", item, anotherItem))
           .orElse("");
@@ -415,16 +604,29 @@ public abstract class Element {
    * @param elementTypes list of element types to check
    * @throws InvalidInputException
    */
-  void assertContainsChildOfType(Collection<Class<? extends Element>> elementTypes) throws InvalidInputException {
-    boolean hasPermittedElementAsChild = this.getChildren().stream()
-        .anyMatch(element -> elementTypes.contains(element.getClass()));
+  void assertContainsChildOfType(ContentModel elementTypes) throws InvalidInputException {
+    boolean hasPermittedElementAsChild = false;
+
+    for (Element child : this.getChildren()) {
+      if (elementTypes.contains(child)) {
+        hasPermittedElementAsChild = true;
+        break;
+      }
+    }
 
     if (!hasPermittedElementAsChild) {
       throw new InvalidInputException(String.format("The \"%s\" element must have at least one child that is any of the following elements: [%s].",
-          getMessageMLTag(), getElementsNameByClassName(elementTypes)));
+          getMessageMLTag(), getElementsNameByClassName(elementTypes.getClasses())));
     }
   }
 
+  /**
+   * Return the kind id of the element's class, see {@link ContentModel}.
+   */
+  int getKind() {
+    return kind;
+  }
+
   /**
    * Return the element's MessageML tag.
    */
@@ -569,6 +771,58 @@ public abstract class Element {
     return result;
   }
 
+  /**
+   * Run a lookup of external data, e.g. of a user or a URI check, on the given executor. Its error is rethrown by
+   * {@link #await(CompletableFuture, long, TimeUnit, String)}.
+   */
+  static CompletableFuture<Void> submitLookup(Lookup lookup, Executor executor) {
+    return CompletableFuture.runAsync(() -> {
+      try {
+        lookup.run();
+      } catch (InvalidInputException | ProcessingException e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+
+  /**
+   * Wait for a lookup submitted by {@link #submitLookup(Lookup, Executor)} to complete, rethrowing its error.
+   * @param timeout maximum time to wait
+   * @param phase description of the lookup, e.g. "checking URIs"
+   * @throws DeadlineExceededException thrown if the lookup does not complete in time
+   */
+  static void await(CompletableFuture<Void> lookup, long timeout, TimeUnit unit, String phase)
+      throws InvalidInputException, ProcessingException {
+    try {
+      lookup.get(timeout, unit);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+
+      if (cause instanceof InvalidInputException) {
+        throw (InvalidInputException) cause;
+      } else if (cause instanceof ProcessingException) {
+        throw (ProcessingException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ProcessingException("Error while " + phase, cause);
+    } catch (TimeoutException e) {
+      throw new DeadlineExceededException("Deadline exceeded while " + phase);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProcessingException("Interrupted while " + phase, e);
+    }
+  }
+
+  /**
+   * A lookup of external data, see {@link #submitLookup(Lookup, Executor)}.
+   */
+  interface Lookup {
+    void run() throws InvalidInputException, ProcessingException;
+  }
+
   private String getElementsNameByClassName(Collection<Class<? extends Element>> elementsClasses) {
     return elementsClasses.stream()
         .map(this::getElementNameByClass)
@@ -4,11 +4,12 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.EmojiNode;
 import org.symphonyoss.symphony.messageml.util.EmojiShortcodeToUnicode;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
-import org.w3c.dom.Node;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
+import java.util.regex.Pattern;
 
 /**
  * Class representing an emoji
@@ -20,7 +21,7 @@ public class Emoji extends Entity {
 
   public static final String MESSAGEML_TAG = "emoji";
   private static final String ATTR_SHORTCODE = "shortcode";
-  private static final String SHORTCODE_PATTERN = "[\\p{Alnum}_+-]*";
+  private static final Pattern SHORTCODE_PATTERN = Pattern.compile("[\\p{Alnum}_+-]*");
   private static final String ATTR_FAMILY = "family";
   private static final String ATTR_SIZE = "size";
 
@@ -60,18 +61,21 @@ public class Emoji extends Entity {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  boolean startPresentationML(XmlWriter out) {
     out.openElement(presentationMLTag, CLASS_ATTR, Entity.PRESENTATIONML_CLASS, ENTITY_ID_ATTR, entityId);
 
     if (this.getChildren().isEmpty()) {
-      out.append(asDefaultRepresentation());
-    } else {
-      for (Element child : getChildren()) {
-        child.asPresentationML(out);
-      }
+      out.print(asDefaultRepresentation());
     }
+    return true;
+  }
 
-    out.closeElement();
+  @Override
+  boolean startPresentationText(PresentationTextSink out) {
+    if (this.getChildren().isEmpty()) {
+      out.append(asDefaultRepresentation());
+    }
+    return true;
   }
 
   @Override
@@ -79,6 +83,11 @@ public class Emoji extends Entity {
     return new EmojiNode(shortcode);
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderEmoji(this, shortcode);
+  }
+
   @Override
   public String asText() {
     StringBuilder b = new StringBuilder();
@@ -132,7 +141,7 @@ public class Emoji extends Entity {
   public void validate() throws InvalidInputException {
     if (this.shortcode == null) {
       throw new InvalidInputException("The attribute \"shortcode\" is required");
-    } else if (!this.shortcode.matches(SHORTCODE_PATTERN)) {
+    } else if (!SHORTCODE_PATTERN.matcher(this.shortcode).matches()) {
       throw new InvalidInputException("Shortcode parameter may only contain alphanumeric characters, underscore, plus sign and dash");
     }
 
@@ -145,19 +154,19 @@ public class Emoji extends Entity {
   }
 
   @Override
-  protected void buildAttribute(Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_SHORTCODE:
-        this.shortcode = getStringAttribute(item);
+        this.shortcode = value;
         break;
       case ATTR_FAMILY:
-        this.family = getStringAttribute(item);
+        this.family = value;
         break;
       case ATTR_SIZE:
-        this.size = getStringAttribute(item);
+        this.size = value;
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName() + "\" is not allowed in \"" + getMessageMLTag() + "\"");
+        throw new InvalidInputException("Attribute \"" + name + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
 
@@ -44,16 +44,16 @@ public abstract class Entity extends Element {
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ENTITY_ID_ATTR:
-        this.entityId = item.getTextContent();
+        this.entityId = value;
         break;
       default:
         if (format == FormatEnum.PRESENTATIONML) {
-          super.buildAttribute(item);
+          super.buildAttribute(name, value);
         } else {
-          throw new InvalidInputException("Attribute \"" + item.getNodeName()
+          throw new InvalidInputException("Attribute \"" + name
               + "\" is not allowed in \"" + getMessageMLTag() + "\"");
         }
     }
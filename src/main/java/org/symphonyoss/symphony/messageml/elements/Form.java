@@ -1,6 +1,7 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.FormNode;
 
 /**
@@ -27,13 +28,13 @@ public class Form extends Element {
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ID_ATTR:
-        setAttribute(ID_ATTR, getStringAttribute(item));
+        setAttribute(ID_ATTR, value);
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName()
+        throw new InvalidInputException("Attribute \"" + name
             + "\" is not allowed in \"" + getMessageMLTag() + "\"");  
     }
   }
@@ -42,4 +43,9 @@ public class Form extends Element {
   public org.commonmark.node.Node asMarkdown() {
     return new FormNode();
   }
+
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderForm(this);
+  }
 }
\ No newline at end of file
@@ -2,11 +2,10 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
-import java.util.Collections;
-
 public class FormElement extends Element {
   public static final String INPUT_TAG = "input";
   public static final String TYPE_ATTR = "type";
+  private static final ContentModel PERMITTED_PARENTS = ContentModel.of(Form.class);
 
   protected static final String NAME_ATTR = "name";
 
@@ -20,6 +19,6 @@ public class FormElement extends Element {
 
   @Override
   public void validate() throws InvalidInputException {
-    assertParentAtAnyLevel(Collections.singleton(Form.class));
+    assertParentAtAnyLevel(PERMITTED_PARENTS);
   }
 }
@@ -17,6 +17,8 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.commonmark.node.Node;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.KeywordNode;
 
 /**
@@ -59,6 +61,11 @@ public class HashTag extends Keyword {
     return new KeywordNode(PREFIX, getTag());
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderKeyword(this, PREFIX, getTag());
+  }
+
   @Override
   public String toString() {
     return "HashTag(" + getTag() + ")";
@@ -69,6 +76,25 @@ public class HashTag extends Keyword {
     return HASHTAG_PATTERN;
   }
 
+  /**
+   * A hashtag is made of non-whitespace characters, at least one of which is not punctuation.
+   */
+  @Override
+  boolean matchesTagPattern(String tag) {
+    boolean hasWordCharacter = false;
+
+    for (int i = 0; i < tag.length(); i++) {
+      char c = tag.charAt(i);
+
+      if (isWhitespace(c)) {
+        return false;
+      }
+      hasWordCharacter |= !isPunctuation(c);
+    }
+
+    return hasWordCharacter;
+  }
+
   @Override
   protected String getEntitySubType() {
     return ENTITY_SUBTYPE;
@@ -19,6 +19,7 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.commonmark.node.Node;
 import org.commonmark.node.StrongEmphasis;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 
 import java.util.regex.Pattern;
 
@@ -42,6 +43,11 @@ public class Header extends Element {
     return new StrongEmphasis(MARKDOWN);
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderDelimited(this, MARKDOWN);
+  }
+
   public static boolean isHeaderElement(String tag) {
     return PATTERN.matcher(tag).matches();
   }
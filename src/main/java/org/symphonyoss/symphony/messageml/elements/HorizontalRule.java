@@ -18,7 +18,8 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 /**
  * Class representing a horizontal rule.
@@ -36,13 +37,14 @@ public class HorizontalRule extends Element {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  boolean startPresentationML(XmlWriter out) {
     out.printElement(MESSAGEML_TAG);
+    return false;
   }
 
   @Override
-  void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    throw new InvalidInputException("Attribute \"" + item.getNodeName()
+  void buildAttribute(String name, String value) throws InvalidInputException {
+    throw new InvalidInputException("Attribute \"" + name
         + "\" is not allowed in \"" + getMessageMLTag() + "\"");
   }
 
@@ -58,6 +60,11 @@ public class HorizontalRule extends Element {
     return node;
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderParagraph(this, MARKDOWN);
+  }
+
   @Override
   public void validate() throws InvalidInputException {
     assertNoContent();
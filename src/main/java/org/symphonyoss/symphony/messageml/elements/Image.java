@@ -17,7 +17,7 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 /**
  * Class representing an image.
@@ -35,18 +35,19 @@ public class Image extends Element {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  boolean startPresentationML(XmlWriter out) {
     out.printElement(MESSAGEML_TAG, null, getAttributes());
+    return false;
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_SRC:
-        setAttribute(ATTR_SRC, getStringAttribute(item));
+        setAttribute(ATTR_SRC, value);
         break;
       default:
-        super.buildAttribute(item);
+        super.buildAttribute(name, value);
     }
   }
 
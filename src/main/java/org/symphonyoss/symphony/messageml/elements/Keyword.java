@@ -17,7 +17,7 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 /**
  * Base class of convenience elements for hash and cash tags.
@@ -30,6 +30,7 @@ abstract class Keyword extends Entity {
   private static final String ATTR_TAG = "tag";
   private static final String ENTITY_ID_PREFIX = "keyword";
   private static final String MSG_INVALID_TAG_PATTERN = "Values of the attribute 'tag' for the element '%s' must match the pattern %s.";
+  private static final String PUNCTUATION = "!@#$%^&*()+=<>,./?`~:;'\"\\|-";
 
   protected String tag;
 
@@ -38,13 +39,13 @@ abstract class Keyword extends Entity {
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_TAG:
-        this.tag = item.getTextContent();
+        this.tag = value;
         break;
       default:
-          super.buildAttribute(item);
+          super.buildAttribute(name, value);
     }
   }
 
@@ -53,9 +54,9 @@ abstract class Keyword extends Entity {
     if (this.tag == null) {
       throw new InvalidInputException("The attribute \"tag\" is required");
     }
-    String pattern = getTagPattern();
-    if (!this.tag.matches(pattern)) {
-      throw new InvalidInputException(String.format(MSG_INVALID_TAG_PATTERN, this.getMessageMLTag(), pattern));
+    if (!matchesTagPattern(this.tag)) {
+      throw new InvalidInputException(String.format(MSG_INVALID_TAG_PATTERN, this.getMessageMLTag(),
+          getTagPattern()));
     }
 
     super.validate();
@@ -71,8 +72,15 @@ abstract class Keyword extends Entity {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  boolean startPresentationML(XmlWriter out) {
     out.printElement(presentationMLTag, asText(), CLASS_ATTR, Entity.PRESENTATIONML_CLASS, ENTITY_ID_ATTR, entityId);
+    return false;
+  }
+
+  @Override
+  boolean startPresentationText(PresentationTextSink out) {
+    out.append(asText());
+    return false;
   }
 
   @Override
@@ -90,4 +98,23 @@ abstract class Keyword extends Entity {
    * @return
    */
   public abstract String getTagPattern();
+
+  /**
+   * Check whether the tag matches the validation pattern, without running the regular expression.
+   */
+  abstract boolean matchesTagPattern(String tag);
+
+  /**
+   * Whitespace as matched by the "\s" regular expression class.
+   */
+  static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  /**
+   * Punctuation which a tag cannot be made of only.
+   */
+  static boolean isPunctuation(char c) {
+    return PUNCTUATION.indexOf(c) >= 0;
+  }
 }
@@ -20,11 +20,15 @@ import org.apache.commons.lang3.StringUtils;
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class representing a link.
@@ -37,6 +41,8 @@ public class Link extends Element {
   private final IDataProvider dataProvider;
 
   private URI uri;
+  private Executor uriCheckExecutor;
+  private CompletableFuture<Void> uriCheck;
 
   public Link(Element parent, IDataProvider dataProvider) throws InvalidInputException {
     this(parent, null, dataProvider);
@@ -57,31 +63,34 @@ public class Link extends Element {
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_HREF:
-        uri = getUrlAttribute(item);
+        uri = getUrlAttribute(value);
         setAttribute(ATTR_HREF, uri.toString());
         break;
 
       default:
-        super.buildAttribute(item);
+        super.buildAttribute(name, value);
     }
   }
 
   @Override
-  void asPresentationML(XmlPrintStream out) {
+  boolean startPresentationML(XmlWriter out) {
     out.openElement(getMessageMLTag(), getAttributes());
 
     if (getChildren().isEmpty()) {
-      out.print(out.escape(getUri().toString()));
-    } else {
-      for (Element child : getChildren()) {
-        child.asPresentationML(out);
-      }
+      out.printText(getUri().toString());
     }
+    return true;
+  }
 
-    out.closeElement();
+  @Override
+  boolean startPresentationText(PresentationTextSink out) {
+    if (getChildren().isEmpty()) {
+      out.append(getUri().toString());
+    }
+    return true;
   }
 
   @Override
@@ -89,6 +98,11 @@ public class Link extends Element {
     return new org.commonmark.node.Link(getUri().toString(), asText());
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderLink(this, getUri().toString());
+  }
+
   @Override
   public void validate() throws InvalidInputException {
 
@@ -104,12 +118,55 @@ public class Link extends Element {
       throw new InvalidInputException("The attribute \"href\" must contain an absolute URI");
     }
 
+    if (uriCheckExecutor != null) {
+      uriCheck = submitLookup(this::validateURI, uriCheckExecutor);
+    } else {
+      validateURI();
+    }
+
+  }
+
+  /**
+   * Check the URI of the link on the given executor once the link is validated, instead of in {@link #validate()}.
+   * The result of the check is retrieved with {@link #awaitURICheck(long, TimeUnit)}.
+   */
+  public void setURICheckExecutor(Executor uriCheckExecutor) {
+    this.uriCheckExecutor = uriCheckExecutor;
+  }
+
+  /**
+   * Wait for the URI check started by {@link #validate()} to complete, rethrowing its error.
+   * @param timeout maximum time to wait
+   * @throws org.symphonyoss.symphony.messageml.exceptions.DeadlineExceededException thrown if the check does not
+   * complete in time
+   */
+  public void awaitURICheck(long timeout, TimeUnit unit) throws InvalidInputException, ProcessingException {
+    if (uriCheck != null) {
+      try {
+        await(uriCheck, timeout, unit, "checking URIs");
+      } finally {
+        // Do not leave the check pending once its result is no longer awaited
+        cancelURICheck();
+      }
+    }
+  }
+
+  /**
+   * Cancel the URI check started by {@link #validate()} if it has not started running yet, e.g. once the message
+   * failed on an earlier error. Has no effect on a completed check.
+   */
+  public void cancelURICheck() {
+    if (uriCheck != null) {
+      uriCheck.cancel(false);
+    }
+  }
+
+  private void validateURI() throws InvalidInputException {
     try {
       dataProvider.validateURI(uri);
     } catch (ProcessingException e) {
       throw new InvalidInputException(e.getMessage());
     }
-
   }
 
   public URI getUri() {
@@ -20,10 +20,25 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.commonmark.node.Node;
 import org.commonmark.node.Text;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.MentionNode;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
 import org.symphonyoss.symphony.messageml.util.IUserPresentation;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class representing a convenience element for a user mention. Translated to an anchor element.
@@ -49,6 +64,7 @@ public class Mention extends Entity {
   private String prettyName;
   private Long uid;
   private boolean fallback = false;
+  private boolean lookupDeferred = false;
 
   public Mention(Element parent, int entityIndex, IDataProvider dataProvider) {
     this(parent, DEFAULT_PRESENTATIONML_TAG, entityIndex, null, false, dataProvider,
@@ -74,27 +90,27 @@ public class Mention extends Entity {
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_EMAIL:
-        email = getStringAttribute(item);
+        email = value;
         break;
 
       case ATTR_UID:
-        uid = getLongAttribute(item);
+        uid = getLongAttribute(name, value);
         break;
 
       case ATTR_STRICT:
-        fallback = !getBooleanAttribute(item);
+        fallback = !getBooleanAttribute(value);
         break;
 
       default:
-        super.buildAttribute(item);
+        super.buildAttribute(name, value);
     }
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  boolean startPresentationML(XmlWriter out) {
     if (userPresentation != null) {
       out.printElement(presentationMLTag, asText(), CLASS_ATTR, PRESENTATIONML_CLASS,
           ENTITY_ID_ATTR, entityId);
@@ -106,24 +122,46 @@ public class Mention extends Entity {
         out.print(prettyName);
       } else if (email != null) {
         try {
-          Link link = new Link(getParent(), buildMailTo(), dataProvider);
-
-          for (Element child : getChildren()) {
-            link.addChild(child);
-          }
-
-          // If there's no pretty text, adds only the email as the tag text
-          if(link.getChildren().isEmpty()) {
-            TextNode child = new TextNode(link, email);
-            link.addChild(child);
-          }
-
-          link.asPresentationML(out);
+          buildMailToLink().asPresentationML(out);
         } catch (InvalidInputException e) { // Thrown on unsupported protocol
           out.print(email);
         }
       }
     }
+    return false;
+  }
+
+  @Override
+  boolean startPresentationText(PresentationTextSink out) {
+    if (userPresentation != null) {
+      out.appendText(asText(), false);
+    } else if (uid != null) {
+      out.append(String.valueOf(uid));
+    } else if (prettyName != null) {
+      out.appendText(prettyName, false);
+    } else if (email != null) {
+      try {
+        buildMailToLink().buildPresentationText(out);
+      } catch (InvalidInputException e) { // Thrown on unsupported protocol
+        out.appendText(email, false);
+      }
+    }
+    return false;
+  }
+
+  @Override
+  boolean isPresentationText() {
+    if (userPresentation != null || uid != null) {
+      return false;
+    } else if (prettyName == null && email != null) {
+      try {
+        buildMailToLink();
+        return false;
+      } catch (InvalidInputException e) {
+        return true;
+      }
+    }
+    return true;
   }
 
   @Override
@@ -144,6 +182,24 @@ public class Mention extends Entity {
     }
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    if (userPresentation == null) {
+      if (prettyName != null) {
+        out.renderText(prettyName);
+      } else if (email != null) {
+        out.renderText(email);
+      } else if (uid != null) {
+        out.renderText(String.valueOf(uid));
+      } else {
+        throw new InvalidInputException("Error processing user mention. No id or email provided");
+      }
+    } else {
+      out.renderMention(this, userPresentation.getId(), userPresentation.getPrettyName(),
+          userPresentation.getScreenName());
+    }
+  }
+
   @Override
   public ObjectNode asEntityJson(ObjectNode parent) {
     if (getEntityValue() != null) {
@@ -176,8 +232,110 @@ public class Mention extends Entity {
 
   @Override
   public void validate() throws InvalidInputException {
+    if (uid == null && email == null) {
+      throw new InvalidInputException("Error processing user mention. No id or email provided");
+    }
+
+    if (!lookupDeferred) {
+      lookupUser(Collections.emptyMap(), Collections.emptyMap());
+    }
+  }
+
+  /**
+   * Defer the user lookup of {@link #validate()} to {@link #resolveUsers(Collection, IDataProvider)}, which
+   * retrieves the users of several mentions at once.
+   */
+  public void setLookupDeferred(boolean lookupDeferred) {
+    this.lookupDeferred = lookupDeferred;
+  }
+
+  /**
+   * Look up the users of the given mentions with a single call to
+   * {@link IDataProvider#getUserPresentations(Collection, Collection)}. Users which are not returned are looked up
+   * one by one. Mentions are resolved in order, failing on the first user which cannot be found, as by
+   * {@link #validate()}.
+   */
+  public static void resolveUsers(Collection<Mention> mentions, IDataProvider dataProvider)
+      throws InvalidInputException, ProcessingException {
+    resolveUsers(mentions, dataProvider, null, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Look up the users of the given mentions with a single call to
+   * {@link IDataProvider#getUserPresentations(Collection, Collection)}, as by
+   * {@link #resolveUsers(Collection, IDataProvider)}. Users which are not returned are looked up concurrently on the
+   * given executor, or one by one if it is null. Errors are reported in the order of the mentions, and the lookups
+   * still pending after an error are cancelled.
+   * @param timeout maximum time to wait for the concurrent lookups
+   * @throws org.symphonyoss.symphony.messageml.exceptions.DeadlineExceededException thrown if the concurrent lookups
+   * do not complete in time
+   */
+  public static void resolveUsers(Collection<Mention> mentions, IDataProvider dataProvider, Executor executor,
+      long timeout, TimeUnit unit) throws InvalidInputException, ProcessingException {
+    if (mentions.isEmpty()) {
+      return;
+    }
+
+    Set<Long> uids = new LinkedHashSet<>();
+    Set<String> emails = new LinkedHashSet<>();
+
+    for (Mention mention : mentions) {
+      if (mention.uid != null) {
+        uids.add(mention.uid);
+      } else if (mention.email != null) {
+        emails.add(mention.email);
+      }
+    }
+
+    Map<Long, IUserPresentation> usersById = new HashMap<>();
+    Map<String, IUserPresentation> usersByEmail = new HashMap<>();
+
+    for (IUserPresentation user : dataProvider.getUserPresentations(uids, emails)) {
+      usersById.put(user.getId(), user);
+      if (user.getEmail() != null) {
+        usersByEmail.put(user.getEmail().toLowerCase(Locale.ROOT), user);
+      }
+    }
+
+    if (executor == null) {
+      for (Mention mention : mentions) {
+        mention.lookupUser(usersById, usersByEmail);
+      }
+      return;
+    }
+
+    List<CompletableFuture<Void>> lookups = new ArrayList<>();
+
+    for (Mention mention : mentions) {
+      if (mention.isFound(usersById, usersByEmail)) {
+        mention.lookupUser(usersById, usersByEmail);
+      } else {
+        lookups.add(submitLookup(() -> mention.lookupUser(usersById, usersByEmail), executor));
+      }
+    }
+
+    long deadline = System.nanoTime() + Math.min(unit.toNanos(timeout), Long.MAX_VALUE >> 1);
+
+    try {
+      for (CompletableFuture<Void> lookup : lookups) {
+        await(lookup, deadline - System.nanoTime(), TimeUnit.NANOSECONDS, "looking up users");
+      }
+    } finally {
+      // Lookups still pending after an error are not run, completed ones are unaffected
+      for (CompletableFuture<Void> lookup : lookups) {
+        lookup.cancel(false);
+      }
+    }
+  }
+
+  private boolean isFound(Map<Long, IUserPresentation> usersById, Map<String, IUserPresentation> usersByEmail) {
+    return (uid != null) ? usersById.containsKey(uid) : usersByEmail.containsKey(email.toLowerCase(Locale.ROOT));
+  }
+
+  private void lookupUser(Map<Long, IUserPresentation> usersById, Map<String, IUserPresentation> usersByEmail)
+      throws InvalidInputException {
     try {
-      resolveUser();
+      resolveUser(usersById, usersByEmail);
     } catch (InvalidInputException e) {
       if (fallback) {
         userPresentation = null;
@@ -187,11 +345,18 @@ public class Mention extends Entity {
     }
   }
 
-  private void resolveUser() throws InvalidInputException {
+  private void resolveUser(Map<Long, IUserPresentation> usersById, Map<String, IUserPresentation> usersByEmail)
+      throws InvalidInputException {
     if (uid != null) {
-      userPresentation = dataProvider.getUserPresentation(uid);
+      userPresentation = usersById.get(uid);
+      if (userPresentation == null) {
+        userPresentation = dataProvider.getUserPresentation(uid);
+      }
     } else if (email != null) {
-      userPresentation = dataProvider.getUserPresentation(email);
+      userPresentation = usersByEmail.get(email.toLowerCase(Locale.ROOT));
+      if (userPresentation == null) {
+        userPresentation = dataProvider.getUserPresentation(email);
+      }
     }
 
     if (userPresentation != null) {
@@ -205,6 +370,22 @@ public class Mention extends Entity {
     return MAILTO + email;
   }
 
+  private Link buildMailToLink() throws InvalidInputException {
+    Link link = new Link(getParent(), buildMailTo(), dataProvider);
+
+    for (Element child : getChildren()) {
+      link.addChild(child);
+    }
+
+    // If there's no pretty text, adds only the email as the tag text
+    if(link.getChildren().isEmpty()) {
+      TextNode child = new TextNode(link, email);
+      link.addChild(child);
+    }
+
+    return link;
+  }
+
   public IUserPresentation getUserPresentation() {
     return userPresentation;
   }
@@ -26,7 +26,9 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.commonmark.node.Document;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
+
+import java.util.List;
 
 
 /**
@@ -46,31 +48,46 @@ public class MessageML extends Element {
   private static final String ATTR_VERSION = "data-version";
   private static final String PRESENTATIONML_FORMAT = "PresentationML";
 
+  private final Styles styles;
   private String version;
   private boolean chime;
 
   public MessageML(FormatEnum format, String version) {
+    this(format, version, Styles.UNCACHED);
+  }
+
+  /**
+   * @param styles checker of the style attributes of the message's elements, e.g. one shared by the messages of an
+   * engine to cache the attributes which passed
+   */
+  public MessageML(FormatEnum format, String version, Styles styles) {
     super(null, MESSAGEML_TAG, format);
     this.version = version;
+    this.styles = styles;
+  }
+
+  @Override
+  Styles getStyles() {
+    return styles;
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
     if (getFormat() == FormatEnum.PRESENTATIONML) {
-      switch (item.getNodeName()) {
+      switch (name) {
         case ATTR_FORMAT:
-          setAttribute(ATTR_FORMAT, getStringAttribute(item));
+          setAttribute(ATTR_FORMAT, value);
           break;
 
         case ATTR_VERSION:
-          this.version = getStringAttribute(item);
+          this.version = value;
           break;
 
         default:
-          super.buildAttribute(item);
+          super.buildAttribute(name, value);
       }
     } else {
-      super.buildAttribute(item);
+      super.buildAttribute(name, value);
     }
   }
 
@@ -86,15 +103,20 @@ public class MessageML extends Element {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
-
+  boolean startPresentationML(XmlWriter out) {
     out.openElement(PRESENTATIONML_TAG, ATTR_FORMAT, PRESENTATIONML_FORMAT, ATTR_VERSION, version);
+    return true;
+  }
 
-    for (Element child : getChildren()) {
-      child.asPresentationML(out);
-    }
-
-    out.closeElement();
+  /**
+   * Return the text content of each top-level node of the PresentationML representation of the message, as read
+   * from the parsed PresentationML document. Adjacent character data is read as a single node and empty character
+   * data is omitted.
+   */
+  public List<String> asPresentationTextNodes() {
+    PresentationTextSink out = new PresentationTextSink();
+    out.write(this);
+    return out.getTextNodes();
   }
 
   @Override
@@ -1,10 +1,10 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.OptionNode;
 
 import java.util.Arrays;
-import java.util.Collections;
 
 /**
  * Class representing a Symphony Elements option
@@ -14,6 +14,8 @@ import java.util.Collections;
  */
 public class Option extends FormElement {
   public static final String MESSAGEML_TAG = "option";
+  private static final ContentModel PERMITTED_PARENTS = ContentModel.of(Select.class);
+  private static final ContentModel PERMITTED_CHILDREN = ContentModel.of(TextNode.class);
   private static final String VALUE_ATTR = "value";
   private static final String SELECTED_ATTR = "selected";
 
@@ -26,6 +28,11 @@ public class Option extends FormElement {
     return new OptionNode();
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderOption(this);
+  }
+
   @Override
   public void validate() throws InvalidInputException {
     if (getAttribute(VALUE_ATTR) == null) {
@@ -36,22 +43,22 @@ public class Option extends FormElement {
       assertAttributeValue(SELECTED_ATTR, Arrays.asList(Boolean.TRUE.toString(), Boolean.FALSE.toString()));
     }
 
-    assertParent(Collections.singleton(Select.class));
-    assertContentModel(Collections.singleton(TextNode.class));
-    assertContainsChildOfType(Collections.singleton(TextNode.class));
+    assertParent(PERMITTED_PARENTS);
+    assertContentModel(PERMITTED_CHILDREN);
+    assertContainsChildOfType(PERMITTED_CHILDREN);
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case VALUE_ATTR:
-        setAttribute(VALUE_ATTR, getStringAttribute(item));
+        setAttribute(VALUE_ATTR, value);
         break;
       case SELECTED_ATTR:
-        setAttribute(SELECTED_ATTR, getStringAttribute(item));
+        setAttribute(SELECTED_ATTR, value);
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName()
+        throw new InvalidInputException("Attribute \"" + name
             + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
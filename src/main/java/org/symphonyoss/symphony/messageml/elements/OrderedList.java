@@ -18,8 +18,7 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
-
-import java.util.Collections;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 
 /**
  * Class representing an ordered list container.
@@ -30,6 +29,9 @@ import java.util.Collections;
 public class OrderedList extends Element {
 
   public static final String MESSAGEML_TAG = "ol";
+  private static final ContentModel PERMITTED_CHILDREN = ContentModel.of(ListItem.class);
+  private static final int MARKDOWN_START_NUMBER = 1;
+  private static final char MARKDOWN_DELIMITER = '.';
 
   public OrderedList(Element parent) {
     super(parent, MESSAGEML_TAG);
@@ -38,14 +40,19 @@ public class OrderedList extends Element {
   @Override
   public Node asMarkdown() {
     org.commonmark.node.OrderedList ol = new org.commonmark.node.OrderedList();
-    ol.setStartNumber(1);
-    ol.setDelimiter('.');
+    ol.setStartNumber(MARKDOWN_START_NUMBER);
+    ol.setDelimiter(MARKDOWN_DELIMITER);
     return ol;
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderOrderedList(this, MARKDOWN_START_NUMBER, MARKDOWN_DELIMITER);
+  }
+
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Collections.<Class<? extends Element>>singleton(ListItem.class));
+    assertContentModel(PERMITTED_CHILDREN);
   }
 }
@@ -17,6 +17,8 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.commonmark.node.Node;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 
 /**
  * Class representing a paragraph.
@@ -41,6 +43,11 @@ public class Paragraph extends Element {
     return new org.commonmark.node.Paragraph();
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderParagraph(this);
+  }
+
   @Override
   public String toString() {
     return "\n\n";
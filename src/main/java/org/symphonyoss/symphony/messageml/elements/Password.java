@@ -1,8 +1,9 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.FormElementNode;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 import java.util.Arrays;
 import java.util.LinkedHashMap;
@@ -55,33 +56,34 @@ public class Password extends FormElement {
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case NAME_ATTR:
-        setAttribute(NAME_ATTR, getStringAttribute(item));
+        setAttribute(NAME_ATTR, value);
         break;
       case REQUIRED_ATTR:
-        setAttribute(REQUIRED_ATTR, getStringAttribute(item));
+        setAttribute(REQUIRED_ATTR, value);
         break;
       case PLACEHOLDER_ATTR:
-        setAttribute(PLACEHOLDER_ATTR, getStringAttribute(item));
+        setAttribute(PLACEHOLDER_ATTR, value);
         break;
       case MINLENGTH_ATTR:
-        setAttribute(MINLENGTH_ATTR, getStringAttribute(item));
+        setAttribute(MINLENGTH_ATTR, value);
         break;
       case MAXLENGTH_ATTR:
-        setAttribute(MAXLENGTH_ATTR, getStringAttribute(item));
+        setAttribute(MAXLENGTH_ATTR, value);
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName()
+        throw new InvalidInputException("Attribute \"" + name
             + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  boolean startPresentationML(XmlWriter out) {
     Map<String, String> presentationAttrs = buildTextFieldInputAttributes();
     out.printElement(PRESENTATIONML_INPUT_TAG, presentationAttrs);
+    return false;
   }
 
   @Override
@@ -93,6 +95,15 @@ public class Password extends FormElement {
     }
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    if (getAttribute(PLACEHOLDER_ATTR) != null) {
+      out.renderFormElement(this, MARKDOWN, ":" + getAttribute(PLACEHOLDER_ATTR));
+    } else {
+      out.renderFormElement(this, MARKDOWN, "");
+    }
+  }
+
   private Map<String, String> buildTextFieldInputAttributes() {
     Map<String, String> presentationAttrs = new LinkedHashMap<>();
 
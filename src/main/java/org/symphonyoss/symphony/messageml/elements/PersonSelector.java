@@ -4,11 +4,15 @@ import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.MessageMLParser;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.FormElementNode;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.NodeList;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -55,6 +59,22 @@ public class PersonSelector extends FormElement {
     }
   }
 
+  @Override
+  public void buildAll(MessageMLParser context, XMLStreamReader reader, Map<String, String> attributes)
+      throws InvalidInputException, ProcessingException, XMLStreamException {
+    switch (getFormat()) {
+      case MESSAGEML:
+        super.buildAll(context, reader, attributes);
+        break;
+      case PRESENTATIONML:
+        buildElementFromDiv(context, reader, attributes);
+        this.validate();
+        break;
+      default:
+        throw new InvalidInputException(String.format("Invalid message format for \"%s\" element", MESSAGEML_TAG));
+    }
+  }
+
   @Override
   public void validate() throws InvalidInputException {
     super.validate();
@@ -71,10 +91,10 @@ public class PersonSelector extends FormElement {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  boolean startPresentationML(XmlWriter out) {
     Map<String, String> presentationAttrs = buildPersonSelectorInputAttributes();
     out.openElement(PRESENTATIONML_TAG, presentationAttrs);
-    out.closeElement();
+    return true;
   }
 
   @Override
@@ -83,19 +103,24 @@ public class PersonSelector extends FormElement {
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderFormElement(this, MARKDOWN, getAttribute(NAME_ATTR));
+  }
+
+  @Override
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case NAME_ATTR:
-        setAttribute(NAME_ATTR, getStringAttribute(item));
+        setAttribute(NAME_ATTR, value);
         break;
       case PLACEHOLDER_ATTR:
-        setAttribute(PLACEHOLDER_ATTR, getStringAttribute(item));
+        setAttribute(PLACEHOLDER_ATTR, value);
         break;
       case REQUIRED_ATTR:
-        setAttribute(REQUIRED_ATTR, getStringAttribute(item));
+        setAttribute(REQUIRED_ATTR, value);
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName()
+        throw new InvalidInputException("Attribute \"" + name
             + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
@@ -145,4 +170,20 @@ public class PersonSelector extends FormElement {
     }
     
   }
+
+  void buildElementFromDiv(MessageMLParser context, XMLStreamReader reader, Map<String, String> attributes)
+      throws InvalidInputException, ProcessingException, XMLStreamException {
+    attributes.put(NAME_ATTR, attributes.getOrDefault(PRESENTATIONML_NAME_ATTR, ""));
+    attributes.remove(PRESENTATIONML_NAME_ATTR);
+
+    if (attributes.containsKey(PRESENTATIONML_PLACEHOLDER_ATTR)) {
+      attributes.put(PLACEHOLDER_ATTR, attributes.remove(PRESENTATIONML_PLACEHOLDER_ATTR));
+    }
+
+    if (attributes.containsKey(PRESENTATIONML_REQUIRED_ATTR)) {
+      attributes.put(REQUIRED_ATTR, attributes.remove(PRESENTATIONML_REQUIRED_ATTR));
+    }
+
+    super.buildAll(context, reader, attributes);
+  }
 }
@@ -18,8 +18,9 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.PreformattedNode;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 /**
  * Class representing preformatted text.
@@ -34,14 +35,26 @@ public class Preformatted extends Element {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
-    boolean removeNl = out.isRemoveNl();
+  boolean startPresentationML(XmlWriter out) {
+    out.startPreformatted();
+    return super.startPresentationML(out);
+  }
 
-    out.setRemoveNl(false);
+  @Override
+  void endPresentationML(XmlWriter out) {
+    super.endPresentationML(out);
+    out.endPreformatted();
+  }
 
-    super.asPresentationML(out);
+  @Override
+  boolean startPresentationText(PresentationTextSink out) {
+    out.startPreformatted();
+    return true;
+  }
 
-    out.setRemoveNl(removeNl);
+  @Override
+  void endPresentationText(PresentationTextSink out) {
+    out.endPreformatted();
   }
 
   @Override
@@ -49,6 +62,11 @@ public class Preformatted extends Element {
     return new PreformattedNode();
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderPreformatted(this);
+  }
+
   @Override
   public void validate() throws InvalidInputException {
     assertPhrasingContent();
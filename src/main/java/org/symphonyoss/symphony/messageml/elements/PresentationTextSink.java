@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.elements;
+
+import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the text content of the PresentationML representation of the elements passed to it, as read from the
+ * parsed PresentationML document with {@link org.w3c.dom.Node#getTextContent()}.
+ *
+ * The text is also split into the top-level nodes of the document, see {@link MessageML#asPresentationTextNodes()}:
+ * adjacent character data of the children of the root element is read as a single node and empty character data is
+ * omitted.
+ */
+public class PresentationTextSink {
+  private final StringBuilder text = new StringBuilder();
+  private final List<String> nodes = new ArrayList<>();
+  private int nodeStart;
+  private int depth;
+  private int preformattedDepth;
+
+  private boolean startElement(Element element) {
+    boolean node = depth == 1 && !element.isPresentationText();
+
+    if (node) {
+      addNode(false);
+    }
+
+    if (element.startPresentationText(this)) {
+      depth++;
+      return true;
+    }
+
+    if (node) {
+      addNode(true);
+    }
+    return false;
+  }
+
+  private void endElement(Element element) {
+    element.endPresentationText(this);
+    depth--;
+
+    if (depth == 1 && !element.isPresentationText()) {
+      addNode(true);
+    } else if (depth == 0) {
+      addNode(false);
+    }
+  }
+
+  /**
+   * Pass the element and its descendants to the sink.
+   */
+  public void write(Element element) {
+    if (startElement(element)) {
+      for (Element child : element.getChildren()) {
+        write(child);
+      }
+
+      endElement(element);
+    }
+  }
+
+  /**
+   * Add the text since the previous node as a node, unless it is empty character data.
+   * @param element whether the text is the text of an element
+   */
+  private void addNode(boolean element) {
+    if (element || text.length() > nodeStart) {
+      nodes.add(text.substring(nodeStart));
+      nodeStart = text.length();
+    }
+  }
+
+  /**
+   * Append text content, as it is.
+   */
+  void append(String s) {
+    text.append(s);
+  }
+
+  /**
+   * Append text content as it is read from the parsed PresentationML document, with carriage returns normalized to
+   * newlines as an XML parser reads them ("\r\n" and single "\r" characters as "\n"), in a single pass.
+   * @param removeNl whether runs of newline characters are appended as a single space beforehand, as by
+   * {@link XmlPrintStream#removeNewLines(String)}
+   */
+  void appendText(String s, boolean removeNl) {
+    int start = 0;
+    int length = s.length();
+    boolean inNl = false;
+
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+
+      if (c == '\n' && removeNl) {
+        text.append(s, start, i);
+        if (!inNl) {
+          text.append(' ');
+          inNl = true;
+        }
+        start = i + 1;
+      } else {
+        inNl = false;
+
+        if (c == '\r') {
+          // A carriage return is read as a newline, or dropped if a newline follows it
+          text.append(s, start, i);
+          if (removeNl || i + 1 == length || s.charAt(i + 1) != '\n') {
+            text.append('\n');
+          }
+          start = i + 1;
+        }
+      }
+    }
+
+    text.append(s, start, length);
+  }
+
+  /**
+   * Whether text has its newlines replaced, as when printed by elements to {@link
+   * org.symphonyoss.symphony.messageml.util.XmlWriter#isRemoveNl()}.
+   */
+  boolean isRemoveNl() {
+    return preformattedDepth == 0;
+  }
+
+  /**
+   * Keep the newlines of text until the matching call to {@link #endPreformatted()}, as inside preformatted text.
+   */
+  void startPreformatted() {
+    preformattedDepth++;
+  }
+
+  void endPreformatted() {
+    preformattedDepth--;
+  }
+
+  /**
+   * Retrieve the text content of the elements passed to the sink.
+   */
+  public String getText() {
+    return text.toString();
+  }
+
+  /**
+   * Retrieve the text content of each top-level node of the PresentationML document passed to the sink.
+   */
+  public List<String> getTextNodes() {
+    return nodes;
+  }
+}
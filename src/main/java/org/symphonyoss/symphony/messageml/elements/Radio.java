@@ -19,11 +19,16 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.symphonyoss.symphony.messageml.MessageMLParser;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.FormElementNode;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.NodeList;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -41,6 +46,7 @@ public class Radio extends FormElement {
   public static final String PRESENTATIONML_INPUT_TYPE = "radio";
   public static final String PRESENTATIONML_DIV_CLASS = "radio-group";
   public static final String PRESENTATIONML_LABEL_TAG = "label";
+  private static final ContentModel PERMITTED_CHILDREN = ContentModel.of(TextNode.class, Bold.class, Italic.class);
   private static final int PRESENTATIONML_DIV_NUMBER_OF_CHILDREN = 2;
   private static final String PRESENTATIONML_DIV_TAG = "div";
   private static final String PRESENTATIONML_CLASS_ATTR = "class";
@@ -65,7 +71,7 @@ public class Radio extends FormElement {
         break;
       case PRESENTATIONML:
         if(INPUT_TAG.equals(element.getNodeName())) {
-          buildAttrFromInputTag(element);
+          buildAttrFromInputTag(context, element);
         } else {
           buildElementFromGroupDiv(context, element);
         }
@@ -76,34 +82,58 @@ public class Radio extends FormElement {
     }
   }
 
+  @Override
+  public void buildAll(MessageMLParser context, XMLStreamReader reader, Map<String, String> attributes)
+      throws InvalidInputException, ProcessingException, XMLStreamException {
+    switch (getFormat()) {
+      case MESSAGEML:
+        super.buildAll(context, reader, attributes);
+        break;
+      case PRESENTATIONML:
+        if(INPUT_TAG.equals(reader.getLocalName())) {
+          buildAttrFromInputTag(context, reader, attributes);
+        } else {
+          buildElementFromGroupDiv(context, reader);
+        }
+        this.validate();
+        break;
+      default:
+        throw new InvalidInputException(String.format("Invalid message format for \"%s\" element", MESSAGEML_TAG));
+    }
+  }
+
   @Override
   public org.commonmark.node.Node asMarkdown() {
     return new FormElementNode(MARKDOWN, getAttribute(NAME_ATTR));
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderFormElement(this, MARKDOWN, getAttribute(NAME_ATTR));
+  }
+
+  @Override
+  boolean startPresentationML(XmlWriter out) {
     Map<String, String> presentationAttrs = buildRadioInputAttributes();
 
     if (getChildren().isEmpty()) {
       out.printElement(INPUT_TAG, presentationAttrs);
+      return false;
     }
-    
-    else {
-      out.openElement(PRESENTATIONML_DIV_TAG, PRESENTATIONML_CLASS_ATTR, PRESENTATIONML_DIV_CLASS);
 
-      out.printElement(INPUT_TAG, presentationAttrs);
+    out.openElement(PRESENTATIONML_DIV_TAG, PRESENTATIONML_CLASS_ATTR, PRESENTATIONML_DIV_CLASS);
 
-      out.openElement(PRESENTATIONML_LABEL_TAG);
-      for (Element child : getChildren()) {
-        child.asPresentationML(out);
-      }
-      out.closeElement(); // Closing label
+    out.printElement(INPUT_TAG, presentationAttrs);
 
-      out.closeElement(); // Closing div
-    }
-    
-    
+    out.openElement(PRESENTATIONML_LABEL_TAG);
+    return true;
+  }
+
+  @Override
+  void endPresentationML(XmlWriter out) {
+    out.closeElement(); // Closing label
+
+    out.closeElement(); // Closing div
   }
 
   @Override
@@ -116,24 +146,24 @@ public class Radio extends FormElement {
     }
     
     if (!getChildren().isEmpty()) {
-      assertContentModel(Arrays.asList(TextNode.class, Bold.class, Italic.class));
+      assertContentModel(PERMITTED_CHILDREN);
     }
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case NAME_ATTR:
-        setAttribute(NAME_ATTR, getStringAttribute(item));
+        setAttribute(NAME_ATTR, value);
         break;
       case VALUE_ATTR:
-        setAttribute(VALUE_ATTR, getStringAttribute(item));
+        setAttribute(VALUE_ATTR, value);
         break;
       case CHECKED_ATTR:
-        setAttribute(CHECKED_ATTR, getStringAttribute(item));
+        setAttribute(CHECKED_ATTR, value);
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName()
+        throw new InvalidInputException("Attribute \"" + name
             + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
@@ -153,7 +183,7 @@ public class Radio extends FormElement {
 
       switch (children.item(i).getNodeName()) {
         case INPUT_TAG:
-          buildAttrFromInputTag(children.item(i));
+          buildAttrFromInputTag(context, children.item(i));
           firstNodeName = INPUT_TAG;
           break;
         case PRESENTATIONML_LABEL_TAG:
@@ -167,6 +197,8 @@ public class Radio extends FormElement {
   }
 
   private void buildTextFromLabelTag(MessageMLParser context, org.w3c.dom.Node labelElement) throws InvalidInputException, ProcessingException {
+    context.validateEntities((org.w3c.dom.Element) labelElement, false);
+
     NodeList childNodes = labelElement.getChildNodes();
     if(childNodes == null || childNodes.getLength() <= 0) {
       throw new InvalidInputException(String.format("Invalid PresentationML for the \"%s\" element", MESSAGEML_TAG));
@@ -177,7 +209,9 @@ public class Radio extends FormElement {
     }
   }
 
-  private void buildAttrFromInputTag(org.w3c.dom.Node inputElement) throws InvalidInputException {
+  private void buildAttrFromInputTag(MessageMLParser context, org.w3c.dom.Node inputElement) throws InvalidInputException {
+    context.validateEntities((org.w3c.dom.Element) inputElement, true);
+
     NamedNodeMap inputAttributes = inputElement.getAttributes();
     inputAttributes.removeNamedItem(TYPE_ATTR);
 
@@ -186,6 +220,58 @@ public class Radio extends FormElement {
     }
   }
 
+  private void buildElementFromGroupDiv(MessageMLParser context, XMLStreamReader reader) throws InvalidInputException,
+      ProcessingException, XMLStreamException {
+    String firstNodeName = "";
+    int count = 0;
+
+    for (int event = reader.next(); event != XMLStreamConstants.END_ELEMENT; event = reader.next()) {
+      if (event != XMLStreamConstants.START_ELEMENT || ++count > PRESENTATIONML_DIV_NUMBER_OF_CHILDREN
+          || firstNodeName.equals(reader.getLocalName())) {
+        throw new InvalidInputException(String.format("Invalid PresentationML for the \"%s\" element", MESSAGEML_TAG));
+      }
+
+      switch (reader.getLocalName()) {
+        case INPUT_TAG:
+          buildAttrFromInputTag(context, reader, context.getAttributes(reader));
+          firstNodeName = INPUT_TAG;
+          break;
+        case PRESENTATIONML_LABEL_TAG:
+          context.getAttributes(reader);
+          buildTextFromLabelTag(context, reader);
+          firstNodeName = PRESENTATIONML_LABEL_TAG;
+          break;
+        default:
+          throw new InvalidInputException(String.format("Invalid PresentationML for the \"%s\" element", MESSAGEML_TAG));
+      }
+    }
+
+    if (count != PRESENTATIONML_DIV_NUMBER_OF_CHILDREN) {
+      throw new InvalidInputException(String.format("Invalid PresentationML for the \"%s\" element", MESSAGEML_TAG));
+    }
+  }
+
+  private void buildTextFromLabelTag(MessageMLParser context, XMLStreamReader reader) throws InvalidInputException,
+      ProcessingException, XMLStreamException {
+    int count = getChildren().size();
+    buildNodes(context, reader);
+
+    if (getChildren().size() == count) {
+      throw new InvalidInputException(String.format("Invalid PresentationML for the \"%s\" element", MESSAGEML_TAG));
+    }
+  }
+
+  private void buildAttrFromInputTag(MessageMLParser context, XMLStreamReader reader, Map<String, String> attributes)
+      throws InvalidInputException, XMLStreamException {
+    attributes.remove(TYPE_ATTR);
+
+    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+      buildAttribute(attribute.getKey(), attribute.getValue());
+    }
+
+    skipNodes(context, reader);
+  }
+
   private Map<String, String> buildRadioInputAttributes() {
     Map<String, String> presentationAttrs = new LinkedHashMap<>();
     presentationAttrs.put(TYPE_ATTR, PRESENTATIONML_INPUT_TYPE);
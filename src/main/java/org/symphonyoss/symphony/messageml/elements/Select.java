@@ -17,10 +17,10 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.SelectNode;
 
 import java.util.Arrays;
-import java.util.Collections;
 
 /**
  * Class representing dropdown menu - Symphony Elements.
@@ -31,6 +31,7 @@ import java.util.Collections;
 public class Select extends FormElement {
 
   public static final String MESSAGEML_TAG = "select";
+  private static final ContentModel PERMITTED_CHILDREN = ContentModel.of(Option.class);
   private static final String REQUIRED_ATTR = "required";
   private static final String OPTION_SELECTED_ATTR = "selected";
 
@@ -44,6 +45,11 @@ public class Select extends FormElement {
     return new SelectNode(getAttribute(NAME_ATTR));
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderSelect(this, getAttribute(NAME_ATTR));
+  }
+
   @Override
   public void validate() throws InvalidInputException {
     super.validate();
@@ -52,8 +58,8 @@ public class Select extends FormElement {
       throw new InvalidInputException("The attribute \"name\" is required");
     }
 
-    assertContentModel(Collections.singleton(Option.class));
-    assertContainsChildOfType(Collections.singleton(Option.class));
+    assertContentModel(PERMITTED_CHILDREN);
+    assertContainsChildOfType(PERMITTED_CHILDREN);
 
     if(getAttribute(REQUIRED_ATTR) != null) {
       assertAttributeValue(REQUIRED_ATTR, Arrays.asList(Boolean.TRUE.toString(), Boolean.FALSE.toString()));
@@ -63,16 +69,16 @@ public class Select extends FormElement {
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case NAME_ATTR:
-        setAttribute(NAME_ATTR, getStringAttribute(item));
+        setAttribute(NAME_ATTR, value);
         break;
       case REQUIRED_ATTR:
-        setAttribute(REQUIRED_ATTR, getStringAttribute(item));
+        setAttribute(REQUIRED_ATTR, value);
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName()
+        throw new InvalidInputException("Attribute \"" + name
             + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
@@ -2,6 +2,8 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
 import java.util.HashSet;
@@ -126,6 +128,27 @@ public class Styles {
     ALLOWED_PROPERTIES.add("word-wrap");
   }
 
+  /**
+   * Maximum length of the style attributes which may be cached, so that a cache holds at most its size times this
+   * many characters. Longer attributes are checked every time.
+   */
+  public static final int MAX_CACHED_LENGTH = 256;
+
+  static final Styles UNCACHED = new Styles(0);
+
+  private static final String[] PROPERTY_TABLE = buildPropertyTable(ALLOWED_PROPERTIES);
+  private final Cache<String, Boolean> validStyles;
+
+  /**
+   * Create a checker of style attributes which keeps up to the given number of attributes which passed validation,
+   * so that attributes repeated across messages, e.g. by templates, are not checked again. Only attributes of up to
+   * {@link #MAX_CACHED_LENGTH} characters are cached.
+   * @param cacheSize maximum number of style attributes to keep, or 0 to check every attribute
+   */
+  public Styles(int cacheSize) {
+    this.validStyles = (cacheSize > 0) ? CacheBuilder.newBuilder().maximumSize(cacheSize).build() : null;
+  }
+
   /**
    * Validate that the input style attribute is allowed
    *
@@ -133,6 +156,29 @@ public class Styles {
    * @throws InvalidInputException if the styleAttribute is allowed
    */
   public static void validate(String styleAttribute) throws InvalidInputException {
+    UNCACHED.check(styleAttribute);
+  }
+
+  /**
+   * Validate that the input style attribute is allowed, skipping attributes which are in the cache of this checker.
+   *
+   * @param styleAttribute input style string
+   * @throws InvalidInputException if the styleAttribute is allowed
+   */
+  public void check(String styleAttribute) throws InvalidInputException {
+    boolean cacheable = validStyles != null && styleAttribute.length() <= MAX_CACHED_LENGTH;
+
+    if (cacheable && validStyles.getIfPresent(styleAttribute) != null) {
+      return;
+    }
+
+    if (isValid(styleAttribute)) {
+      if (cacheable) {
+        validStyles.put(styleAttribute, Boolean.TRUE);
+      }
+      return;
+    }
+
     try {
       final Map<String, String> styleMap = Splitter.on(";").omitEmptyStrings().withKeyValueSeparator(":").split(styleAttribute);
       final HashSet<String> inputStyleProperties = new HashSet<>(styleMap.keySet());
@@ -145,4 +191,116 @@ public class Styles {
     }
   }
 
+  /**
+   * Check the style attribute in place, without splitting it. Declarations are separated by ";" and empty ones are
+   * skipped. Each declaration must have exactly one ":" and its property, taken as it is without trimming, must be
+   * allowed and not repeated. Invalid attributes are then split again to report the error.
+   */
+  static boolean isValid(String styleAttribute) {
+    int length = styleAttribute.length();
+    int start = 0;
+    int colon = styleAttribute.indexOf(':');
+    // Bits of the hash codes of the properties declared so far, to only look for repeated properties on a match
+    long declared = 0;
+
+    while (start < length) {
+      int end = indexOf(styleAttribute, ';', start, length);
+
+      if (end > start) {
+        if (colon < 0 || colon > end) {
+          return false;
+        }
+
+        int nextColon = styleAttribute.indexOf(':', colon + 1);
+        if (nextColon >= 0 && nextColon < end) {
+          return false;
+        }
+
+        int hash = 0;
+        for (int i = start; i < colon; i++) {
+          // Hash the property as String.hashCode() does
+          hash = 31 * hash + styleAttribute.charAt(i);
+        }
+
+        long bit = 1L << hash;
+        if (!isAllowedProperty(styleAttribute, start, colon, hash)
+            || ((declared & bit) != 0 && isDeclared(styleAttribute, start, colon))) {
+          return false;
+        }
+
+        declared |= bit;
+        colon = nextColon;
+      }
+
+      start = end + 1;
+    }
+
+    return true;
+  }
+
+  private static boolean isAllowedProperty(String s, int start, int end, int hash) {
+    String property = PROPERTY_TABLE[Math.floorMod(hash, PROPERTY_TABLE.length)];
+
+    if (property != null && property.length() == end - start && s.regionMatches(start, property, 0, end - start)) {
+      return true;
+    }
+
+    // Properties added to the set after the table was built
+    return ALLOWED_PROPERTIES.contains(s.substring(start, end));
+  }
+
+  /**
+   * Check whether the property between start and end was already declared before start.
+   */
+  private static boolean isDeclared(String s, int start, int end) {
+    int length = end - start;
+    int declaration = 0;
+
+    while (declaration < start) {
+      int colon = indexOf(s, ':', declaration, start);
+      int next = indexOf(s, ';', declaration, start) + 1;
+
+      if (colon - declaration == length && s.regionMatches(declaration, s, start, length)) {
+        return true;
+      }
+
+      declaration = next;
+    }
+
+    return false;
+  }
+
+  /**
+   * Return the index of the character between start and end, or end if it is not found.
+   */
+  private static int indexOf(String s, char c, int start, int end) {
+    int index = s.indexOf(c, start);
+    return (index < 0 || index > end) ? end : index;
+  }
+
+  /**
+   * Build a perfect hash table of the properties: the smallest table in which the hash codes of all properties fall
+   * in different slots.
+   */
+  private static String[] buildPropertyTable(Set<String> properties) {
+    for (int size = properties.size(); ; size++) {
+      String[] table = new String[size];
+      boolean perfect = true;
+
+      for (String property : properties) {
+        int slot = Math.floorMod(property.hashCode(), size);
+
+        if (table[slot] != null) {
+          perfect = false;
+          break;
+        }
+        table[slot] = property;
+      }
+
+      if (perfect) {
+        return table;
+      }
+    }
+  }
+
 }
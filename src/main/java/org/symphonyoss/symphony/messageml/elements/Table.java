@@ -18,10 +18,9 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.TableNode;
 
-import java.util.Arrays;
-
 /**
  * Class representing a table container.
  *
@@ -30,6 +29,8 @@ import java.util.Arrays;
  */
 public class Table extends Element {
   public static final String MESSAGEML_TAG = "table";
+  private static final ContentModel PERMITTED_CHILDREN = ContentModel.of(TableHeader.class, TableBody.class,
+      TableFooter.class, TableRow.class);
 
   public Table(Element parent) {
     super(parent, MESSAGEML_TAG);
@@ -40,6 +41,11 @@ public class Table extends Element {
     return new TableNode();
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderTable(this);
+  }
+
   @Override
   public String toString() {
     return "Table";
@@ -48,7 +54,7 @@ public class Table extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Arrays.asList(TableHeader.class, TableBody.class, TableFooter.class, TableRow.class));
+    assertContentModel(PERMITTED_CHILDREN);
   }
 
 }
@@ -18,8 +18,6 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
-import java.util.Collections;
-
 /**
  * Class representing a table body container.
  *
@@ -28,6 +26,7 @@ import java.util.Collections;
  */
 public class TableBody extends Element {
   public static final String MESSAGEML_TAG = "tbody";
+  private static final ContentModel PERMITTED_CHILDREN = ContentModel.of(TableRow.class);
 
   public TableBody(Element parent) {
     super(parent, MESSAGEML_TAG);
@@ -41,6 +40,6 @@ public class TableBody extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Collections.<Class<? extends Element>>singleton(TableRow.class));
+    assertContentModel(PERMITTED_CHILDREN);
   }
 }
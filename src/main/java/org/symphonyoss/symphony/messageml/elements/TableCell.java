@@ -18,6 +18,7 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.TableCellNode;
 
 /**
@@ -36,16 +37,16 @@ public class TableCell extends Element {
   }
 
   @Override
-  void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case ATTR_ROWSPAN:
-        setAttribute(ATTR_ROWSPAN, getLongAttribute(item).toString());
+        setAttribute(ATTR_ROWSPAN, getLongAttribute(name, value).toString());
         break;
       case ATTR_COLSPAN:
-        setAttribute(ATTR_COLSPAN, getLongAttribute(item).toString());
+        setAttribute(ATTR_COLSPAN, getLongAttribute(name, value).toString());
         break;
       default:
-        super.buildAttribute(item);
+        super.buildAttribute(name, value);
     }
   }
 
@@ -54,6 +55,11 @@ public class TableCell extends Element {
     return new TableCellNode();
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderTableCell(this);
+  }
+
   @Override
   public String toString() {
     return "Cell";
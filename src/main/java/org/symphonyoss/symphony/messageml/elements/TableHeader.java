@@ -18,8 +18,6 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
-import java.util.Collections;
-
 /**
  * Class representing a table header container.
  *
@@ -28,6 +26,7 @@ import java.util.Collections;
  */
 public class TableHeader extends Element {
   public static final String MESSAGEML_TAG = "thead";
+  private static final ContentModel PERMITTED_CHILDREN = ContentModel.of(TableRow.class);
 
   public TableHeader(Element parent) {
     super(parent, MESSAGEML_TAG);
@@ -41,6 +40,6 @@ public class TableHeader extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Collections.<Class<? extends Element>>singleton(TableRow.class));
+    assertContentModel(PERMITTED_CHILDREN);
   }
 }
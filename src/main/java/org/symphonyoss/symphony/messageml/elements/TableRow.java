@@ -18,10 +18,9 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.TableRowNode;
 
-import java.util.Arrays;
-
 /**
  * Class representing a table row container.
  *
@@ -30,6 +29,7 @@ import java.util.Arrays;
  */
 public class TableRow extends Element {
   public static final String MESSAGEML_TAG = "tr";
+  private static final ContentModel PERMITTED_CHILDREN = ContentModel.of(TableHeaderCell.class, TableCell.class);
 
   public TableRow(Element parent) {
     super(parent, MESSAGEML_TAG);
@@ -40,6 +40,11 @@ public class TableRow extends Element {
     return new TableRowNode();
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderTableRow(this);
+  }
+
   @Override
   public String toString() {
     return "Row";
@@ -48,6 +53,6 @@ public class TableRow extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Arrays.asList(TableHeaderCell.class, TableCell.class));
+    assertContentModel(PERMITTED_CHILDREN);
   }
 }
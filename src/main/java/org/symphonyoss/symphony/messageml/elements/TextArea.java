@@ -2,10 +2,10 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.FormElementNode;
 
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -16,6 +16,7 @@ import java.util.List;
 public class TextArea extends FormElement {
 
   public static final String MESSAGEML_TAG = "textarea";
+  private static final ContentModel PERMITTED_CHILDREN = ContentModel.of(TextNode.class);
 
   private static final String PLACEHOLDER_ATTR = "placeholder";
   private static final String REQUIRED_ATTR = "required";
@@ -39,23 +40,23 @@ public class TextArea extends FormElement {
       assertAttributeValue(REQUIRED_ATTR, VALID_VALUES_FOR_REQUIRED_ATTR);
     }
 
-    assertContentModel(Collections.singleton(TextNode.class));
+    assertContentModel(PERMITTED_CHILDREN);
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case NAME_ATTR:
-        setAttribute(NAME_ATTR, getStringAttribute(item));
+        setAttribute(NAME_ATTR, value);
         break;
       case REQUIRED_ATTR:
-        setAttribute(REQUIRED_ATTR, getStringAttribute(item));
+        setAttribute(REQUIRED_ATTR, value);
         break;
       case PLACEHOLDER_ATTR:
-        setAttribute(PLACEHOLDER_ATTR, getStringAttribute(item));
+        setAttribute(PLACEHOLDER_ATTR, value);
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName() + "\" is not allowed in \"" + getMessageMLTag() + "\"");
+        throw new InvalidInputException("Attribute \"" + name + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
 
@@ -67,4 +68,13 @@ public class TextArea extends FormElement {
       return new FormElementNode(MARKDOWN);
     }
   }
+
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    if (getAttribute(PLACEHOLDER_ATTR) != null) {
+      out.renderFormElement(this, MARKDOWN, ":" + getAttribute(PLACEHOLDER_ATTR));
+    } else {
+      out.renderFormElement(this, MARKDOWN, "");
+    }
+  }
 }
@@ -1,8 +1,9 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.FormElementNode;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 
 import java.util.*;
 
@@ -43,27 +44,28 @@ public class TextField extends FormElement {
   }
 
   @Override
-  protected void buildAttribute(org.w3c.dom.Node item) throws InvalidInputException {
-    switch (item.getNodeName()) {
+  protected void buildAttribute(String name, String value) throws InvalidInputException {
+    switch (name) {
       case NAME_ATTR:
-        setAttribute(NAME_ATTR, getStringAttribute(item));
+        setAttribute(NAME_ATTR, value);
         break;
       case REQUIRED_ATTR:
-        setAttribute(REQUIRED_ATTR, getStringAttribute(item));
+        setAttribute(REQUIRED_ATTR, value);
         break;
       case PLACEHOLDER_ATTR:
-        setAttribute(PLACEHOLDER_ATTR, getStringAttribute(item));
+        setAttribute(PLACEHOLDER_ATTR, value);
         break;
       default:
-        throw new InvalidInputException("Attribute \"" + item.getNodeName()
+        throw new InvalidInputException("Attribute \"" + name
             + "\" is not allowed in \"" + getMessageMLTag() + "\"");
     }
   }
   
   @Override
-  public void asPresentationML(XmlPrintStream out) {
+  boolean startPresentationML(XmlWriter out) {
     Map<String, String> presentationAttrs = buildTextFieldInputAttributes();
     out.printElement(INPUT_TAG, presentationAttrs);
+    return false;
   }
 
   @Override
@@ -76,6 +78,15 @@ public class TextField extends FormElement {
     }
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    if (getAttribute(PLACEHOLDER_ATTR) != null) {
+      out.renderFormElement(this, MARKDOWN, ":" + getAttribute(PLACEHOLDER_ATTR));
+    } else {
+      out.renderFormElement(this, MARKDOWN, "");
+    }
+  }
+
   private Map<String, String> buildTextFieldInputAttributes() {
     Map<String, String> presentationAttrs = new LinkedHashMap<>();
     
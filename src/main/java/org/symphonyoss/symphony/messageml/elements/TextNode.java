@@ -17,7 +17,9 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import org.commonmark.node.Node;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
+import org.symphonyoss.symphony.messageml.util.XmlWriter;
 import org.w3c.dom.Text;
 
 /**
@@ -39,13 +41,25 @@ public class TextNode extends Element {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out) {
-    String content = this.text;
-    if (out.isRemoveNl() && !(getParent() instanceof Code)) { // Do not remove newlines if the parent node is a code node
-      content = XmlPrintStream.removeNewLines(content);
+  boolean startPresentationML(XmlWriter out) {
+    if (this.text != null) {
+      // Do not remove newlines if the parent node is a code node
+      out.printText(this.text, out.isRemoveNl() && !(getParent() instanceof Code));
     }
-    content = out.escape(content);
-    out.println(content);
+    return false;
+  }
+
+  @Override
+  boolean startPresentationText(PresentationTextSink out) {
+    if (this.text != null) {
+      out.appendText(this.text, out.isRemoveNl() && !(getParent() instanceof Code));
+    }
+    return false;
+  }
+
+  @Override
+  boolean isPresentationText() {
+    return true;
   }
 
   @Override
@@ -53,6 +67,11 @@ public class TextNode extends Element {
     return new org.commonmark.node.Text(this.text);
   }
 
+  @Override
+  public void asMarkdown(MarkdownRenderer out) throws InvalidInputException {
+    out.renderText(this.text);
+  }
+
   @Override
   protected void buildText(Text node) {
     this.text = node.getTextContent();
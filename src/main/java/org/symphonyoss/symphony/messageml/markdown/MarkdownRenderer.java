@@ -16,14 +16,16 @@
 
 package org.symphonyoss.symphony.messageml.markdown;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import org.apache.commons.lang3.StringUtils;
 import org.commonmark.node.*;
 import org.commonmark.renderer.text.TextContentWriter;
+import org.symphonyoss.symphony.messageml.elements.Element;
 import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.EmojiNode;
 import org.symphonyoss.symphony.messageml.markdown.nodes.KeywordNode;
 import org.symphonyoss.symphony.messageml.markdown.nodes.MentionNode;
@@ -36,17 +38,22 @@ import org.symphonyoss.symphony.messageml.markdown.nodes.form.FormElementNode;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.FormNode;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.OptionNode;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.SelectNode;
-import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 
 /**
  * Used for converting MessageMLV2 to legacy formats. Renders Commonmark {@link Node}s generated by
  * {@link MessageML}.asMarkdown() as their text (Markdown) representation
  * and associated entity data in JSON format.
+ *
+ * The renderer can also be written to directly by the elements of a {@link MessageML} element tree, see
+ * {@link Element#asMarkdown(MarkdownRenderer)}, with the same result and without building the Markdown tree.
  * @author lukasz
  * @since 3/30/17
  */
@@ -66,10 +73,21 @@ public class MarkdownRenderer extends AbstractVisitor {
   private static final String HASHTAGS = "hashtags";
   private static final String INDENT = "  ";
 
-  private static final Pattern NOESCAPE_PATTERN = Pattern.compile("^\\s*([_*\\-+`])\\1*\\s*$");
+  // Nodes providing the delimiters of the elements rendering themselves
+  private static final TableNode TABLE = new TableNode();
+  private static final TableRowNode TABLE_ROW = new TableRowNode();
+  private static final TableCellNode TABLE_CELL = new TableCellNode();
+  private static final PreformattedNode PREFORMATTED = new PreformattedNode();
+  private static final FormNode FORM = new FormNode();
+  private static final ButtonNode BUTTON = new ButtonNode();
+  private static final SelectNode SELECT = new SelectNode(null);
+  private static final OptionNode OPTION = new OptionNode();
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
 
   private final TrackingWriter writer = new TrackingWriter(new StringBuilder());
-  private final ObjectNode json = new ObjectNode(JsonNodeFactory.instance);
+  // Entities as JSON objects, by entity type in order of appearance
+  private final Map<String, TokenBuffer> entities = new LinkedHashMap<>();
 
   private boolean removeNewlines = true;
   private Character bulletListMarker;
@@ -78,6 +96,11 @@ public class MarkdownRenderer extends AbstractVisitor {
   private Character orderedListDelimiter;
   private int orderedListLevel = 0;
 
+  // State of the elements rendering themselves, standing for the structure of the Markdown tree
+  private boolean inListItem = false;
+  private boolean inCode = false;
+  private String pendingDelimiter;
+
   /**
    * Process the document tree and generate its text representation.
    * @param document the input document tree.
@@ -86,6 +109,15 @@ public class MarkdownRenderer extends AbstractVisitor {
     visit(document);
   }
 
+  /**
+   * Process the message element tree and generate its text representation, with the same result as rendering
+   * {@link MessageML#asMarkdown()}.
+   * @param messageML the input message.
+   */
+  public MarkdownRenderer(MessageML messageML) throws InvalidInputException {
+    messageML.asMarkdown(this);
+  }
+
   @Override
   public void visit(Document document) {
     visitChildren(document);
@@ -93,20 +125,7 @@ public class MarkdownRenderer extends AbstractVisitor {
 
   @Override
   public void visit(Text text) {
-    String content = text.getLiteral();
-    if (removeNewlines) {
-      content = XmlPrintStream.removeNewLines(content);
-    }
-
-
-    // If the line consists only of repeated reserved Markdown characters, ignore it
-    Matcher matcher = NOESCAPE_PATTERN.matcher(content);
-    if (!matcher.matches()) {
-      // Otherwise, escape reserved Markdown characters in text nodes to prevent them from being interpreted as MD
-      content = StringUtils.replaceEach(content, new String[]{"_","*","-","+","`"}, new String[]{"\\_","\\*","\\-","\\+","\\`"});
-    }
-
-    writer.write(content);
+    writer.writeEscaped(text.getLiteral(), removeNewlines);
   }
 
   @Override
@@ -135,88 +154,43 @@ public class MarkdownRenderer extends AbstractVisitor {
 
   @Override
   public void visit(Link a) {
-    String href = a.getDestination();
-
-    // Note: this is the correct Markdown representation of links with text. We can't do this as we'd break legacy clients.
-//    String markdown = (StringUtils.isNotBlank(a.getTitle())) ? String.format("[%s](%s)", a.getTitle().trim(), href) : href;
-
-    ObjectNode node = new ObjectNode(JsonNodeFactory.instance);
-    node.put(TEXT, href);
-    node.put(ID, href);
-    node.put(EXPANDED_URL, href);
-    node.put(INDEX_START, writer.length());
-    node.put(INDEX_END, writer.length() + href.length());
-    node.put(TYPE, "URL");
-    putJsonObject(URLS, node);
-
-    writer.write(href);
+    writeLink(a.getDestination());
   }
 
   @Override
   public void visit(BulletList ul) {
-    writer.line();
-
     Character previousMarker = bulletListMarker;
     int previousLevel = bulletListLevel;
 
-    bulletListLevel += (ul.getParent() instanceof ListItem) ? 1 : 0;
-
-    bulletListMarker = ul.getBulletMarker();
+    startBulletList(ul.getBulletMarker(), ul.getParent() instanceof ListItem);
     visitChildren(ul);
-    writer.line();
-
-    bulletListMarker = previousMarker;
-    bulletListLevel = previousLevel;
-
-    writer.line();
+    endBulletList(previousMarker, previousLevel);
   }
 
   @Override
   public void visit(org.commonmark.node.OrderedList ol) {
-    writer.line();
-
     Integer previousCounter = orderedListCounter;
     Character previousDelimiter = orderedListDelimiter;
     int previousLevel = orderedListLevel;
 
-    orderedListLevel += (ol.getParent() instanceof ListItem) ? 1 : 0;
-
-    orderedListCounter = ol.getStartNumber();
-    orderedListDelimiter = ol.getDelimiter();
+    startOrderedList(ol.getStartNumber(), ol.getDelimiter(), ol.getParent() instanceof ListItem);
     visitChildren(ol);
-    writer.line();
-
-    orderedListCounter = previousCounter;
-    orderedListDelimiter = previousDelimiter;
-    orderedListLevel = previousLevel;
-
-    writer.line();
+    endOrderedList(previousCounter, previousDelimiter, previousLevel);
   }
 
   @Override
   public void visit(ListItem li) {
-    if (orderedListCounter != null) {
-      writer.write(StringUtils.repeat(INDENT, orderedListLevel) + String.valueOf(orderedListCounter) +
-          orderedListDelimiter + " ");
-      visitChildren(li);
-      writer.line();
-      orderedListCounter++;
-    } else if (bulletListMarker != null) {
-      writer.write( StringUtils.repeat(INDENT, bulletListLevel) + bulletListMarker + " ");
+    if (startListItem()) {
       visitChildren(li);
-      writer.line();
+      endListItem();
     }
   }
 
   @Override
   public void visit(FencedCodeBlock code) {
-    writer.line();
-    writer.writeStripped(StringUtils.repeat(code.getFenceChar(), code.getFenceLength()));
-    writer.line();
+    writeFence(code.getFenceChar(), code.getFenceLength());
     visitChildren(code, Collections.<Class<? extends Node>>singleton(Text.class));
-    writer.line();
-    writer.writeStripped(StringUtils.repeat(code.getFenceChar(), code.getFenceLength()));
-    writer.line();
+    writeFence(code.getFenceChar(), code.getFenceLength());
   }
 
   @Override
@@ -291,34 +265,11 @@ public class MarkdownRenderer extends AbstractVisitor {
   }
 
   private void visit(KeywordNode keyword) {
-    String text = keyword.getPrefix() + keyword.getText();
-
-    ObjectNode node = new ObjectNode(JsonNodeFactory.instance);
-    node.put(ID, text);
-    node.put(TEXT, text);
-    node.put(INDEX_START, writer.length());
-    node.put(INDEX_END, writer.length() + text.length());
-    node.put(TYPE, "KEYWORD");
-    putJsonObject(HASHTAGS, node);
-
-    writer.write(text);
+    writeKeyword(keyword.getPrefix(), keyword.getText());
   }
 
   private void visit(MentionNode mention) {
-    String text = mention.getText();
-
-    ObjectNode node = new ObjectNode(JsonNodeFactory.instance);
-    node.put(ID, mention.getUid());
-    node.put(SCREEN_NAME, mention.getScreenName());
-    node.put(PRETTY_NAME, mention.getPrettyName());
-    node.put(TEXT, text);
-    node.put(INDEX_START, writer.length());
-    node.put(INDEX_END, writer.length() + text.length());
-    node.put(USER_TYPE, "lc");
-    node.put(TYPE, "USER_FOLLOW");
-    putJsonObject(USER_MENTIONS, node);
-
-    writer.write(text);
+    writeMention(mention.getUid(), mention.getPrettyName(), mention.getScreenName());
   }
 
   private void visit(TableNode table) {
@@ -374,12 +325,439 @@ public class MarkdownRenderer extends AbstractVisitor {
     }
   }
 
-  private void putJsonObject(String field, JsonNode value) {
-    if (!json.has(field)) {
-      json.set(field, new ArrayNode(JsonNodeFactory.instance));
+  /*
+   * Rendering of MessageML elements. Each method writes what visiting the element's Markdown node writes, with the
+   * children of the element standing for the children of the node:
+   * - inside a code block, only text is written, and elements which would render a node other than text only render
+   * their children;
+   * - the delimiter following a table row or cell is written when the next node starts, and dropped when there is no
+   * next node, i.e. when the children of the parent node end;
+   * - a list is nested if the closest element rendering a node is a list item.
+   * Elements without a Markdown node, such as spans, render their children in place.
+   */
+
+  /**
+   * Render the children of the element in place, as the children of the element's parent node.
+   */
+  public void renderChildren(Element element) throws InvalidInputException {
+    for (Element child : element.getChildren()) {
+      child.asMarkdown(this);
+    }
+  }
+
+  /**
+   * Render text, escaping reserved Markdown characters, as a {@link Text} node.
+   */
+  public void renderText(String text) {
+    startNode();
+    writer.writeEscaped(text, removeNewlines);
+  }
+
+  /**
+   * Render the element as a {@link HardLineBreak}.
+   */
+  public void renderLineBreak(Element element) throws InvalidInputException {
+    if (startNode(element)) {
+      writer.line();
+    }
+  }
+
+  /**
+   * Render the element as a {@link Paragraph}.
+   */
+  public void renderParagraph(Element element) throws InvalidInputException {
+    if (startNode(element)) {
+      writer.doubleLine();
+      renderNodeChildren(element);
+      writer.doubleLine();
+    }
+  }
+
+  /**
+   * Render the element as a {@link Paragraph} starting with the given text, e.g. for a horizontal rule.
+   */
+  public void renderParagraph(Element element, String text) throws InvalidInputException {
+    if (inCode) {
+      renderText(text);
+      renderChildren(element);
+    } else {
+      startNode();
+      writer.doubleLine();
+      renderText(text);
+      renderNodeChildren(element);
+      writer.doubleLine();
+    }
+  }
+
+  /**
+   * Render the element as an {@link Emphasis} or {@link StrongEmphasis} with the given delimiter.
+   */
+  public void renderDelimited(Element element, String delimiter) throws InvalidInputException {
+    if (startNode(element)) {
+      writer.write(delimiter);
+      renderNodeChildren(element);
+      writer.write(delimiter);
+    }
+  }
+
+  /**
+   * Render the element as a {@link Link}, written as its URL. The content of the element is not rendered.
+   */
+  public void renderLink(Element element, String href) throws InvalidInputException {
+    if (startNode(element)) {
+      writeLink(href);
+    }
+  }
+
+  /**
+   * Render the element as a {@link BulletList}.
+   */
+  public void renderBulletList(Element element, char bulletMarker) throws InvalidInputException {
+    Character previousMarker = bulletListMarker;
+    int previousLevel = bulletListLevel;
+
+    if (startNode(element)) {
+      startBulletList(bulletMarker, inListItem);
+      renderNodeChildren(element);
+      endBulletList(previousMarker, previousLevel);
+    }
+  }
+
+  /**
+   * Render the element as an {@link org.commonmark.node.OrderedList}.
+   */
+  public void renderOrderedList(Element element, int startNumber, char delimiter) throws InvalidInputException {
+    Integer previousCounter = orderedListCounter;
+    Character previousDelimiter = orderedListDelimiter;
+    int previousLevel = orderedListLevel;
+
+    if (startNode(element)) {
+      startOrderedList(startNumber, delimiter, inListItem);
+      renderNodeChildren(element);
+      endOrderedList(previousCounter, previousDelimiter, previousLevel);
+    }
+  }
+
+  /**
+   * Render the element as a {@link ListItem}.
+   */
+  public void renderListItem(Element element) throws InvalidInputException {
+    if (startNode(element) && startListItem()) {
+      renderNodeChildren(element, true);
+      endListItem();
+    }
+  }
+
+  /**
+   * Render the element as a {@link FencedCodeBlock}. Only the text of its content is rendered.
+   */
+  public void renderCode(Element element, char fenceChar, int fenceLength) throws InvalidInputException {
+    if (startNode(element)) {
+      writeFence(fenceChar, fenceLength);
+      inCode = true;
+      renderChildren(element);
+      inCode = false;
+      writeFence(fenceChar, fenceLength);
+    }
+  }
+
+  /**
+   * Render the element as a {@link PreformattedNode}, keeping the newlines of its text.
+   */
+  public void renderPreformatted(Element element) throws InvalidInputException {
+    if (startNode(element)) {
+      this.removeNewlines = false;
+      writer.write(PREFORMATTED.getOpeningDelimiter());
+      renderNodeChildren(element);
+      writer.write(PREFORMATTED.getClosingDelimiter());
+      writer.line();
+      this.removeNewlines = true;
+    }
+  }
+
+  /**
+   * Render the element as a {@link KeywordNode}, recording a hashtag entity.
+   */
+  public void renderKeyword(Element element, String prefix, String tag) throws InvalidInputException {
+    if (startNode(element)) {
+      writeKeyword(prefix, tag);
+    }
+  }
+
+  /**
+   * Render the element as a {@link MentionNode}, recording a user mention entity.
+   */
+  public void renderMention(Element element, long uid, String prettyName, String screenName)
+      throws InvalidInputException {
+    if (startNode(element)) {
+      writeMention(uid, prettyName, screenName);
     }
+  }
 
-    ((ArrayNode) json.get(field)).add(value);
+  /**
+   * Render the element as an {@link EmojiNode}.
+   */
+  public void renderEmoji(Element element, String shortcode) throws InvalidInputException {
+    if (startNode(element)) {
+      writer.write(EmojiNode.DELIMITER);
+      writer.write(shortcode);
+      writer.write(EmojiNode.DELIMITER);
+    }
+  }
+
+  /**
+   * Render the element as a {@link TableNode}.
+   */
+  public void renderTable(Element element) throws InvalidInputException {
+    if (startNode(element)) {
+      writer.write(TABLE.getOpeningDelimiter());
+      renderNodeChildren(element);
+      writer.write(TABLE.getClosingDelimiter());
+    }
+  }
+
+  /**
+   * Render the element as a {@link TableRowNode}.
+   */
+  public void renderTableRow(Element element) throws InvalidInputException {
+    if (startNode(element)) {
+      renderNodeChildren(element);
+      pendingDelimiter = TABLE_ROW.getDelimiter();
+    }
+  }
+
+  /**
+   * Render the element as a {@link TableCellNode}.
+   */
+  public void renderTableCell(Element element) throws InvalidInputException {
+    if (startNode(element)) {
+      renderNodeChildren(element);
+      pendingDelimiter = TABLE_CELL.getDelimiter();
+    }
+  }
+
+  /**
+   * Render the element as a {@link FormNode}.
+   */
+  public void renderForm(Element element) throws InvalidInputException {
+    if (startNode(element)) {
+      writer.write(FORM.getOpeningDelimiter());
+      renderNodeChildren(element);
+      writer.write(FORM.getClosingDelimiter());
+    }
+  }
+
+  /**
+   * Render the element as a {@link ButtonNode}.
+   */
+  public void renderButton(Element element) throws InvalidInputException {
+    if (startNode(element)) {
+      writer.write(BUTTON.getOpeningDelimiter());
+      renderNodeChildren(element);
+      writer.write(BUTTON.getClosingDelimiter());
+    }
+  }
+
+  /**
+   * Render the element as a {@link SelectNode} with the given name.
+   */
+  public void renderSelect(Element element, String name) throws InvalidInputException {
+    if (startNode(element)) {
+      writer.write(SELECT.getOpeningDelimiter());
+      writer.write(name);
+      writer.write(SELECT.getClosingDelimiter());
+      renderNodeChildren(element);
+    }
+  }
+
+  /**
+   * Render the element as an {@link OptionNode}.
+   */
+  public void renderOption(Element element) throws InvalidInputException {
+    if (startNode(element)) {
+      writer.write(OPTION.getOpeningDelimiter());
+      renderNodeChildren(element);
+      writer.write(OPTION.getClosingDelimiter());
+    }
+  }
+
+  /**
+   * Render the element as a {@link FormElementNode} with the given Markdown tag and text. The content of the
+   * element is not rendered.
+   */
+  public void renderFormElement(Element element, String tag, String text) throws InvalidInputException {
+    if (startNode(element)) {
+      writer.write(FormElementNode.LEFT_DELIMITER);
+      writer.write(tag);
+      writer.write(text);
+      writer.write(FormElementNode.RIGHT_DELIMITER);
+    }
+  }
+
+  /**
+   * Start rendering the node of an element, writing the delimiter of the previous table row or cell. Return false if
+   * the node is not rendered as it is inside a code block, in which case the element's children are rendered.
+   */
+  private boolean startNode(Element element) throws InvalidInputException {
+    if (inCode) {
+      renderChildren(element);
+      return false;
+    }
+
+    startNode();
+    return true;
+  }
+
+  private void startNode() {
+    if (pendingDelimiter != null) {
+      writer.write(pendingDelimiter);
+      pendingDelimiter = null;
+    }
+  }
+
+  /**
+   * Render the children of the element as the children of its node.
+   */
+  private void renderNodeChildren(Element element) throws InvalidInputException {
+    renderNodeChildren(element, false);
+  }
+
+  private void renderNodeChildren(Element element, boolean listItem) throws InvalidInputException {
+    boolean previousInListItem = inListItem;
+    inListItem = listItem;
+    renderChildren(element);
+    inListItem = previousInListItem;
+    pendingDelimiter = null;
+  }
+
+  private void writeLink(String href) {
+    // Note: this is the correct Markdown representation of links with text. We can't do this as we'd break legacy clients.
+//    String markdown = (StringUtils.isNotBlank(a.getTitle())) ? String.format("[%s](%s)", a.getTitle().trim(), href) : href;
+
+    try {
+      TokenBuffer entity = startEntity(URLS);
+      entity.writeStringField(TEXT, href);
+      entity.writeStringField(ID, href);
+      entity.writeStringField(EXPANDED_URL, href);
+      entity.writeNumberField(INDEX_START, writer.length());
+      entity.writeNumberField(INDEX_END, writer.length() + href.length());
+      entity.writeStringField(TYPE, "URL");
+      entity.writeEndObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    writer.write(href);
+  }
+
+  private void writeKeyword(String prefix, String tag) {
+    String text = prefix + tag;
+
+    try {
+      TokenBuffer entity = startEntity(HASHTAGS);
+      entity.writeStringField(ID, text);
+      entity.writeStringField(TEXT, text);
+      entity.writeNumberField(INDEX_START, writer.length());
+      entity.writeNumberField(INDEX_END, writer.length() + text.length());
+      entity.writeStringField(TYPE, "KEYWORD");
+      entity.writeEndObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    writer.write(text);
+  }
+
+  private void writeMention(long uid, String prettyName, String screenName) {
+    String text = MentionNode.PREFIX + prettyName;
+
+    try {
+      TokenBuffer entity = startEntity(USER_MENTIONS);
+      entity.writeNumberField(ID, uid);
+      entity.writeStringField(SCREEN_NAME, screenName);
+      entity.writeStringField(PRETTY_NAME, prettyName);
+      entity.writeStringField(TEXT, text);
+      entity.writeNumberField(INDEX_START, writer.length());
+      entity.writeNumberField(INDEX_END, writer.length() + text.length());
+      entity.writeStringField(USER_TYPE, "lc");
+      entity.writeStringField(TYPE, "USER_FOLLOW");
+      entity.writeEndObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    writer.write(text);
+  }
+
+  /**
+   * Start the JSON object of an entity of the given type, in the buffer of the entities of that type.
+   */
+  private TokenBuffer startEntity(String type) throws IOException {
+    TokenBuffer buffer = entities.get(type);
+
+    if (buffer == null) {
+      buffer = new TokenBuffer(MAPPER, false);
+      entities.put(type, buffer);
+    }
+
+    buffer.writeStartObject();
+    return buffer;
+  }
+
+  private void startBulletList(char marker, boolean nested) {
+    writer.line();
+    bulletListLevel += nested ? 1 : 0;
+    bulletListMarker = marker;
+  }
+
+  private void endBulletList(Character previousMarker, int previousLevel) {
+    writer.line();
+    bulletListMarker = previousMarker;
+    bulletListLevel = previousLevel;
+    writer.line();
+  }
+
+  private void startOrderedList(int startNumber, char delimiter, boolean nested) {
+    writer.line();
+    orderedListLevel += nested ? 1 : 0;
+    orderedListCounter = startNumber;
+    orderedListDelimiter = delimiter;
+  }
+
+  private void endOrderedList(Integer previousCounter, Character previousDelimiter, int previousLevel) {
+    writer.line();
+    orderedListCounter = previousCounter;
+    orderedListDelimiter = previousDelimiter;
+    orderedListLevel = previousLevel;
+    writer.line();
+  }
+
+  /**
+   * Write the marker of a list item. Return false if the item is not inside a list, in which case it is not rendered.
+   */
+  private boolean startListItem() {
+    if (orderedListCounter != null) {
+      writer.write(StringUtils.repeat(INDENT, orderedListLevel) + String.valueOf(orderedListCounter) +
+          orderedListDelimiter + " ");
+      return true;
+    } else if (bulletListMarker != null) {
+      writer.write( StringUtils.repeat(INDENT, bulletListLevel) + bulletListMarker + " ");
+      return true;
+    }
+    return false;
+  }
+
+  private void endListItem() {
+    writer.line();
+    if (orderedListCounter != null) {
+      orderedListCounter++;
+    }
+  }
+
+  private void writeFence(char fenceChar, int fenceLength) {
+    writer.line();
+    writer.writeStripped(StringUtils.repeat(fenceChar, fenceLength));
+    writer.line();
   }
 
   /**
@@ -396,7 +774,71 @@ public class MarkdownRenderer extends AbstractVisitor {
    * input documents.
    */
   public ObjectNode getJson() {
-    return json;
+    TokenBuffer json = new TokenBuffer(MAPPER, false);
+
+    try {
+      writeJson(json);
+      return MAPPER.readTree(json.asParser());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Write the JSON representation of the input document to the provided generator, as {@link #getJson()} would
+   * be serialized, without building the JSON tree.
+   */
+  public void writeJson(JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+
+    for (Map.Entry<String, TokenBuffer> entry : entities.entrySet()) {
+      generator.writeArrayFieldStart(entry.getKey());
+      entry.getValue().serialize(generator);
+      generator.writeEndArray();
+    }
+
+    generator.writeEndObject();
+  }
+
+  /**
+   * Whether the text matches "^\s*([_*\-+`])\1*\s*$", i.e. a line made only of the same reserved Markdown character,
+   * such as a horizontal rule. The check stops at the first character which cannot be part of such a line.
+   */
+  private static boolean isRepeatedReservedChar(String text) {
+    int length = text.length();
+    int i = skipWhitespace(text, 0);
+
+    if (i == length || !isReservedChar(text.charAt(i))) {
+      return false;
+    }
+
+    char reserved = text.charAt(i);
+    while (i < length && text.charAt(i) == reserved) {
+      i++;
+    }
+
+    return skipWhitespace(text, i) == length;
+  }
+
+  private static int skipWhitespace(String text, int i) {
+    // Same characters as \s
+    while (i < text.length() && " \t\n\u000B\f\r".indexOf(text.charAt(i)) >= 0) {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean isReservedChar(char c) {
+    switch (c) {
+      case '_':
+      case '*':
+      case '-':
+      case '+':
+      case '`':
+        return true;
+      default:
+        return false;
+    }
   }
 
   class TrackingWriter extends TextContentWriter {
@@ -424,6 +866,69 @@ public class MarkdownRenderer extends AbstractVisitor {
       }
     }
 
+    /**
+     * Write text content, escaping reserved Markdown characters to prevent them from being interpreted as Markdown,
+     * unless the text consists only of repeated reserved characters. The text is copied into the buffer span by span.
+     * @param removeNl whether runs of newline characters are written as a single space, as by
+     * {@link org.symphonyoss.symphony.messageml.util.XmlPrintStream#removeNewLines(String)}
+     */
+    void writeEscaped(String text, boolean removeNl) {
+      if (text == null) {
+        return;
+      }
+
+      boolean escape = !isRepeatedReservedChar(text);
+      int start = 0;
+      int length = text.length();
+      boolean inNl = false;
+
+      for (int i = 0; i < length; i++) {
+        char c = text.charAt(i);
+
+        if (c == '\n' && removeNl) {
+          out.append(text, start, i);
+          if (!inNl) {
+            out.append(' ');
+            inNl = true;
+          }
+          start = i + 1;
+        } else {
+          inNl = false;
+
+          if (escape && isReservedChar(c)) {
+            out.append(text, start, i).append('\\');
+            start = i;
+          }
+        }
+      }
+
+      out.append(text, start, length);
+    }
+
+    // The last character is read from the buffer, as text may be appended to it directly
+
+    @Override
+    public void whitespace() {
+      append(' ');
+    }
+
+    @Override
+    public void colon() {
+      append(':');
+    }
+
+    @Override
+    public void line() {
+      append('\n');
+    }
+
+    private void append(char c) {
+      char lastChar = getLastChar();
+      if (lastChar != 0 && lastChar != c) {
+        write(c);
+      }
+    }
+
     @Override
     public String toString() {
       return out.toString();
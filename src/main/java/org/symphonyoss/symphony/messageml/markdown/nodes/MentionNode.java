@@ -26,7 +26,7 @@ import org.commonmark.node.CustomNode;
  */
 public class MentionNode extends CustomNode {
 
-  private static final String PREFIX = "@";
+  public static final String PREFIX = "@";
   private final String prettyName;
 
   private final String screenName;
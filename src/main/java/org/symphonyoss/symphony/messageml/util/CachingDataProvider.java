@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A data provider caching the results of another one, to be shared by the parses of many messages.
+ *
+ * Users are cached by UID and by email, ignoring its case, for a fixed time after their lookup. Failed lookups are cached as well,
+ * usually for a shorter time, and rethrown with the original message. URI checks are cached by scheme and host,
+ * i.e. the wrapped provider must accept or reject URIs based on their scheme and host only. Backend errors
+ * ({@link ProcessingException}) are not cached.
+ *
+ * Instances are thread-safe.
+ */
+public class CachingDataProvider implements IDataProvider {
+  private static final long DEFAULT_MAXIMUM_SIZE = 10000;
+  private static final long DEFAULT_EXPIRE_AFTER_WRITE = TimeUnit.MINUTES.toMillis(10);
+  private static final long DEFAULT_NOT_FOUND_EXPIRE_AFTER_WRITE = TimeUnit.MINUTES.toMillis(1);
+
+  private final IDataProvider dataProvider;
+  private final Cache<Object, IUserPresentation> users;
+  private final Cache<Object, InvalidInputException> usersNotFound;
+  private final Cache<String, Optional<InvalidInputException>> uris;
+  private final LongAdder userHits = new LongAdder();
+  private final LongAdder userMisses = new LongAdder();
+
+  /**
+   * Cache up to 10000 users and URI checks for 10 minutes, and failed user lookups for 1 minute.
+   */
+  public CachingDataProvider(IDataProvider dataProvider) {
+    this(dataProvider, DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRE_AFTER_WRITE, DEFAULT_NOT_FOUND_EXPIRE_AFTER_WRITE,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @param dataProvider the data provider whose results to cache
+   * @param maximumSize maximum number of users, failed user lookups and URI checks, each
+   * @param expireAfterWrite time for which users and URI checks are cached
+   * @param notFoundExpireAfterWrite time for which failed user lookups are cached
+   * @param unit unit of both times
+   */
+  public CachingDataProvider(IDataProvider dataProvider, long maximumSize, long expireAfterWrite,
+      long notFoundExpireAfterWrite, TimeUnit unit) {
+    this(dataProvider, maximumSize, expireAfterWrite, notFoundExpireAfterWrite, unit, Ticker.systemTicker());
+  }
+
+  CachingDataProvider(IDataProvider dataProvider, long maximumSize, long expireAfterWrite,
+      long notFoundExpireAfterWrite, TimeUnit unit, Ticker ticker) {
+    this.dataProvider = dataProvider;
+    this.users = newCache(maximumSize, expireAfterWrite, unit, ticker);
+    this.usersNotFound = newCache(maximumSize, notFoundExpireAfterWrite, unit, ticker);
+    this.uris = newCache(maximumSize, expireAfterWrite, unit, ticker);
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(String emailAddress) throws InvalidInputException {
+    String key = emailKey(emailAddress);
+    IUserPresentation user = getCachedUser(key);
+
+    if (user == null) {
+      try {
+        user = dataProvider.getUserPresentation(emailAddress);
+      } catch (InvalidInputException e) {
+        usersNotFound.put(key, e);
+        throw e;
+      }
+      putUser(key, user);
+    }
+
+    return user;
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+    IUserPresentation user = getCachedUser(uid);
+
+    if (user == null) {
+      try {
+        user = dataProvider.getUserPresentation(uid);
+      } catch (InvalidInputException e) {
+        usersNotFound.put(uid, e);
+        throw e;
+      }
+      putUser(uid, user);
+    }
+
+    return user;
+  }
+
+  /**
+   * Return the cached users and retrieve the others with a single call to the wrapped provider. Users whose lookup
+   * failed recently are left out, so that the single user lookups report the cached error. Each user is counted once
+   * in {@link #getUserCacheStats()}: users which are left out or not returned are counted by their single lookup.
+   */
+  @Override
+  public Collection<IUserPresentation> getUserPresentations(Collection<Long> uids,
+      Collection<String> emailAddresses) throws ProcessingException {
+    List<IUserPresentation> result = new ArrayList<>();
+    Set<Long> uncachedUids = new LinkedHashSet<>();
+    Map<String, String> uncachedEmails = new LinkedHashMap<>();
+
+    for (Long uid : uids) {
+      if (!addCachedUser(uid, result)) {
+        uncachedUids.add(uid);
+      }
+    }
+
+    for (String emailAddress : emailAddresses) {
+      String key = emailKey(emailAddress);
+      if (!addCachedUser(key, result)) {
+        uncachedEmails.put(key, emailAddress);
+      }
+    }
+
+    if (!uncachedUids.isEmpty() || !uncachedEmails.isEmpty()) {
+      for (IUserPresentation user : dataProvider.getUserPresentations(uncachedUids,
+          new ArrayList<>(uncachedEmails.values()))) {
+        if (uncachedUids.contains(user.getId())) {
+          userMisses.increment();
+          putUser(user.getId(), user);
+        }
+        if (user.getEmail() != null && uncachedEmails.containsKey(emailKey(user.getEmail()))) {
+          userMisses.increment();
+          putUser(emailKey(user.getEmail()), user);
+        }
+        result.add(user);
+      }
+    }
+
+    return result;
+  }
+
+  @Override
+  public void validateURI(URI uri) throws InvalidInputException, ProcessingException {
+    String key = uri.getScheme() + "://" + uri.getHost();
+    Optional<InvalidInputException> cached = uris.getIfPresent(key);
+
+    if (cached == null) {
+      try {
+        dataProvider.validateURI(uri);
+        cached = Optional.empty();
+      } catch (InvalidInputException e) {
+        cached = Optional.of(e);
+      }
+      uris.put(key, cached);
+    }
+
+    if (cached.isPresent()) {
+      throw new InvalidInputException(cached.get().getMessage(), cached.get());
+    }
+  }
+
+  /**
+   * Retrieve hit and miss counters of user lookups, failed lookups served from the cache counting as hits, and the
+   * number of cached users and failed lookups evicted.
+   */
+  public CacheStats getUserCacheStats() {
+    long evictionCount = users.stats().evictionCount() + usersNotFound.stats().evictionCount();
+    return new CacheStats(userHits.sum(), userMisses.sum(), 0, 0, 0, evictionCount);
+  }
+
+  /**
+   * Retrieve hit, miss and eviction counters of URI checks.
+   */
+  public CacheStats getURICacheStats() {
+    return uris.stats();
+  }
+
+  /**
+   * Discard all cached users, failed user lookups and URI checks.
+   */
+  public void invalidateAll() {
+    users.invalidateAll();
+    usersNotFound.invalidateAll();
+    uris.invalidateAll();
+  }
+
+  /**
+   * Retrieve a cached user, or null if the user is not cached. A failed lookup of the user is rethrown.
+   */
+  private IUserPresentation getCachedUser(Object key) throws InvalidInputException {
+    IUserPresentation user = users.getIfPresent(key);
+
+    if (user == null) {
+      InvalidInputException notFound = usersNotFound.getIfPresent(key);
+
+      if (notFound != null) {
+        userHits.increment();
+        throw new InvalidInputException(notFound.getMessage(), notFound);
+      }
+
+      userMisses.increment();
+    } else {
+      userHits.increment();
+    }
+
+    return user;
+  }
+
+  /**
+   * Add a cached user to the list. Return whether the user or a failed lookup of the user is cached. Only users
+   * added are counted as hits, failed lookups being counted by the single user lookup which reports them.
+   */
+  private boolean addCachedUser(Object key, List<IUserPresentation> result) {
+    IUserPresentation user = users.getIfPresent(key);
+
+    if (user != null) {
+      userHits.increment();
+      result.add(user);
+      return true;
+    }
+
+    return usersNotFound.getIfPresent(key) != null;
+  }
+
+  /**
+   * Return the key of a user in the caches by email, emails being matched ignoring case.
+   */
+  private static String emailKey(String emailAddress) {
+    return emailAddress.toLowerCase(Locale.ROOT);
+  }
+
+  private void putUser(Object key, IUserPresentation user) {
+    if (user != null) {
+      users.put(key, user);
+      usersNotFound.invalidate(key);
+    }
+  }
+
+  private static <K, V> Cache<K, V> newCache(long maximumSize, long expireAfterWrite, TimeUnit unit, Ticker ticker) {
+    return CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWrite, unit)
+        .ticker(ticker)
+        .recordStats()
+        .build();
+  }
+}
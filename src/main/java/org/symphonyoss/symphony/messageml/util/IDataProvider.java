@@ -20,6 +20,8 @@ import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
 
 import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
 
 /**
  * Used during message parsing to provide external data.
@@ -43,6 +45,23 @@ public interface IDataProvider {
    */
   IUserPresentation getUserPresentation(Long uid) throws InvalidInputException;
 
+  /**
+   * Retrieve user information objects for several users at once, based on their UIDs and emails. Called once per
+   * message with the users it mentions, so that they can be looked up with a single backend call.
+   * Users which are not returned are retrieved one by one with {@link #getUserPresentation(Long)} and
+   * {@link #getUserPresentation(String)}, which report lookup errors. The default implementation returns no users.
+   * Since users are looked up once the document tree of the message is built, an error in the structure of the
+   * message, e.g. text directly inside a list, is reported instead of a failed lookup of a user mentioned before it.
+   * @param uids UIDs of the users whose information to retrieve
+   * @param emailAddresses Emails of the users whose information to retrieve
+   * @return User presentation objects of the users found, in any order
+   * @throws ProcessingException thrown on a backend error
+   */
+  default Collection<IUserPresentation> getUserPresentations(Collection<Long> uids,
+      Collection<String> emailAddresses) throws ProcessingException {
+    return Collections.emptyList();
+  }
+
   /**
    * Check an URI against a whitelist of supported protocols.
    * @param uri the URI to check
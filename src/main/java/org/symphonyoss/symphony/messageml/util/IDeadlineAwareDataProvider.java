@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A data provider bounding the time of its lookups, e.g. with timeouts of its backend calls. Used instead of the
+ * lookups of {@link IDataProvider} when a message is parsed within a time budget, with the time left of the budget.
+ *
+ * A lookup which does not complete in time should fail with an {@link InvalidInputException}; the parser then
+ * reports the message as exceeding its budget.
+ */
+public interface IDeadlineAwareDataProvider extends IDataProvider {
+  /**
+   * Retrieve user information object based on user email, see {@link #getUserPresentation(String)}.
+   * @param timeout time left to retrieve the user
+   */
+  IUserPresentation getUserPresentation(String emailAddress, long timeout, TimeUnit unit)
+      throws InvalidInputException;
+
+  /**
+   * Retrieve user information object based on UID, see {@link #getUserPresentation(Long)}.
+   * @param timeout time left to retrieve the user
+   */
+  IUserPresentation getUserPresentation(Long uid, long timeout, TimeUnit unit) throws InvalidInputException;
+
+  /**
+   * Retrieve user information objects for several users at once, see
+   * {@link #getUserPresentations(Collection, Collection)}. The default implementation ignores the timeout.
+   * @param timeout time left to retrieve the users
+   */
+  default Collection<IUserPresentation> getUserPresentations(Collection<Long> uids,
+      Collection<String> emailAddresses, long timeout, TimeUnit unit) throws ProcessingException {
+    return getUserPresentations(uids, emailAddresses);
+  }
+
+  /**
+   * Check an URI against a whitelist of supported protocols, see {@link #validateURI(URI)}.
+   * @param timeout time left to check the URI
+   */
+  void validateURI(URI uri, long timeout, TimeUnit unit) throws InvalidInputException, ProcessingException;
+}
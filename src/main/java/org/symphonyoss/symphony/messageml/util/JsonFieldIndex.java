@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the field values of a JSON tree by field name, built in a single traversal. Lookups return the same
+ * results as {@link JsonNode#findValues(String)} and {@link JsonNode#findPath(String)} on the indexed tree, without
+ * searching the whole tree for each field name.
+ *
+ * As with {@link JsonNode#findValues(String)}, a field is not indexed under its name if one of its ancestor fields
+ * has the same name. The index does not reflect changes made to the tree after it has been built.
+ */
+public class JsonFieldIndex {
+  private final Map<String, List<JsonNode>> values = new HashMap<>();
+  private final Map<String, Integer> ancestors = new HashMap<>();
+
+  public JsonFieldIndex(JsonNode root) {
+    index(root);
+    ancestors.clear();
+  }
+
+  /**
+   * Retrieve the values of all fields with the given name, in document order. Equivalent to
+   * {@link JsonNode#findValues(String)}.
+   */
+  public List<JsonNode> findValues(String fieldName) {
+    List<JsonNode> result = values.get(fieldName);
+    return (result != null) ? Collections.unmodifiableList(result) : Collections.<JsonNode>emptyList();
+  }
+
+  /**
+   * Retrieve the value of the first field with the given name, or a missing node if there is none. Equivalent to
+   * {@link JsonNode#findPath(String)}.
+   */
+  public JsonNode findPath(String fieldName) {
+    List<JsonNode> result = values.get(fieldName);
+    return (result != null) ? result.get(0) : MissingNode.getInstance();
+  }
+
+  private void index(JsonNode node) {
+    if (node.isObject()) {
+      Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+
+      while (fields.hasNext()) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        String name = field.getKey();
+
+        if (!ancestors.containsKey(name)) {
+          values.computeIfAbsent(name, key -> new ArrayList<>(1)).add(field.getValue());
+        }
+
+        if (field.getValue().isContainerNode()) {
+          ancestors.merge(name, 1, Integer::sum);
+          index(field.getValue());
+          ancestors.computeIfPresent(name, (key, count) -> (count > 1) ? count - 1 : null);
+        }
+      }
+    } else if (node.isArray()) {
+      for (JsonNode element : node) {
+        index(element);
+      }
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import freemarker.ext.util.WrapperTemplateModel;
+import freemarker.template.AdapterTemplateModel;
+import freemarker.template.DefaultObjectWrapper;
+import freemarker.template.ObjectWrapper;
+import freemarker.template.SimpleCollection;
+import freemarker.template.TemplateCollectionModel;
+import freemarker.template.TemplateHashModelEx2;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+import freemarker.template.TemplateSequenceModel;
+import freemarker.template.Version;
+import freemarker.template.WrappingTemplateModel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Freemarker object wrapper which exposes Jackson {@link JsonNode} trees to templates without converting them to
+ * Java collections first. Objects and arrays are wrapped in adapters reading the underlying node on access, so only
+ * the parts of the tree used by the template are ever wrapped.
+ *
+ * Scalar values are wrapped as the Java values Jackson converts them to (String, Integer, Long, BigInteger, Double,
+ * Boolean or null), so templates see the same types and formatting as with a converted {@link Map}.
+ */
+public class JsonNodeObjectWrapper extends DefaultObjectWrapper {
+
+  public JsonNodeObjectWrapper(Version incompatibleImprovements) {
+    super(incompatibleImprovements);
+  }
+
+  @Override
+  public TemplateModel wrap(Object obj) throws TemplateModelException {
+    if (obj instanceof JsonNode) {
+      return wrapNode((JsonNode) obj);
+    }
+
+    return super.wrap(obj);
+  }
+
+  private TemplateModel wrapNode(JsonNode node) throws TemplateModelException {
+    switch (node.getNodeType()) {
+      case OBJECT:
+        return new ObjectNodeAdapter((ObjectNode) node, this);
+      case ARRAY:
+        return new ArrayNodeAdapter((ArrayNode) node, this);
+      case STRING:
+        return super.wrap(node.textValue());
+      case NUMBER:
+        return super.wrap(node.numberValue());
+      case BOOLEAN:
+        return super.wrap(node.booleanValue());
+      case BINARY:
+        try {
+          return super.wrap(node.binaryValue());
+        } catch (IOException e) {
+          throw new TemplateModelException(e);
+        }
+      case POJO:
+        return super.wrap(((POJONode) node).getPojo());
+      default:
+        return super.wrap(null);
+    }
+  }
+
+  /**
+   * Template hash backed by a JSON object.
+   */
+  private static class ObjectNodeAdapter extends WrappingTemplateModel implements TemplateHashModelEx2,
+      AdapterTemplateModel, WrapperTemplateModel {
+    private final ObjectNode node;
+
+    ObjectNodeAdapter(ObjectNode node, ObjectWrapper wrapper) {
+      super(wrapper);
+      this.node = node;
+    }
+
+    @Override
+    public TemplateModel get(String key) throws TemplateModelException {
+      return wrap(node.get(key));
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return node.size() == 0;
+    }
+
+    @Override
+    public int size() {
+      return node.size();
+    }
+
+    @Override
+    public TemplateCollectionModel keys() {
+      List<String> keys = new ArrayList<>(node.size());
+      node.fieldNames().forEachRemaining(keys::add);
+
+      return new SimpleCollection(keys, getObjectWrapper());
+    }
+
+    @Override
+    public TemplateCollectionModel values() {
+      List<JsonNode> values = new ArrayList<>(node.size());
+      node.elements().forEachRemaining(values::add);
+
+      return new SimpleCollection(values, getObjectWrapper());
+    }
+
+    @Override
+    public KeyValuePairIterator keyValuePairIterator() {
+      final Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+
+      return new KeyValuePairIterator() {
+        @Override
+        public boolean hasNext() {
+          return fields.hasNext();
+        }
+
+        @Override
+        public KeyValuePair next() throws TemplateModelException {
+          final Map.Entry<String, JsonNode> field = fields.next();
+          final TemplateModel key = wrap(field.getKey());
+          final TemplateModel value = wrap(field.getValue());
+
+          return new KeyValuePair() {
+            @Override
+            public TemplateModel getKey() {
+              return key;
+            }
+
+            @Override
+            public TemplateModel getValue() {
+              return value;
+            }
+          };
+        }
+      };
+    }
+
+    @Override
+    public Object getAdaptedObject(Class hint) {
+      return node;
+    }
+
+    @Override
+    public Object getWrappedObject() {
+      return node;
+    }
+  }
+
+  /**
+   * Template sequence backed by a JSON array.
+   */
+  private static class ArrayNodeAdapter extends WrappingTemplateModel implements TemplateSequenceModel,
+      AdapterTemplateModel, WrapperTemplateModel {
+    private final ArrayNode node;
+
+    ArrayNodeAdapter(ArrayNode node, ObjectWrapper wrapper) {
+      super(wrapper);
+      this.node = node;
+    }
+
+    @Override
+    public TemplateModel get(int index) throws TemplateModelException {
+      return (index < node.size()) ? wrap(node.get(index)) : null;
+    }
+
+    @Override
+    public int size() {
+      return node.size();
+    }
+
+    @Override
+    public Object getAdaptedObject(Class hint) {
+      return node;
+    }
+
+    @Override
+    public Object getWrappedObject() {
+      return node;
+    }
+  }
+}
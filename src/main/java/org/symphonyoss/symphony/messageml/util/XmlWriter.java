@@ -0,0 +1,444 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A compact XML writer, printing elements without indentation or line breaks into a character buffer. Tags and
+ * attributes are copied into the buffer directly and text is only escaped when it contains reserved XML
+ * characters.
+ *
+ * The buffer can be reused for several documents with {@link #reset()}. Instances are not thread-safe.
+ *
+ * The size of the output can be limited with {@link #setMaxBytes(int)}, in which case its UTF-8 length is counted as
+ * it is written and a {@link LimitExceeded} signal is thrown as soon as it crosses the limit.
+ */
+public class XmlWriter {
+  private static final int DEFAULT_CAPACITY = 1024;
+  private static final int BYTE_BUFFER_SIZE = 8192;
+
+  private char[] buf;
+  private int count;
+  private String[] elementStack = new String[16];
+  private int depth;
+  private boolean removeNl = true;
+  private int preformattedDepth;
+  private int maxBytes = Integer.MAX_VALUE;
+  private long byteCount;
+  private byte[] bytes;
+
+  public XmlWriter() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity initial size of the character buffer
+   */
+  public XmlWriter(int capacity) {
+    this.buf = new char[capacity];
+  }
+
+  /**
+   * Open an XML element with the given name. A call to closeElement() will output
+   * the appropriate XML closing tag.
+   * @param name Name of the XML element to open.
+   */
+  public void openElement(String name) {
+    push(name);
+    append('<');
+    append(name);
+    append('>');
+  }
+
+  /**
+   * Open an XML element with the given name and attribute.
+   * @param name Name of the XML element to open.
+   */
+  public void openElement(String name, String attribute, String value) {
+    push(name);
+    startElement(name);
+    printAttribute(attribute, value);
+    append('>');
+  }
+
+  /**
+   * Open an XML element with the given name and attributes.
+   * @param name Name of the XML element to open.
+   */
+  public void openElement(String name, String attribute1, String value1, String attribute2, String value2) {
+    push(name);
+    startElement(name);
+    printAttribute(attribute1, value1);
+    printAttribute(attribute2, value2);
+    append('>');
+  }
+
+  /**
+   * Open an XML element with the given name and attributes.
+   * @param name Name of the XML element to open.
+   * @param attributes A map of name value pairs which will be used to add attributes to
+   * the element.
+   */
+  public void openElement(String name, Map<String, String> attributes) {
+    push(name);
+    startElement(name);
+    printAttributes(attributes);
+    append('>');
+  }
+
+  /**
+   * Close an element previously created with openElement().
+   */
+  public void closeElement() {
+    if (depth == 0) {
+      throw new IllegalStateException("No open element to close");
+    }
+
+    String name = elementStack[--depth];
+    elementStack[depth] = null;
+
+    append("</");
+    append(name);
+    append('>');
+  }
+
+  /**
+   * Output a complete empty element.
+   * @param name Name of element.
+   */
+  public void printElement(String name) {
+    startElement(name);
+    append("/>");
+  }
+
+  /**
+   * Output a complete element with the given attributes.
+   * @param name Name of element.
+   * @param attributes A map of name value pairs which will be used to add attributes to
+   * the element.
+   */
+  public void printElement(String name, Map<String, String> attributes) {
+    printElement(name, null, attributes);
+  }
+
+  /**
+   * Output a complete element with the given content and attributes.
+   * @param name Name of element.
+   * @param value Content of element, or null for an empty element.
+   * @param attributes A map of name value pairs which will be used to add attributes to
+   * the element.
+   */
+  public void printElement(String name, String value, Map<String, String> attributes) {
+    startElement(name);
+    printAttributes(attributes);
+    endElement(name, value);
+  }
+
+  /**
+   * Output a complete element with the given content and attributes.
+   * @param name Name of element.
+   * @param value Content of element, or null for an empty element.
+   */
+  public void printElement(String name, String value, String attribute1, String value1, String attribute2,
+      String value2) {
+    startElement(name);
+    printAttribute(attribute1, value1);
+    printAttribute(attribute2, value2);
+    endElement(name, value);
+  }
+
+  /**
+   * Output text content, translating reserved XML characters to XML entities.
+   */
+  public void printText(String text) {
+    printText(text, false);
+  }
+
+  /**
+   * Output text content, translating reserved XML characters to XML entities in the same pass as replacing newlines.
+   * Text with nothing to replace is copied as it is.
+   * @param removeNl whether runs of newline characters are printed as a single space, as by
+   * {@link XmlPrintStream#removeNewLines(String)}
+   */
+  public void printText(String text, boolean removeNl) {
+    int start = 0;
+    int length = text.length();
+    boolean inNl = false;
+
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+
+      if (c == '\n' && removeNl) {
+        append(text, start, i);
+        if (!inNl) {
+          append(' ');
+          inNl = true;
+        }
+        start = i + 1;
+      } else {
+        String entity = getEntity(c);
+        inNl = false;
+
+        if (entity != null) {
+          append(text, start, i);
+          append(entity);
+          start = i + 1;
+        }
+      }
+    }
+
+    append(text, start, length);
+  }
+
+  /**
+   * Output a string as it is, without escaping.
+   */
+  public void print(String s) {
+    append(s);
+  }
+
+  /**
+   * Whether text printed by elements has its newlines replaced, see {@link XmlPrintStream#removeNewLines(String)}.
+   */
+  public boolean isRemoveNl() {
+    return removeNl && preformattedDepth == 0;
+  }
+
+  public void setRemoveNl(boolean removeNl) {
+    this.removeNl = removeNl;
+  }
+
+  /**
+   * Keep the newlines of text printed by elements until the matching call to {@link #endPreformatted()}, as inside
+   * preformatted text. Calls can be nested.
+   */
+  public void startPreformatted() {
+    preformattedDepth++;
+  }
+
+  public void endPreformatted() {
+    preformattedDepth--;
+  }
+
+  /**
+   * Limit the output to the given number of bytes once encoded in UTF-8, as by {@link #toByteArray()}. Writing past
+   * the limit throws {@link LimitExceeded}. The limit is lifted by {@link #reset()}.
+   */
+  public void setMaxBytes(int maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Retrieve the number of characters written.
+   */
+  public int length() {
+    return count;
+  }
+
+  /**
+   * Discard the output and any open elements, keeping the allocated buffer.
+   */
+  public void reset() {
+    Arrays.fill(elementStack, 0, depth, null);
+    count = 0;
+    depth = 0;
+    removeNl = true;
+    preformattedDepth = 0;
+    maxBytes = Integer.MAX_VALUE;
+    byteCount = 0;
+  }
+
+  /**
+   * Append the output to the provided Appendable.
+   */
+  public void writeTo(Appendable out) throws IOException {
+    if (out instanceof Writer) {
+      ((Writer) out).write(buf, 0, count);
+    } else if (out instanceof StringBuilder) {
+      ((StringBuilder) out).append(buf, 0, count);
+    } else {
+      out.append(CharBuffer.wrap(buf, 0, count));
+    }
+  }
+
+  /**
+   * Write the output to the provided stream encoded in UTF-8. Characters which cannot be encoded are written as
+   * '?', as by {@link String#getBytes(java.nio.charset.Charset)}.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    if (bytes == null) {
+      bytes = new byte[BYTE_BUFFER_SIZE];
+    }
+
+    CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    CharBuffer in = CharBuffer.wrap(buf, 0, count);
+    ByteBuffer bb = ByteBuffer.wrap(bytes);
+
+    while (encoder.encode(in, bb, true).isOverflow()) {
+      out.write(bytes, 0, bb.position());
+      bb.clear();
+    }
+
+    while (encoder.flush(bb).isOverflow()) {
+      out.write(bytes, 0, bb.position());
+      bb.clear();
+    }
+
+    out.write(bytes, 0, bb.position());
+  }
+
+  /**
+   * Retrieve the output encoded in UTF-8.
+   */
+  public byte[] toByteArray() {
+    return new String(buf, 0, count).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public String toString() {
+    return new String(buf, 0, count);
+  }
+
+  private void startElement(String name) {
+    append('<');
+    append(name);
+  }
+
+  private void endElement(String name, String value) {
+    if (value != null) {
+      append('>');
+      printText(value);
+      append("</");
+      append(name);
+      append('>');
+    } else {
+      append("/>");
+    }
+  }
+
+  private void printAttributes(Map<String, String> attributes) {
+    for (Map.Entry<String, String> entry : attributes.entrySet()) {
+      printAttribute(entry.getKey(), entry.getValue());
+    }
+  }
+
+  private void printAttribute(String name, String value) {
+    append(' ');
+    append(name);
+    append("=\"");
+    printText(String.valueOf(value));
+    append('"');
+  }
+
+  private void push(String name) {
+    if (depth == elementStack.length) {
+      elementStack = Arrays.copyOf(elementStack, depth * 2);
+    }
+    elementStack[depth++] = name;
+  }
+
+  private static String getEntity(char c) {
+    switch (c) {
+      case '<':
+        return "&lt;";
+      case '>':
+        return "&gt;";
+      case '&':
+        return "&amp;";
+      case '"':
+        return "&quot;";
+      default:
+        return null;
+    }
+  }
+
+  private void append(char c) {
+    if (maxBytes != Integer.MAX_VALUE) {
+      countBytes(c);
+    }
+
+    ensureCapacity(count + 1);
+    buf[count++] = c;
+  }
+
+  private void append(String s) {
+    append(s, 0, s.length());
+  }
+
+  private void append(String s, int start, int end) {
+    int length = end - start;
+
+    if (length > 0) {
+      if (maxBytes != Integer.MAX_VALUE) {
+        for (int i = start; i < end; i++) {
+          countBytes(s.charAt(i));
+        }
+      }
+
+      ensureCapacity(count + length);
+      s.getChars(start, end, buf, count);
+      count += length;
+    }
+  }
+
+  /**
+   * Count the UTF-8 length of the character, before writing it. Each half of a surrogate pair counts for 2 bytes.
+   */
+  private void countBytes(char c) {
+    if (c < 0x80) {
+      byteCount++;
+    } else if (c < 0x800 || Character.isSurrogate(c)) {
+      byteCount += 2;
+    } else {
+      byteCount += 3;
+    }
+
+    if (byteCount > maxBytes) {
+      throw new LimitExceeded(maxBytes);
+    }
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > buf.length) {
+      buf = Arrays.copyOf(buf, Math.max(capacity, buf.length * 2));
+    }
+  }
+
+  /**
+   * Unchecked signal of an output exceeding the limit set with {@link #setMaxBytes(int)}, to be converted to an
+   * error by the caller which set the limit.
+   */
+  public static final class LimitExceeded extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    LimitExceeded(int maxBytes) {
+      super("The output exceeds the maximum size of " + maxBytes + " bytes", null, false, false);
+    }
+  }
+}
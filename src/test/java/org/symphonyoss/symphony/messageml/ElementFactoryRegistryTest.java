@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.elements.Card;
+import org.symphonyoss.symphony.messageml.elements.Div;
+import org.symphonyoss.symphony.messageml.elements.Element;
+import org.symphonyoss.symphony.messageml.elements.FormElement;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.elements.Span;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+
+
+public class ElementFactoryRegistryTest {
+  private static final String PRESENTATIONML_PREFIX = "<div data-format=\"PresentationML\" data-version=\"2.0\">";
+
+  @Test
+  public void testRegisterShorthand() throws Exception {
+    ElementFactoryRegistry registry = new ElementFactoryRegistry()
+        .registerShorthand(Div.MESSAGEML_TAG, Element.CLASS_ATTR, "widget",
+            (parser, parent, attributes) -> new Widget(parent));
+
+    for (XmlParserEnum xmlParser : XmlParserEnum.values()) {
+      ParseResult result = parse(registry, xmlParser, PRESENTATIONML_PREFIX
+          + "<div class=\"extra  widget\tWIDGET\">Widget</div><div class=\"widget\">Widget</div></div>");
+      MessageML messageML = result.getMessageML();
+
+      assertTrue(xmlParser.name(), messageML.getChildren().get(0) instanceof Widget);
+      assertTrue(xmlParser.name(), messageML.getChildren().get(1) instanceof Widget);
+      assertEquals(xmlParser.name(), PRESENTATIONML_PREFIX + "<div class=\"extra\">Widget</div><div>Widget</div></div>",
+          result.getPresentationML());
+    }
+  }
+
+  @Test
+  public void testRegisterTag() throws Exception {
+    ElementFactoryRegistry registry = new ElementFactoryRegistry()
+        .register("widget", (parser, parent, attributes) -> new Widget(parent));
+
+    for (XmlParserEnum xmlParser : XmlParserEnum.values()) {
+      ParseResult result = parse(registry, xmlParser, "<messageML><widget>Widget</widget></messageML>");
+
+      assertTrue(xmlParser.name(), result.getMessageML().getChildren().get(0) instanceof Widget);
+      assertEquals(xmlParser.name(), PRESENTATIONML_PREFIX + "<div>Widget</div></div>", result.getPresentationML());
+    }
+  }
+
+  @Test
+  public void testShorthandPrecedence() throws Exception {
+    for (XmlParserEnum xmlParser : XmlParserEnum.values()) {
+      ParseResult result = parse(new ElementFactoryRegistry(), xmlParser, PRESENTATIONML_PREFIX
+          + "<div class=\"cardBody card\"><div class=\"cardBody\">Body</div></div></div>");
+      Element card = result.getMessageML().getChildren().get(0);
+
+      assertTrue(xmlParser.name(), card instanceof Card);
+      assertEquals(xmlParser.name(), "cardBody", card.getAttribute(Element.CLASS_ATTR));
+    }
+  }
+
+  @Test
+  public void testCustomElementContentModel() throws Exception {
+    ElementFactoryRegistry registry = new ElementFactoryRegistry()
+        .register("badge", (parser, parent, attributes) -> new Badge(parent))
+        .register("widget", (parser, parent, attributes) -> new Widget(parent));
+
+    for (XmlParserEnum xmlParser : XmlParserEnum.values()) {
+      // A custom element is permitted wherever the element it extends is
+      ParseResult result = parse(registry, xmlParser, "<messageML><b>Bold <badge>badge</badge></b></messageML>");
+      Element bold = result.getMessageML().getChildren().get(0);
+
+      assertTrue(xmlParser.name(), bold.getChildren().get(1) instanceof Badge);
+      assertEquals(xmlParser.name(), PRESENTATIONML_PREFIX + "<b>Bold <span>badge</span></b></div>",
+          result.getPresentationML());
+
+      try {
+        parse(registry, xmlParser, "<messageML><b>Bold <widget>widget</widget></b></messageML>");
+        fail("Should have thrown an exception on a custom element extending a non-phrasing element");
+      } catch (InvalidInputException e) {
+        assertEquals(xmlParser.name(), "Element \"div\" is not allowed in \"b\"", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testEngineCopiesRegistry() throws Exception {
+    ElementFactoryRegistry registry = new ElementFactoryRegistry();
+    MessageMLEngine engine = new MessageMLEngineBuilder(new TestDataProvider()).withElementFactories(registry).build();
+    registry.register("widget", (parser, parent, attributes) -> new Widget(parent));
+
+    try {
+      engine.parseMessageML("<messageML><widget>Widget</widget></messageML>", null, MessageML.MESSAGEML_VERSION);
+      fail("Should have thrown an exception on an unregistered tag");
+    } catch (InvalidInputException e) {
+      assertEquals("Invalid MessageML content at element \"widget\"", e.getMessage());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testShorthandAttributeConflict() throws Exception {
+    new ElementFactoryRegistry().registerShorthand(Div.MESSAGEML_TAG, FormElement.TYPE_ATTR, "widget",
+        (parser, parent, attributes) -> new Widget(parent));
+  }
+
+  private static ParseResult parse(ElementFactoryRegistry registry, XmlParserEnum xmlParser, String message)
+      throws Exception {
+    MessageMLEngine engine = new MessageMLEngineBuilder(new TestDataProvider()).withXmlParser(xmlParser)
+        .withElementFactories(registry).build();
+    return engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION);
+  }
+
+  private static class Widget extends Div {
+    Widget(Element parent) {
+      super(parent);
+    }
+  }
+
+  private static class Badge extends Span {
+    Badge(Element parent) {
+      super(parent);
+    }
+  }
+}
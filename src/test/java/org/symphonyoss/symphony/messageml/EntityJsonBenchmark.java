@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.util.JsonFieldIndex;
+import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookup of <i>data-entity-id</i> attributes in EntityJSON as the number of entities grows, comparing
+ * Jackson deep searches with {@link JsonFieldIndex}, and the resulting cost of parsing a message. Run with the test
+ * classpath, e.g. from the IDE via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityJsonBenchmark {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Param({"1", "10", "100", "1000", "5000"})
+  private int entities;
+
+  private String message;
+  private String entityJson;
+  private ObjectNode entityNode;
+  private MessageMLEngine engine;
+
+  @Setup
+  public void setUp() throws Exception {
+    StringBuilder messageML = new StringBuilder("<messageML>");
+    ObjectNode json = new ObjectNode(JsonNodeFactory.instance);
+
+    for (int i = 0; i < entities; i++) {
+      messageML.append("<div class=\"entity\" data-entity-id=\"entity").append(i).append("\">").append(i)
+          .append("</div>");
+
+      ObjectNode entity = json.putObject("entity" + i);
+      entity.put("type", "com.example.entity");
+      entity.put("version", "1.0");
+      entity.putArray("id").addObject().put("type", "com.example.id").put("value", i);
+    }
+
+    message = messageML.append("</messageML>").toString();
+    entityJson = MAPPER.writeValueAsString(json);
+    entityNode = json;
+    engine = new MessageMLEngine(new TestDataProvider());
+  }
+
+  @Benchmark
+  public void deepSearch(Blackhole blackhole) {
+    for (int i = 0; i < entities; i++) {
+      blackhole.consume(entityNode.findPath("entity" + i));
+      blackhole.consume(entityNode.findValues("entity" + i));
+    }
+  }
+
+  @Benchmark
+  public void index(Blackhole blackhole) {
+    JsonFieldIndex index = new JsonFieldIndex(entityNode);
+
+    for (int i = 0; i < entities; i++) {
+      blackhole.consume(index.findPath("entity" + i));
+      blackhole.consume(index.findValues("entity" + i));
+    }
+  }
+
+  @Benchmark
+  public ParseResult parseMessageML() throws Exception {
+    return engine.parseMessageML(message, entityJson, MessageML.MESSAGEML_VERSION);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(EntityJsonBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -564,6 +564,16 @@ public class MessageMLContextTest {
     context.parseMessageML(message, null, MessageML.MESSAGEML_VERSION);
   }
 
+  @Test
+  public void testMarkdownGeneratedOnParse() throws Exception {
+    context.parseMessageML("<messageML><hash tag=\"tag\"/> text</messageML>", null, MessageML.MESSAGEML_VERSION);
+
+    // Markdown is converted while parsing, as errors converting the message are thrown by parseMessageML()
+    context.getMessageML().addChild(new TextNode(context.getMessageML(), " added"));
+    assertEquals("#tag text", context.getMarkdown());
+    assertEquals(1, context.getEntities().get("hashtags").size());
+  }
+
   @Test
   public void testGetMessageMLFailOnUnparsedMessage() throws Exception {
     expectedException.expect(IllegalStateException.class);
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.cache.CacheStats;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.elements.TextNode;
+import org.symphonyoss.symphony.messageml.exceptions.DeadlineExceededException;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.IDeadlineAwareDataProvider;
+import org.symphonyoss.symphony.messageml.util.IUserPresentation;
+import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class MessageMLEngineTest {
+  private final MessageMLEngine engine = new MessageMLEngine(new TestDataProvider());
+
+  @Test
+  public void testConcurrentParse() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<String>> results = new ArrayList<>();
+
+    try {
+      for (int i = 0; i < 200; i++) {
+        final int n = i;
+        Callable<String> task = () -> {
+          ParseResult result = engine.parseMessageML("<messageML><hash tag=\"tag" + n + "\"/> <b>" + n + "</b>"
+              + "<cash tag=\"ticker" + n + "\"/></messageML>", null, MessageML.MESSAGEML_VERSION);
+          return result.getPresentationML();
+        };
+        results.add(executor.submit(task));
+      }
+
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals("PresentationML", "<div data-format=\"PresentationML\" data-version=\"2.0\">"
+            + "<span class=\"entity\" data-entity-id=\"keyword1\">#tag" + i + "</span> <b>" + i + "</b>"
+            + "<span class=\"entity\" data-entity-id=\"keyword2\">$ticker" + i + "</span></div>",
+            results.get(i).get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testResultIsolation() throws Exception {
+    ParseResult first = engine.parseMessageML("<messageML><hash tag=\"first\"/></messageML>", null,
+        MessageML.MESSAGEML_VERSION);
+    ParseResult second = engine.parseMarkdown("**second**", null, null);
+
+    assertEquals("First PresentationML", "<div data-format=\"PresentationML\" data-version=\"2.0\">"
+        + "<span class=\"entity\" data-entity-id=\"keyword1\">#first</span></div>", first.getPresentationML());
+    assertEquals("Second PresentationML", "<div data-format=\"PresentationML\" data-version=\"2.0\">"
+        + "<b>second</b></div>", second.getPresentationML());
+    assertEquals("Second EntityJSON", 0, second.getEntityJson().size());
+
+    assertEquals("First EntityJSON", 1, first.getEntityJson().size());
+    assertSame("EntityJSON built once", first.getEntityJson(), first.getEntityJson());
+  }
+
+  @Test
+  public void testLazyOutputs() throws Exception {
+    String message = "<messageML><hash tag=\"tag\"/> text</messageML>";
+    MessageMLEngine eagerEngine = new MessageMLEngineBuilder(new TestDataProvider())
+        .withOutputs(EnumSet.of(OutputEnum.PRESENTATIONML, OutputEnum.MARKDOWN)).build();
+
+    ParseResult lazy = engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION);
+    ParseResult eager = eagerEngine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION);
+
+    // Outputs generated after the document tree changes include the change
+    lazy.getMessageML().addChild(new TextNode(lazy.getMessageML(), " added"));
+    eager.getMessageML().addChild(new TextNode(eager.getMessageML(), " added"));
+
+    assertEquals("Lazy PresentationML", "<div data-format=\"PresentationML\" data-version=\"2.0\">"
+        + "<span class=\"entity\" data-entity-id=\"keyword1\">#tag</span> text added</div>", lazy.getPresentationML());
+    assertEquals("Lazy Markdown", "#tag text added", lazy.getMarkdown());
+    assertEquals("Eager PresentationML", "<div data-format=\"PresentationML\" data-version=\"2.0\">"
+        + "<span class=\"entity\" data-entity-id=\"keyword1\">#tag</span> text</div>", eager.getPresentationML());
+    assertEquals("Eager Markdown", "#tag text", eager.getMarkdown());
+    assertEquals("Eager text", "#tag text added", eager.getText());
+
+    assertSame("Memoised PresentationML", lazy.getPresentationML(), lazy.getPresentationML());
+    assertSame("Memoised text", lazy.getText(), lazy.getText());
+    assertEquals("Legacy entities", eager.getEntities(), lazy.getEntities());
+    assertEquals("EntityJSON", 1, lazy.getEntityJson().size());
+    assertEquals("Memoised EntityJSON", lazy.getEntityJson(), lazy.getEntityJson());
+  }
+
+  @Test
+  public void testInvalidMentionOnParse() throws Exception {
+    try {
+      engine.parseMessageML("<messageML><mention/></messageML>", null, MessageML.MESSAGEML_VERSION);
+      fail("Expected InvalidInputException");
+    } catch (InvalidInputException e) {
+      assertEquals("Error processing user mention. No id or email provided", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testStyleCache() throws Exception {
+    MessageMLEngine cachingEngine = new MessageMLEngineBuilder(new TestDataProvider()).withStyleCacheSize(10).build();
+    String message = "<messageML><p style=\"color:green\">text</p></messageML>";
+
+    for (int i = 0; i < 2; i++) {
+      assertEquals("<div data-format=\"PresentationML\" data-version=\"2.0\"><p style=\"color:green\">text</p></div>",
+          cachingEngine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION).getPresentationML());
+    }
+
+    // Invalid attributes are never cached
+    for (MessageMLEngine otherEngine : new MessageMLEngine[] {cachingEngine, engine}) {
+      try {
+        otherEngine.parseMessageML("<messageML><p style=\"color:green;back:c\">text</p></messageML>", null,
+            MessageML.MESSAGEML_VERSION);
+        fail("Expected InvalidInputException");
+      } catch (InvalidInputException e) {
+        assertEquals("Invalid property(s): [back] in the \"style\" attribute", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testTemplateCache() throws Exception {
+    String message = "<messageML>${data.text} ${entity.text} " + System.nanoTime() + "</messageML>";
+
+    CacheStats before = MessageMLEngine.getTemplateCacheStats();
+    ParseResult first = engine.parseMessageML(message, "{\"text\": \"first\"}", MessageML.MESSAGEML_VERSION);
+    ParseResult second = engine.parseMessageML(message, "{\"text\": \"second\"}", MessageML.MESSAGEML_VERSION);
+    CacheStats stats = MessageMLEngine.getTemplateCacheStats().minus(before);
+
+    assertEquals("Cache misses", 1, stats.missCount());
+    assertEquals("Cache hits", 1, stats.hitCount());
+    assertEquals("First text", "first first", first.getMarkdown().replaceAll(" \\d+$", ""));
+    assertEquals("Second text", "second second", second.getMarkdown().replaceAll(" \\d+$", ""));
+  }
+
+  @Test
+  public void testTemplateCacheBoundedByLength() throws Exception {
+    StringBuilder text = new StringBuilder(MessageMLParser.TEMPLATE_CACHE_WEIGHT);
+    while (text.length() < MessageMLParser.TEMPLATE_CACHE_WEIGHT) {
+      text.append("Lorem ipsum ");
+    }
+    String message = "<messageML>${data.text} " + text + System.nanoTime() + "</messageML>";
+
+    CacheStats before = MessageMLEngine.getTemplateCacheStats();
+    engine.parseMessageML(message, "{\"text\": \"first\"}", MessageML.MESSAGEML_VERSION);
+    engine.parseMessageML(message, "{\"text\": \"second\"}", MessageML.MESSAGEML_VERSION);
+    CacheStats stats = MessageMLEngine.getTemplateCacheStats().minus(before);
+
+    assertEquals("Cache misses", 2, stats.missCount());
+    assertEquals("Cache hits", 0, stats.hitCount());
+  }
+
+  @Test
+  public void testParseWithinDeadline() throws Exception {
+    String message = "<messageML>Hello <b>${data.name}</b> <a href=\"https://example.com\">link</a></messageML>";
+    String entityJson = "{\"name\": \"world\"}";
+
+    ParseResult expected = engine.parseMessageML(message, entityJson, MessageML.MESSAGEML_VERSION);
+    ParseResult result = engine.parseMessageML(message, entityJson, MessageML.MESSAGEML_VERSION, 1, TimeUnit.MINUTES);
+
+    assertEquals("PresentationML", expected.getPresentationML(), result.getPresentationML());
+    assertEquals("Markdown", expected.getMarkdown(), result.getMarkdown());
+  }
+
+  @Test
+  public void testDeadlineExceeded() throws Exception {
+    assertDeadlineExceeded(engine, "<messageML>Hello</messageML>", 0, "expanding templates");
+
+    TestDataProvider slowDataProvider = new TestDataProvider() {
+      @Override
+      public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+        sleep(200);
+        return super.getUserPresentation(uid);
+      }
+    };
+    slowDataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    MessageMLEngine slowEngine = new MessageMLEngine(slowDataProvider);
+
+    // Not handled as a failed lookup by soft mentions
+    for (String message : new String[] {"<messageML><mention uid=\"1\"/></messageML>",
+        "<messageML><mention uid=\"2\" strict=\"false\"/></messageML>"}) {
+      assertDeadlineExceeded(slowEngine, message, 50, "looking up users");
+    }
+  }
+
+  @Test
+  public void testDeadlineAwareDataProvider() throws Exception {
+    List<Long> timeouts = new ArrayList<>();
+    IDataProvider deadlineAwareDataProvider = new DeadlineAwareTestDataProvider() {
+      @Override
+      public void validateURI(URI uri, long timeout, TimeUnit unit) throws InvalidInputException {
+        timeouts.add(unit.toMillis(timeout));
+        validateURI(uri);
+      }
+    };
+    MessageMLEngine deadlineAwareEngine = new MessageMLEngine(deadlineAwareDataProvider);
+
+    deadlineAwareEngine.parseMessageML("<messageML><a href=\"https://example.com\">link</a></messageML>", null,
+        MessageML.MESSAGEML_VERSION, 10, TimeUnit.SECONDS);
+    deadlineAwareEngine.parseMessageML("<messageML><a href=\"https://example.com\">link</a></messageML>", null,
+        MessageML.MESSAGEML_VERSION);
+
+    assertEquals("Lookups with time left", 1, timeouts.size());
+    assertTrue("Time left " + timeouts.get(0), timeouts.get(0) > 0 && timeouts.get(0) <= 10000);
+  }
+
+  @Test
+  public void testDeadlineExceededOnLookupExecutor() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    TestDataProvider blockedDataProvider = new TestDataProvider() {
+      @Override
+      public void validateURI(URI uri) throws InvalidInputException {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        super.validateURI(uri);
+      }
+    };
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try {
+      MessageMLEngine concurrentEngine = new MessageMLEngineBuilder(blockedDataProvider).withLookupExecutor(executor)
+          .build();
+      assertDeadlineExceeded(concurrentEngine, "<messageML><a href=\"https://example.com\">link</a></messageML>",
+          100, "checking URIs");
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+
+  private void assertDeadlineExceeded(MessageMLEngine engine, String message, long timeout, String phase)
+      throws Exception {
+    try {
+      engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION, timeout, TimeUnit.MILLISECONDS);
+      fail("Expected DeadlineExceededException for " + message);
+    } catch (DeadlineExceededException e) {
+      assertEquals("Deadline exceeded while " + phase, e.getMessage());
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class DeadlineAwareTestDataProvider extends TestDataProvider implements IDeadlineAwareDataProvider {
+    @Override
+    public IUserPresentation getUserPresentation(String emailAddress, long timeout, TimeUnit unit)
+        throws InvalidInputException {
+      return getUserPresentation(emailAddress);
+    }
+
+    @Override
+    public IUserPresentation getUserPresentation(Long uid, long timeout, TimeUnit unit) throws InvalidInputException {
+      return getUserPresentation(uid);
+    }
+
+    @Override
+    public void validateURI(URI uri, long timeout, TimeUnit unit) throws InvalidInputException {
+      validateURI(uri);
+    }
+  }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.IUserPresentation;
+import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+import org.symphonyoss.symphony.messageml.util.UserPresentation;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies that the StAX parser produces the same output and errors as the DOM parser.
+ */
+public class MessageMLParserTest {
+  private final IDataProvider dataProvider = mock(IDataProvider.class);
+
+  @Before
+  public void setUp() throws InvalidInputException {
+    UserPresentation user = new UserPresentation(123456789L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    when(dataProvider.getUserPresentation(anyLong())).thenReturn(user);
+    when(dataProvider.getUserPresentation(anyString())).thenReturn(user);
+  }
+
+  @Test
+  public void testPayloads() throws Exception {
+    String[][] payloads = {
+        {"payloads/templated_message_all_tags.messageml", "payloads/templated_message_all_tags.json"},
+        {"payloads/expanded_single_jira_ticket.presentationml", "payloads/expanded_single_jira_ticket.entityjson"}
+    };
+
+    for (String[] payload : payloads) {
+      assertSameOutput(getPayload(payload[0]), getPayload(payload[1]));
+    }
+  }
+
+  @Test
+  public void testMessages() throws Exception {
+    String[] messages = {
+        "<messageML/>",
+        "<?xml version=\"1.0\"?><!-- prolog --><messageML>Hello <b>world</b>!</messageML><!-- epilog -->",
+        "<messageML>a &amp; b &lt; c &#x263A; <br/>\n  <i style=\"color:red\">text</i></messageML>",
+        "<messageML><hash tag=\"tag\"/> <cash tag=\"ticker\"/> <mention uid=\"1\"/> <emoji shortcode=\"smiley\"/>"
+            + "<a href=\"https://example.com\">link</a></messageML>",
+        "<messageML><card iconSrc=\"https://example.com/icon.png\" accent=\"tempo-bg-color--blue\">"
+            + "<header>Header</header><body>Body</body></card></messageML>",
+        "<messageML><table><tr><td colspan=\"2\">cell</td></tr></table></messageML>",
+        "<messageML><form id=\"form\"><checkbox name=\"cb\" value=\"v\" checked=\"true\">Check</checkbox>"
+            + "<radio name=\"rd\">Radio</radio><person-selector name=\"ps\" placeholder=\"who\"/>"
+            + "<date-selector name=\"ds\" required=\"true\"/><button name=\"send\">Send</button></form></messageML>",
+        "<div data-format=\"PresentationML\" data-version=\"2.0\"><form id=\"form\">"
+            + "<div class=\"checkbox-group\"><input type=\"checkbox\" name=\"cb\" value=\"v\"/><label>Check</label></div>"
+            + "<div class=\"radio-group\"><input type=\"radio\" name=\"rd\" checked=\"false\"/><label>Radio</label></div>"
+            + "<input type=\"checkbox\" name=\"plain\"/>"
+            + "<div class=\"person-selector\" data-name=\"ps\" data-placeholder=\"who\"></div>"
+            + "<div class=\"date-selector\" data-name=\"ds\" data-required=\"true\"></div>"
+            + "<button name=\"send\">Send</button></form></div>"
+    };
+
+    for (String message : messages) {
+      assertSameOutput(message, null);
+    }
+  }
+
+  @Test
+  public void testErrors() throws Exception {
+    String[] messages = {
+        "Hello world",
+        "<messageML><div>unclosed</messageML>",
+        "<messageML>text</messageML>trailing",
+        "<!DOCTYPE messageML><messageML/>",
+        "<messageML><![CDATA[text]]></messageML>",
+        "<messageML><!-- comment --></messageML>",
+        "<messageML><?target data?></messageML>",
+        "<messageML><invalid/></messageML>",
+        "<messageML><div class=\"entity\" data-entity-id=\"missing\"/></messageML>",
+        "<messageML data-entity-id=\"missing\"/>",
+        "<messageML><b><i data-entity-id=\"missing\">text</i></b></messageML>",
+        "<div data-format=\"PresentationML\" data-version=\"2.0\"><form id=\"form\"><div class=\"checkbox-group\">"
+            + "<input type=\"checkbox\" name=\"cb\"><b data-entity-id=\"missing\"/></input><label>Check</label>"
+            + "</div></form></div>",
+        "<div data-format=\"PresentationML\" data-version=\"2.0\"><form id=\"form\"><div class=\"radio-group\">"
+            + "<input type=\"radio\" name=\"rd\"/><label data-entity-id=\"missing\">Radio</label></div></form></div>",
+        "<messageML><a href=\"[invalid]\">link</a></messageML>",
+        "<div data-format=\"PresentationML\" data-version=\"2.0\"><form id=\"form\">"
+            + "<div class=\"checkbox-group\"><input type=\"checkbox\" name=\"cb\"/><label></label></div></form></div>",
+        "<div data-format=\"PresentationML\" data-version=\"2.0\"><form id=\"form\">"
+            + "<div class=\"radio-group\"><label>Radio</label><label>Radio</label></div></form></div>",
+        "<p>wrong root</p>"
+    };
+
+    for (String message : messages) {
+      assertSameError(message);
+    }
+  }
+
+  @Test
+  public void testConcurrentLookups() throws Exception {
+    CountDownLatch uriChecks = new CountDownLatch(2);
+    CountDownLatch userLookups = new CountDownLatch(2);
+    IDataProvider slowDataProvider = new SlowDataProvider(uriChecks, userLookups);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    String message = "<messageML><a href=\"https://example.com/1\">link</a> <mention uid=\"1\"/> "
+        + "<a href=\"https://example.com/2\">link</a> <mention uid=\"2\"/></messageML>";
+
+    try {
+      for (XmlParserEnum xmlParser : XmlParserEnum.values()) {
+        MessageMLEngine engine = new MessageMLEngineBuilder(slowDataProvider).withXmlParser(xmlParser)
+            .withLookupExecutor(executor).build();
+        ParseResult result = engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION);
+
+        assertEquals("<div data-format=\"PresentationML\" data-version=\"2.0\">"
+            + "<a href=\"https://example.com/1\">link</a> "
+            + "<span class=\"entity\" data-entity-id=\"mention1\">@User 1</span> "
+            + "<a href=\"https://example.com/2\">link</a> "
+            + "<span class=\"entity\" data-entity-id=\"mention2\">@User 2</span></div>",
+            result.getPresentationML());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testConcurrentLookupErrors() throws Exception {
+    String[] messages = {
+        "<messageML><a href=\"ftp://example.com\">link</a></messageML>",
+        "<messageML><a href=\"error://example.com\">link</a></messageML>",
+        "<messageML><a href=\"https://example.com\">link</a><a href=\"ftp://example.com\">link</a>"
+            + "<a href=\"error://example.com\">link</a></messageML>",
+        "<messageML><a href=\"ftp://example.com\">link</a><invalid/></messageML>",
+        "<messageML><invalid/><a href=\"ftp://example.com\">link</a></messageML>",
+        "<messageML><a href=\"ftp://example.com\"><invalid/></a></messageML>",
+        "<messageML><a href=\"ftp://example.com\">link</a><div>unclosed</messageML>",
+        "<messageML><a href=\"ftp://example.com\">link</a></messageML>trailing",
+        "<messageML><mention uid=\"0\"/><a href=\"ftp://example.com\">link</a></messageML>",
+        "<messageML><mention uid=\"0\"/><mention email=\"unknown@example.com\"/></messageML>",
+        "<messageML><mention uid=\"0\" strict=\"false\"/><mention email=\"unknown@example.com\"/></messageML>",
+        "<messageML><mention uid=\"0\"/></messageML>trailing"
+    };
+    IDataProvider slowDataProvider = new SlowDataProvider(new CountDownLatch(0), new CountDownLatch(0));
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    try {
+      for (XmlParserEnum xmlParser : XmlParserEnum.values()) {
+        MessageMLEngine serial = new MessageMLEngineBuilder(slowDataProvider).withXmlParser(xmlParser).build();
+        MessageMLEngine concurrent = new MessageMLEngineBuilder(slowDataProvider).withXmlParser(xmlParser)
+            .withLookupExecutor(executor).build();
+
+        for (String message : messages) {
+          String expected = getError(serial, message);
+          assertNotNull(xmlParser + " error for " + message, expected);
+          assertEquals(xmlParser + " error for " + message, expected, getError(concurrent, message));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testPendingLookupsCancelledOnError() throws Exception {
+    String[] messages = {
+        "<messageML><a href=\"ftp://example.com\">link</a><a href=\"https://example.com\">link</a></messageML>",
+        "<messageML><mention uid=\"0\"/><mention uid=\"2\"/></messageML>"
+    };
+    AtomicInteger lookups = new AtomicInteger();
+    TestDataProvider countingDataProvider = new TestDataProvider() {
+      @Override
+      public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+        lookups.incrementAndGet();
+        return super.getUserPresentation(uid);
+      }
+
+      @Override
+      public void validateURI(URI uri) throws InvalidInputException {
+        lookups.incrementAndGet();
+        super.validateURI(uri);
+      }
+    };
+    countingDataProvider.setUserPresentation(2L, "user2", "User 2", "user2@example.com");
+
+    for (XmlParserEnum xmlParser : XmlParserEnum.values()) {
+      for (String message : messages) {
+        // Run the first lookup on the parsing thread and keep the others pending
+        List<Runnable> pending = new ArrayList<>();
+        Executor executor = lookup -> {
+          if (lookups.get() == 0 && pending.isEmpty()) {
+            lookup.run();
+          } else {
+            pending.add(lookup);
+          }
+        };
+        MessageMLEngine engine = new MessageMLEngineBuilder(countingDataProvider).withXmlParser(xmlParser)
+            .withLookupExecutor(executor).build();
+        lookups.set(0);
+
+        assertNotNull(xmlParser + " error for " + message, getError(engine, message));
+        assertEquals(xmlParser + " pending lookups of " + message, 1, pending.size());
+
+        pending.forEach(Runnable::run);
+        assertEquals(xmlParser + " lookups of " + message, 1, lookups.get());
+      }
+    }
+  }
+
+  @Test
+  public void testHasTemplates() throws Exception {
+    for (String template : new String[] {"${data}", "#{data}", "<#if x></#if>", "</#list>", "<@macro/>", "</@macro>",
+        "<#-- comment -->", "<messageML>${"}) {
+      assertTrue(template, MessageMLParser.hasTemplates(template));
+    }
+
+    for (String message : new String[] {"", "$", "<messageML>$ {} # { < # </ # < @</messageML>",
+        "<messageML>$100 #tag <b>{text}</b></messageML>", getPayload("payloads/expanded_single_jira_ticket.presentationml")}) {
+      assertFalse(message, MessageMLParser.hasTemplates(message));
+    }
+  }
+
+  private void assertSameOutput(String message, String entityJson) throws Exception {
+    MessageMLContext dom = new MessageMLContext(dataProvider, XmlParserEnum.DOM);
+    MessageMLContext stax = new MessageMLContext(dataProvider, XmlParserEnum.STAX);
+
+    dom.parseMessageML(message, entityJson, MessageML.MESSAGEML_VERSION);
+    stax.parseMessageML(message, entityJson, MessageML.MESSAGEML_VERSION);
+
+    assertEquals("PresentationML", dom.getPresentationML(), stax.getPresentationML());
+    assertEquals("EntityJSON", dom.getEntityJson(), stax.getEntityJson());
+    assertEquals("Markdown", dom.getMarkdown(), stax.getMarkdown());
+    assertEquals("Legacy entities", dom.getEntities(), stax.getEntities());
+  }
+
+  private void assertSameError(String message) throws Exception {
+    String expected = getError(XmlParserEnum.DOM, message);
+    assertNotNull("DOM error for " + message, expected);
+    assertEquals("StAX error for " + message, expected, getError(XmlParserEnum.STAX, message));
+  }
+
+  private String getError(XmlParserEnum xmlParser, String message) throws Exception {
+    try {
+      new MessageMLContext(dataProvider, xmlParser).parseMessageML(message, null, MessageML.MESSAGEML_VERSION);
+      fail("Expected InvalidInputException for " + message);
+    } catch (InvalidInputException e) {
+      return e.getMessage();
+    }
+    return null;
+  }
+
+  private String getError(MessageMLEngine engine, String message) throws Exception {
+    try {
+      engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION);
+    } catch (InvalidInputException e) {
+      return e.getMessage();
+    }
+    return null;
+  }
+
+  private String getPayload(String filename) throws IOException {
+    ClassLoader classLoader = getClass().getClassLoader();
+    try(Scanner scanner = new Scanner(classLoader.getResourceAsStream(filename)))
+    {
+      return scanner.useDelimiter("\\A").next();
+    }
+  }
+
+  /**
+   * A data provider whose lookups only complete once the given number of URI checks and user lookups are running
+   * concurrently.
+   */
+  private static class SlowDataProvider implements IDataProvider {
+    private final CountDownLatch uriChecks;
+    private final CountDownLatch userLookups;
+
+    SlowDataProvider(CountDownLatch uriChecks, CountDownLatch userLookups) {
+      this.uriChecks = uriChecks;
+      this.userLookups = userLookups;
+    }
+
+    @Override
+    public IUserPresentation getUserPresentation(String emailAddress) throws InvalidInputException {
+      await(userLookups);
+      throw new InvalidInputException("Failed to lookup user \"" + emailAddress + "\"");
+    }
+
+    @Override
+    public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+      await(userLookups);
+
+      if (uid == 0) {
+        throw new InvalidInputException("Failed to lookup user \"" + uid + "\"");
+      }
+      return new UserPresentation(uid, "user" + uid, "User " + uid);
+    }
+
+    @Override
+    public void validateURI(URI uri) throws InvalidInputException, ProcessingException {
+      await(uriChecks);
+
+      if ("ftp".equals(uri.getScheme())) {
+        throw new InvalidInputException("URI scheme \"ftp\" is not supported by the pod.");
+      } else if ("error".equals(uri.getScheme())) {
+        throw new ProcessingException("Backend error");
+      }
+    }
+
+    private static void await(CountDownLatch latch) {
+      latch.countDown();
+
+      try {
+        assertTrue("Concurrent lookups", latch.await(10, TimeUnit.SECONDS));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
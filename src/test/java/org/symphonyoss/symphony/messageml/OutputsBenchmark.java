@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.UserPresentation;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating the outputs of a parsed message, each on its own and all of them, as done for every message by
+ * services which need all formats. Run with the test classpath, e.g. from the IDE via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputsBenchmark {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final Set<OutputEnum> NONE = Collections.emptySet();
+
+  @Param({"all_tags", "text"})
+  private String message;
+
+  private MessageML messageML;
+  private ObjectNode entityData;
+
+  @Setup
+  public void setUp() throws Exception {
+    IDataProvider dataProvider = mock(IDataProvider.class);
+    UserPresentation user = new UserPresentation(123456789L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    when(dataProvider.getUserPresentation(anyLong())).thenReturn(user);
+    when(dataProvider.getUserPresentation(anyString())).thenReturn(user);
+    MessageMLEngine engine = new MessageMLEngine(dataProvider);
+
+    if ("all_tags".equals(message)) {
+      String json = getPayload("payloads/templated_message_all_tags.json");
+      messageML = engine.parseMessageML(getPayload("payloads/templated_message_all_tags.messageml"), json,
+          MessageML.MESSAGEML_VERSION).getMessageML();
+      entityData = (ObjectNode) MAPPER.readTree(json);
+    } else {
+      StringBuilder text = new StringBuilder("<messageML>");
+
+      for (int i = 0; i < 100; i++) {
+        text.append("<p>Paragraph ").append(i).append(" of plain text,\nwith a line break and <b>bold</b> &amp; ")
+            .append("<i>italic</i> words, <hash tag=\"tag").append(i).append("\"/>.</p>\n");
+      }
+
+      messageML = engine.parseMessageML(text.append("</messageML>").toString(), null, MessageML.MESSAGEML_VERSION)
+          .getMessageML();
+      entityData = new ObjectNode(JsonNodeFactory.instance);
+    }
+  }
+
+  @Benchmark
+  public String presentationML() throws Exception {
+    return new ParseResult(messageML, entityData.deepCopy(), NONE).getPresentationML();
+  }
+
+  @Benchmark
+  public Object entityJson() throws Exception {
+    return new ParseResult(messageML, entityData.deepCopy(), NONE).getEntityJson();
+  }
+
+  @Benchmark
+  public String markdown() throws Exception {
+    return new ParseResult(messageML, entityData.deepCopy(), NONE).getMarkdown();
+  }
+
+  @Benchmark
+  public String text() throws Exception {
+    return new ParseResult(messageML, entityData.deepCopy(), NONE).getText();
+  }
+
+  @Benchmark
+  public void allOutputs(Blackhole blackhole) throws Exception {
+    ParseResult result = new ParseResult(messageML, entityData.deepCopy(), EnumSet.allOf(OutputEnum.class));
+    blackhole.consume(result.getPresentationML());
+    blackhole.consume(result.getEntityJson());
+    blackhole.consume(result.getMarkdown());
+    blackhole.consume(result.getEntities());
+    blackhole.consume(result.getText());
+  }
+
+  private static String getPayload(String filename) {
+    try (Scanner scanner = new Scanner(OutputsBenchmark.class.getClassLoader().getResourceAsStream(filename))) {
+      return scanner.useDelimiter("\\A").next();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(OutputsBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parsing of a PresentationML message made of cards, form elements and plain divs, as sent by bots.
+ * Run with the test classpath, e.g. from the IDE via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+  @Param({"DOM", "STAX"})
+  private XmlParserEnum xmlParser;
+
+  private MessageMLEngine engine;
+  private String message;
+
+  @Setup
+  public void setUp() {
+    engine = new MessageMLEngineBuilder(new TestDataProvider()).withXmlParser(xmlParser).build();
+    StringBuilder presentationML = new StringBuilder("<div data-format=\"PresentationML\" data-version=\"2.0\">");
+
+    for (int i = 0; i < 20; i++) {
+      presentationML.append("<div class=\"card barStyle\" data-icon-src=\"https://example.com/icon.png\">")
+          .append("<div class=\"cardHeader\">Card ").append(i).append("</div>")
+          .append("<div class=\"cardBody\"><div class=\"row\"><span class=\"label\">Status</span> ")
+          .append("<span>Open</span></div><div class=\"row\">Description of the item</div></div></div>");
+    }
+
+    presentationML.append("<form id=\"form\"><div class=\"checkbox-group\"><input type=\"checkbox\" name=\"cb\"/>")
+        .append("<label>Check</label></div><input type=\"text\" name=\"tf\"/><button name=\"send\">Send</button>")
+        .append("</form>");
+    message = presentationML.append("</div>").toString();
+  }
+
+  @Benchmark
+  public MessageML parseMessageML() throws Exception {
+    return engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION).getMessageML();
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(ParseBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+
+public class ParseLimitsTest {
+  private static final String TABLE = "<table><tr><td>1</td><td>2</td></tr><tr><td>3</td><td>4</td></tr></table>";
+
+  @Test
+  public void testInputBytes() throws Exception {
+    ParseLimits limits = new ParseLimits();
+    limits.setMaxInputBytes(40);
+
+    assertParses(limits, "<messageML>\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9</messageML>", null);
+    assertFails(limits, "<messageML>\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9</messageML>", null,
+        "The message exceeds the maximum size of 40 bytes");
+    assertFails(limits, "<messageML>${data.text}</messageML>", "{\"text\": \"012345678901234567890123456789\"}",
+        "The EntityJSON exceeds the maximum size of 40 bytes");
+    assertFails(limits, "<messageML>${data.t}</messageML>", "{\"t\": \"012345678901234567\"}",
+        "The expanded message exceeds the maximum size of 40 bytes");
+  }
+
+  @Test
+  public void testDepth() throws Exception {
+    ParseLimits limits = new ParseLimits();
+    limits.setMaxDepth(3);
+
+    assertParses(limits, "<messageML><p><b>bold</b></p><i>italic</i></messageML>", null);
+    assertFails(limits, "<messageML><p><b><i>italic</i></b></p></messageML>", null,
+        "The message exceeds the maximum depth of 3 nested elements");
+  }
+
+  @Test
+  public void testElements() throws Exception {
+    ParseLimits limits = new ParseLimits();
+    limits.setMaxElements(3);
+
+    assertParses(limits, "<messageML><b>1</b><i>2</i><p>3</p></messageML>", null);
+    assertFails(limits, "<messageML><b>1</b><i>2</i><p>3</p><br/></messageML>", null,
+        "The message exceeds the maximum number of 3 elements");
+  }
+
+  @Test
+  public void testEntities() throws Exception {
+    ParseLimits limits = new ParseLimits();
+    limits.setMaxEntities(2);
+
+    assertParses(limits, "<messageML><hash tag=\"a\"/> <cash tag=\"b\"/></messageML>", null);
+    assertFails(limits, "<messageML><hash tag=\"a\"/> <cash tag=\"b\"/> <hash tag=\"c\"/></messageML>", null,
+        "The message exceeds the maximum number of 2 entities");
+  }
+
+  @Test
+  public void testTableCells() throws Exception {
+    ParseLimits limits = new ParseLimits();
+    limits.setMaxTableCells(4);
+
+    assertParses(limits, "<messageML>" + TABLE + "</messageML>", null);
+    assertFails(limits, "<messageML>" + TABLE + "<table><tr><th>5</th></tr></table></messageML>", null,
+        "The message exceeds the maximum number of 4 table cells");
+  }
+
+  @Test
+  public void testPresentationMLBytes() throws Exception {
+    ParseLimits limits = new ParseLimits();
+    limits.setMaxPresentationMLBytes(70);
+
+    // <div data-format="PresentationML" data-version="2.0"></div> is 59 bytes
+    assertParses(limits, "<messageML>\u263A\u263A\u263A</messageML>", null);
+    assertFails(limits, "<messageML>\u263A\u263A\u263A\u263A</messageML>", null,
+        "The PresentationML of the message exceeds the maximum size of 70 bytes");
+  }
+
+  @Test
+  public void testPresentationMLBytesWithOutputs() throws Exception {
+    ParseLimits limits = new ParseLimits();
+    limits.setMaxPresentationMLBytes(70);
+    MessageMLEngine engine = new MessageMLEngineBuilder(new TestDataProvider())
+        .withOutputs(EnumSet.of(OutputEnum.TEXT, OutputEnum.MARKDOWN)).withLimits(limits).build();
+
+    ParseResult result = engine.parseMessageML("<messageML>\u263A\u263A\u263A</messageML>", null,
+        MessageML.MESSAGEML_VERSION);
+    assertEquals("<div data-format=\"PresentationML\" data-version=\"2.0\">\u263A\u263A\u263A</div>",
+        result.getPresentationML());
+    assertEquals("\u263A\u263A\u263A", result.getMarkdown());
+
+    try {
+      engine.parseMessageML("<messageML><b>\u263A\u263A\u263A\u263A</b></messageML>", null,
+          MessageML.MESSAGEML_VERSION);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("The PresentationML of the message exceeds the maximum size of 70 bytes", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testEngineCopiesLimits() throws Exception {
+    ParseLimits limits = new ParseLimits();
+    limits.setMaxElements(0);
+    MessageMLEngine engine = new MessageMLEngineBuilder(new TestDataProvider()).withLimits(limits).build();
+    limits.setMaxElements(ParseLimits.UNLIMITED);
+
+    try {
+      engine.parseMessageML("<messageML><b>bold</b></messageML>", null, MessageML.MESSAGEML_VERSION);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("The message exceeds the maximum number of 0 elements", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testExceedsBytes() throws Exception {
+    String[] texts = {"", "ascii", "\u00e9\u00e9", "\u263A\u263A\u263A", "a\ud83d\ude00b", "\ud83d", "\ud83d\u00e9"};
+
+    for (String text : texts) {
+      int bytes = text.getBytes(StandardCharsets.UTF_8).length;
+      assertFalse(text, ParseLimits.exceedsBytes(text, bytes));
+      if (bytes > 0) {
+        assertTrue(text, ParseLimits.exceedsBytes(text, bytes - 1));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeLimit() throws Exception {
+    new ParseLimits().setMaxDepth(-1);
+  }
+
+  private static void assertParses(ParseLimits limits, String message, String entityJson) throws Exception {
+    for (XmlParserEnum xmlParser : XmlParserEnum.values()) {
+      newEngine(xmlParser, limits).parseMessageML(message, entityJson, MessageML.MESSAGEML_VERSION);
+    }
+  }
+
+  private static void assertFails(ParseLimits limits, String message, String entityJson, String expectedError)
+      throws Exception {
+    for (XmlParserEnum xmlParser : XmlParserEnum.values()) {
+      try {
+        newEngine(xmlParser, limits).parseMessageML(message, entityJson, MessageML.MESSAGEML_VERSION);
+        fail("Should have thrown an exception with " + xmlParser);
+      } catch (InvalidInputException e) {
+        assertEquals(xmlParser.toString(), expectedError, e.getMessage());
+      }
+    }
+  }
+
+  private static MessageMLEngine newEngine(XmlParserEnum xmlParser, ParseLimits limits) {
+    return new MessageMLEngineBuilder(new TestDataProvider()).withXmlParser(xmlParser).withLimits(limits).build();
+  }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.UserPresentation;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Scanner;
+
+/**
+ * Verifies that the text read from the document tree is the same as the text content of the parsed PresentationML.
+ */
+public class ParseResultTest {
+  private static final String[] MESSAGES = {
+      "<messageML/>",
+      "<messageML>  Hello <b> world </b>!  </messageML>",
+      "<messageML>line\n\n  break&#13;\nreturn&#13;end<br/>  <hr/> <i>\n</i>\n</messageML>",
+      "<messageML><pre>pre\n\nformatted <b>bold\n\ntext</b>&#13;</pre><code>code\n\nblock</code></messageML>",
+      "<messageML><p>a &amp; b &lt; c &quot;d&quot; &#x263A;</p><div><span>nested</span> text</div></messageML>",
+      "<messageML><hash tag=\"tag\"/><cash tag=\"ticker\"/> <mention uid=\"1\"/>x<emoji shortcode=\"smiley\"/>"
+          + "<emoji shortcode=\"unknown_emoji\"/><emoji shortcode=\"smiley\">text</emoji></messageML>",
+      "<messageML><a href=\"https://example.com\"/> <a href=\"https://example.com\">link\n\ntext</a></messageML>",
+      "<messageML>before <mention email=\"nobody@example.com\"/> after"
+          + "<mention email=\"nobody@example.com\">named</mention></messageML>",
+      "<messageML><card iconSrc=\"https://example.com/icon.png\" accent=\"tempo-bg-color--blue\">"
+          + "<header>Header</header><body>Body</body></card></messageML>",
+      "<messageML><chime/></messageML>",
+      "<messageML><table><tr><td>cell 1</td><td>cell 2</td></tr></table><ul><li>one</li><li>two</li></ul>"
+          + "<img src=\"https://example.com/image.png\"/></messageML>",
+      "<messageML><form id=\"form\"><checkbox name=\"cb\" value=\"v\">Check</checkbox><radio name=\"rd\">Radio</radio>"
+          + "<text-field name=\"tf\" placeholder=\"text\"/><textarea name=\"ta\">Initial</textarea>"
+          + "<select name=\"sel\"><option value=\"1\">One</option><option value=\"2\">Two</option></select>"
+          + "<person-selector name=\"ps\"/><date-selector name=\"ds\"/><button name=\"send\">Send</button></form>"
+          + "</messageML>"
+  };
+
+  private final IDataProvider dataProvider = mock(IDataProvider.class);
+  private MessageMLEngine engine;
+
+  @Before
+  public void setUp() throws InvalidInputException {
+    UserPresentation user = new UserPresentation(123456789L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    when(dataProvider.getUserPresentation(anyLong())).thenReturn(user);
+    engine = new MessageMLEngine(dataProvider);
+  }
+
+  @Test
+  public void testPayloads() throws Exception {
+    String[][] payloads = {
+        {"payloads/templated_message_all_tags.messageml", "payloads/templated_message_all_tags.json"},
+        {"payloads/expanded_single_jira_ticket.presentationml", "payloads/expanded_single_jira_ticket.entityjson"}
+    };
+
+    for (String[] payload : payloads) {
+      assertSameText(engine.parseMessageML(getPayload(payload[0]), getPayload(payload[1]),
+          MessageML.MESSAGEML_VERSION));
+    }
+  }
+
+  @Test
+  public void testMessages() throws Exception {
+    for (String message : MESSAGES) {
+      assertSameText(engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION));
+    }
+  }
+
+  @Test
+  public void testAllOutputs() throws Exception {
+    MessageMLEngine eagerEngine = new MessageMLEngineBuilder(dataProvider).withOutputs(EnumSet.allOf(OutputEnum.class))
+        .build();
+    String[][] payloads = {
+        {"payloads/templated_message_all_tags.messageml", "payloads/templated_message_all_tags.json"},
+        {"payloads/expanded_single_jira_ticket.presentationml", "payloads/expanded_single_jira_ticket.entityjson"}
+    };
+
+    for (String[] payload : payloads) {
+      assertSameOutputs(eagerEngine.parseMessageML(getPayload(payload[0]), getPayload(payload[1]),
+          MessageML.MESSAGEML_VERSION), engine.parseMessageML(getPayload(payload[0]), getPayload(payload[1]),
+          MessageML.MESSAGEML_VERSION));
+    }
+
+    for (String message : MESSAGES) {
+      assertSameOutputs(eagerEngine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION),
+          engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION));
+    }
+  }
+
+  @Test
+  public void testMarkdown() throws Exception {
+    String[] messages = {
+        "Hello *world*\nsecond line\r\nthird\rline",
+        "Text with a #hashtag, a $cash tag and a https://example.com link",
+        "```\ncode\n\nblock\n```"
+    };
+
+    for (String message : messages) {
+      assertSameText(engine.parseMarkdown(message, null, null));
+    }
+  }
+
+  @Test
+  public void testWritePresentationML() throws Exception {
+    String message = "<messageML>Caf\u00e9 &amp; <b>\u263a</b> <emoji shortcode=\"smiley\"/> \ud83d\ude00</messageML>";
+    String expected = engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION).getPresentationML();
+    byte[] expectedBytes = expected.getBytes(StandardCharsets.UTF_8);
+
+    assertEquals(true, expected.contains("Caf\u00e9 &amp; <b>\u263a</b>"));
+    assertArrayEquals(expectedBytes,
+        engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION).getPresentationMLBytes());
+
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION).writePresentationML(bout);
+    assertArrayEquals(expectedBytes, bout.toByteArray());
+
+    StringBuilder sb = new StringBuilder();
+    engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION).writePresentationML(sb);
+    assertEquals(expected, sb.toString());
+
+    StringWriter writer = new StringWriter();
+    engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION).writePresentationML(writer);
+    assertEquals(expected, writer.toString());
+
+    // Once generated, the memoised output is written
+    ParseResult result = engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION);
+    result.getPresentationML();
+    bout.reset();
+    result.writePresentationML(bout);
+    assertArrayEquals(expectedBytes, bout.toByteArray());
+    assertArrayEquals(expectedBytes, result.getPresentationMLBytes());
+    assertEquals(expected, result.getPresentationML());
+  }
+
+  @Test
+  public void testWriteEntities() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    String[] messages = {
+        "<messageML>no entities</messageML>",
+        "<messageML><a href=\"https://example.com\">link</a> <hash tag=\"tag\"/> <cash tag=\"ticker\"/> "
+            + "<mention uid=\"123456789\"/> <a href=\"https://example.com/\u00e9\"/> <hash tag=\"t\u00e9g\"/>"
+            + "</messageML>"
+    };
+
+    for (String message : messages) {
+      ParseResult result = engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION);
+      byte[] expected = mapper.writeValueAsBytes(result.getEntities());
+
+      ByteArrayOutputStream bout = new ByteArrayOutputStream();
+      result.writeEntities(bout);
+      assertArrayEquals(message, expected, bout.toByteArray());
+
+      // Written into a larger document
+      StringWriter writer = new StringWriter();
+      try (JsonGenerator generator = new JsonFactory().createGenerator(writer)) {
+        generator.writeStartArray();
+        result.writeEntities(generator);
+        generator.writeEndArray();
+      }
+      assertEquals(message, "[" + new String(expected, StandardCharsets.UTF_8) + "]", writer.toString());
+    }
+
+    ParseResult result = engine.parseMarkdown("#tag and https://example.com", null, null);
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    result.writeEntities(bout);
+    assertEquals(mapper.readTree(bout.toByteArray()), result.getEntities());
+    assertEquals(false, result.getEntities() == result.getEntities());
+  }
+
+  private void assertSameOutputs(ParseResult expected, ParseResult actual) throws Exception {
+    String message = expected.getPresentationML();
+
+    assertEquals(message, expected.getText(true), actual.getText(true));
+    assertEquals(message, expected.getText(false), actual.getText(false));
+    assertEquals(message, expected.getText(), actual.getText());
+    assertEquals(message, expected.getPresentationML(), actual.getPresentationML());
+    assertEquals(message, expected.getMarkdown(), actual.getMarkdown());
+    assertEquals(message, expected.getEntities(), actual.getEntities());
+    assertEquals(message, expected.getEntityJson(), actual.getEntityJson());
+  }
+
+  private void assertSameText(ParseResult result) throws Exception {
+    Element doc = MessageMLParser.parseDocument(result.getPresentationML());
+
+    assertEquals(result.getPresentationML(), doc.getTextContent(), result.getText());
+    assertEquals(result.getPresentationML(), getText(doc, true), result.getText(true));
+    assertEquals(result.getPresentationML(), getText(doc, false), result.getText(false));
+  }
+
+  private String getText(Element doc, boolean preserveWhitespace) {
+    StringBuilder sb = new StringBuilder();
+    NodeList nodes = doc.getChildNodes();
+
+    for (int i = 0; i < nodes.getLength(); i++) {
+      String text = (preserveWhitespace) ? nodes.item(i).getTextContent() : nodes.item(i).getTextContent().trim();
+
+      if (i > 0 && StringUtils.isNotEmpty(text)) {
+        sb.append(" ");
+      }
+
+      sb.append(text);
+    }
+
+    return sb.toString();
+  }
+
+  private String getPayload(String filename) throws IOException {
+    ClassLoader classLoader = getClass().getClassLoader();
+    try(Scanner scanner = new Scanner(classLoader.getResourceAsStream(filename), StandardCharsets.UTF_8.name()))
+    {
+      return scanner.useDelimiter("\\A").next();
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.UserPresentation;
+
+import java.io.IOException;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rendering of parsed messages to PresentationML, for a message using all tags and for a message made
+ * mostly of text. Run with the test classpath, e.g. from the IDE via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PresentationMLBenchmark {
+
+  @Param({"all_tags", "text"})
+  private String message;
+
+  private ParseResult result;
+
+  @Setup
+  public void setUp() throws Exception {
+    IDataProvider dataProvider = mock(IDataProvider.class);
+    UserPresentation user = new UserPresentation(123456789L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    when(dataProvider.getUserPresentation(anyLong())).thenReturn(user);
+    when(dataProvider.getUserPresentation(anyString())).thenReturn(user);
+    MessageMLEngine engine = new MessageMLEngine(dataProvider);
+
+    if ("all_tags".equals(message)) {
+      result = engine.parseMessageML(getPayload("payloads/templated_message_all_tags.messageml"),
+          getPayload("payloads/templated_message_all_tags.json"), MessageML.MESSAGEML_VERSION);
+    } else {
+      StringBuilder messageML = new StringBuilder("<messageML>");
+
+      for (int i = 0; i < 100; i++) {
+        messageML.append("<p>Paragraph ").append(i).append(" of plain text,\nwith a line break and <b>bold</b> &amp; ")
+            .append("<i>italic</i> words.</p>\n");
+      }
+
+      result = engine.parseMessageML(messageML.append("</messageML>").toString(), null, MessageML.MESSAGEML_VERSION);
+    }
+  }
+
+  @Benchmark
+  public byte[] getPresentationMLBytes() {
+    return result.getPresentationMLBytes();
+  }
+
+  @Benchmark
+  public void writePresentationML() throws IOException {
+    result.writePresentationML(new NullOutputStream());
+  }
+
+  private static String getPayload(String filename) {
+    try (Scanner scanner = new Scanner(PresentationMLBenchmark.class.getClassLoader().getResourceAsStream(filename))) {
+      return scanner.useDelimiter("\\A").next();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(PresentationMLBenchmark.class.getSimpleName()).build()).run();
+  }
+}
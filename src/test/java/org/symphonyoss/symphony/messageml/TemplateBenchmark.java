@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Freemarker template expansion skipped for messages without template syntax, on the PresentationML
+ * test payload. Run with the test classpath, e.g. from the IDE via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private String message;
+  private ObjectNode entityJson;
+
+  @Setup
+  public void setUp() throws IOException {
+    message = getPayload("payloads/expanded_single_jira_ticket.presentationml");
+    entityJson = (ObjectNode) MAPPER.readTree(getPayload("payloads/expanded_single_jira_ticket.entityjson"));
+  }
+
+  @Benchmark
+  public String expandTemplates() throws Exception {
+    return MessageMLParser.expandTemplates(message, entityJson);
+  }
+
+  @Benchmark
+  public boolean hasTemplates() {
+    return MessageMLParser.hasTemplates(message);
+  }
+
+  private String getPayload(String filename) throws IOException {
+    ClassLoader classLoader = getClass().getClassLoader();
+    try(Scanner scanner = new Scanner(classLoader.getResourceAsStream(filename)))
+    {
+      return scanner.useDelimiter("\\A").next();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(TemplateBenchmark.class.getSimpleName()).build()).run();
+  }
+}
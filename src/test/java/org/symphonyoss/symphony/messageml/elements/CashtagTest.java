@@ -8,6 +8,7 @@ import org.junit.Test;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
 import java.util.Collections;
+import java.util.regex.Pattern;
 
 public class CashtagTest extends ElementTest {
 
@@ -203,6 +204,18 @@ public class CashtagTest extends ElementTest {
   }
 
 
+  @Test
+  public void testTagPattern() throws Exception {
+    CashTag cashTag = new CashTag(null, 1);
+
+    for (String tag : new String[] {"1,000.50", "1.5bn", "10MM", "3m", "2(", "7/", "1.5mmm", "1.5bn1", "12a", "a12m",
+        "1m\u2028", "1\u2029", "1x\u0085", "\u2028", "$AAPL", "AA PL"}) {
+      assertEquals(tag, Pattern.matches(CashTag.CASHTAG_PATTERN, tag), cashTag.matchesTagPattern(tag));
+    }
+
+    assertMatchesTagPattern(cashTag);
+  }
+
   private void verifyCashTag(Element messageML, String expectedPresentationML, String expectedJson, String expectedText,
       String expectedMarkdown) throws Exception {
     assertEquals("Element children", 3, messageML.getChildren().size());
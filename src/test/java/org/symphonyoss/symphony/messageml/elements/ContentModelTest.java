@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.elements;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class ContentModelTest {
+
+  @Test
+  public void testKindOf() throws Exception {
+    assertEquals(ContentModel.kindOf(Bold.class), ContentModel.kindOf(Bold.class));
+    assertNotEquals(ContentModel.kindOf(Bold.class), ContentModel.kindOf(Italic.class));
+    assertEquals(ContentModel.kindOf(Bold.class), new Bold(null).getKind());
+  }
+
+  @Test
+  public void testContains() throws Exception {
+    ContentModel model = ContentModel.of(TextNode.class, Bold.class, FormElement.class);
+    Bold bold = new Bold(null);
+
+    assertTrue(model.contains(bold));
+    assertTrue(model.contains(new TextNode(bold, "text")));
+    assertFalse(model.contains(new Italic(null)));
+    // Only the listed classes are permitted, not their subclasses
+    assertFalse(model.contains(new Option(null)));
+    assertEquals(Arrays.asList(TextNode.class, Bold.class, FormElement.class), model.getClasses());
+  }
+}
@@ -29,11 +29,20 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.symphonyoss.symphony.messageml.MessageMLContext;
+import org.symphonyoss.symphony.messageml.MessageMLEngine;
+import org.symphonyoss.symphony.messageml.MessageMLEngineBuilder;
+import org.symphonyoss.symphony.messageml.OutputEnum;
+import org.symphonyoss.symphony.messageml.ParseResult;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
 import org.symphonyoss.symphony.messageml.util.TestDataProvider;
 
+import java.io.IOException;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.regex.Pattern;
 
 /**
  * Base class for unit tests of MessageML elements. Sets up fields used across all other tests and verifies general cases.
@@ -58,7 +67,7 @@ public class ElementTest {
 
   @Before
   public void setUp() {
-    context = new MessageMLContext(dataProvider);
+    context = new EagerOutputsCheckingContext(dataProvider);
   }
 
   @Test
@@ -290,4 +299,77 @@ public class ElementTest {
     }
   }
 
+  /**
+   * Check that the keyword accepts the same tags as its validation pattern, for all short tags and random longer
+   * tags made of characters the pattern treats specially. Random tags often start with a number, to exercise the
+   * amounts excluded from cashtags.
+   */
+  void assertMatchesTagPattern(Keyword keyword) {
+    String alphabet = "09,.mbtnMBTN+-()[]*/$#!a_ \t\n\r\u000B\f\u0085\u2028\u2029\u00a0\ud83d\ude00";
+    String numbers = "09,.";
+    Pattern pattern = Pattern.compile(keyword.getTagPattern());
+    Random random = new Random(42);
+
+    for (int length = 0; length <= 3; length++) {
+      int count = (int) Math.pow(alphabet.length(), length);
+
+      for (int n = 0; n < count; n++) {
+        StringBuilder tag = new StringBuilder();
+        for (int i = 0, rest = n; i < length; i++, rest /= alphabet.length()) {
+          tag.append(alphabet.charAt(rest % alphabet.length()));
+        }
+        assertMatchesTagPattern(keyword, pattern, tag.toString());
+      }
+    }
+
+    for (int n = 0; n < 100000; n++) {
+      StringBuilder tag = new StringBuilder();
+      for (int i = random.nextInt(6); i > 0; i--) {
+        tag.append(numbers.charAt(random.nextInt(numbers.length())));
+      }
+      for (int i = random.nextInt(6); i > 0; i--) {
+        tag.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      assertMatchesTagPattern(keyword, pattern, tag.toString());
+    }
+  }
+
+  /**
+   * Context which also parses each message with all outputs requested up front, and verifies that the outputs
+   * generated up front are the same as the outputs generated on first use.
+   */
+  private static class EagerOutputsCheckingContext extends MessageMLContext {
+    private final MessageMLEngine allOutputsEngine;
+
+    EagerOutputsCheckingContext(IDataProvider dataProvider) {
+      super(dataProvider);
+      this.allOutputsEngine = new MessageMLEngineBuilder(dataProvider).withOutputs(EnumSet.allOf(OutputEnum.class))
+          .build();
+    }
+
+    @Override
+    public void parseMessageML(String message, String entityJson, String version) throws InvalidInputException,
+        IOException, ProcessingException {
+      super.parseMessageML(message, entityJson, version);
+      assertSameOutputs(allOutputsEngine.parseMessageML(message, entityJson, version), getResult());
+    }
+
+    private static void assertSameOutputs(ParseResult expected, ParseResult actual) throws InvalidInputException,
+        ProcessingException {
+      String message = actual.getPresentationML();
+
+      assertEquals(message, actual.getText(), expected.getText());
+      assertEquals(message, actual.getText(true), expected.getText(true));
+      assertEquals(message, actual.getText(false), expected.getText(false));
+      assertEquals(message, actual.getPresentationML(), expected.getPresentationML());
+      assertEquals(message, actual.getMarkdown(), expected.getMarkdown());
+      assertEquals(message, actual.getEntities(), expected.getEntities());
+      assertEquals(message, actual.getEntityJson(), expected.getEntityJson());
+    }
+  }
+
+  private static void assertMatchesTagPattern(Keyword keyword, Pattern pattern, String tag) {
+    assertEquals("Tag \"" + tag + "\"", pattern.matcher(tag).matches(), keyword.matchesTagPattern(tag));
+  }
+
 }
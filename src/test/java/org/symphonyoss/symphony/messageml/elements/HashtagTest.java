@@ -196,6 +196,11 @@ public class HashtagTest extends ElementTest {
     context.parseMessageML(invalidElement, null, MessageML.MESSAGEML_VERSION);
   }
 
+  @Test
+  public void testTagPattern() throws Exception {
+    assertMatchesTagPattern(new HashTag(null, 1));
+  }
+
   private void verifyHashTag(Element messageML, String expectedPresentationML, String expectedJson, String expectedText,
       String expectedMarkdown) throws Exception {
     assertEquals("Element children", 3, messageML.getChildren().size());
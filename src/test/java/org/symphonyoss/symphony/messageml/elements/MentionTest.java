@@ -2,21 +2,32 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.Test;
 import org.symphonyoss.symphony.messageml.MessageMLContext;
+import org.symphonyoss.symphony.messageml.XmlParserEnum;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.IUserPresentation;
 import org.symphonyoss.symphony.messageml.util.TestDataProvider;
 import org.symphonyoss.symphony.messageml.util.UserPresentation;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MentionTest extends ElementTest {
 
@@ -337,6 +348,92 @@ public class MentionTest extends ElementTest {
     assertEquals("Generated text", expectedText, mockContext.getText());
   }
 
+  @Test
+  public void testBatchUserLookup() throws Exception {
+    UserPresentation user1 = new UserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    UserPresentation user2 = new UserPresentation(2L, "bot.user2", "Bot User02", "bot.user2@localhost.com");
+    UserPresentation user3 = new UserPresentation(3L, "bot.user3", "Bot User03", "bot.user3@localhost.com");
+
+    String input = "<messageML><mention uid=\"1\"/> <mention email=\"Bot.User2@localhost.com\"/> "
+        + "<mention uid=\"3\"/> <span class=\"entity\" data-entity-id=\"mention\">@Bot User01</span></messageML>";
+    String entityJson = "{\"mention\":{\"type\":\"com.symphony.user.mention\",\"version\":\"1.0\","
+        + "\"id\":[{\"type\":\"com.symphony.user.userId\",\"value\":1}]}}";
+    Set<Long> uids = new HashSet<>(Arrays.asList(1L, 3L));
+    Set<String> emails = Collections.singleton("Bot.User2@localhost.com");
+
+    for (XmlParserEnum xmlParser : XmlParserEnum.values()) {
+      IDataProvider batchDataProvider = mock(IDataProvider.class);
+      when(batchDataProvider.getUserPresentations(uids, emails)).thenReturn(Arrays.asList(user1, user2));
+      when(batchDataProvider.getUserPresentation(3L)).thenReturn(user3);
+
+      MessageMLContext batchContext = new MessageMLContext(batchDataProvider, xmlParser);
+      batchContext.parseMessageML(input, entityJson, MessageML.MESSAGEML_VERSION);
+
+      assertEquals("PresentationML", "<div data-format=\"PresentationML\" data-version=\"2.0\">"
+          + "<span class=\"entity\" data-entity-id=\"mention1\">@Bot User01</span> "
+          + "<span class=\"entity\" data-entity-id=\"mention2\">@Bot User02</span> "
+          + "<span class=\"entity\" data-entity-id=\"mention3\">@Bot User03</span> "
+          + "<span class=\"entity\" data-entity-id=\"mention\">@Bot User01</span></div>",
+          batchContext.getPresentationML());
+      verify(batchDataProvider, times(1)).getUserPresentations(uids, emails);
+      verify(batchDataProvider, never()).getUserPresentation(1L);
+      verify(batchDataProvider, never()).getUserPresentation(anyString());
+    }
+  }
+
+  @Test
+  public void testBatchUserLookupNotSupported() throws Exception {
+    AtomicInteger lookups = new AtomicInteger();
+    TestDataProvider singleDataProvider = new TestDataProvider() {
+      @Override
+      public IUserPresentation getUserPresentation(String email) throws InvalidInputException {
+        lookups.incrementAndGet();
+        return super.getUserPresentation(email);
+      }
+
+      @Override
+      public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+        lookups.incrementAndGet();
+        return super.getUserPresentation(uid);
+      }
+    };
+    singleDataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    MessageMLContext singleContext = new MessageMLContext(singleDataProvider);
+
+    singleContext.parseMessageML("<messageML><mention uid=\"1\"/><mention email=\"bot.user1@localhost.com\"/>"
+        + "<mention uid=\"1\"/></messageML>", null, MessageML.MESSAGEML_VERSION);
+
+    assertEquals("PresentationML", "<div data-format=\"PresentationML\" data-version=\"2.0\">"
+        + "<span class=\"entity\" data-entity-id=\"mention1\">@Bot User01</span>"
+        + "<span class=\"entity\" data-entity-id=\"mention2\">@Bot User01</span>"
+        + "<span class=\"entity\" data-entity-id=\"mention3\">@Bot User01</span></div>",
+        singleContext.getPresentationML());
+    assertEquals("Single user lookups", 3, lookups.get());
+  }
+
+  @Test
+  public void testBatchUserLookupFirstError() throws Exception {
+    UserPresentation user = new UserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    ((TestDataProvider) dataProvider).setUserPresentation(user);
+
+    String input = "<messageML><mention uid=\"2\" strict=\"false\"/><mention uid=\"1\"/>"
+        + "<mention email=\"invalid@email.com\"/><mention uid=\"0\"/></messageML>";
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Failed to lookup user \"invalid@email.com\"");
+    context.parseMessageML(input, null, MessageML.MESSAGEML_VERSION);
+  }
+
+  @Test
+  public void testStructuralErrorBeforeUserLookupError() throws Exception {
+    // Users are looked up once the document tree is built, so errors found while building it are reported first
+    String input = "<messageML><mention uid=\"2\"/><ul>text</ul></messageML>";
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Element \"ul\" may not have text content");
+    context.parseMessageML(input, null, MessageML.MESSAGEML_VERSION);
+  }
+
   @Test
   public void testPresentationMLShorthandMention() throws Exception {
     String invalidElement = "<div class=\"com.symphony.presentationml\"><mention uid=\"1\"/></div>";
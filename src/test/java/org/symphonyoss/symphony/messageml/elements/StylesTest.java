@@ -1,8 +1,15 @@
 package org.symphonyoss.symphony.messageml.elements;
 
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.base.Splitter;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
+import java.util.Map;
+import java.util.Random;
+
 public class StylesTest extends ElementTest {
 
   @Test
@@ -42,4 +49,60 @@ public class StylesTest extends ElementTest {
     Styles.validate(validString);
   }
 
+  @Test
+  public void validateDuplicateProperty() throws Exception {
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Unparseable \"style\" attribute: color:green;;color:red");
+    Styles.validate("color:green;;color:red");
+  }
+
+  @Test
+  public void validateSameAsSplitter() throws Exception {
+    String[] tokens = {"color", "width", "back", "colo", "", " ", ":", ":", ";", ";", "red", "10px"};
+    Random random = new Random(42);
+
+    for (int n = 0; n < 100000; n++) {
+      StringBuilder style = new StringBuilder();
+      for (int i = random.nextInt(10); i > 0; i--) {
+        style.append(tokens[random.nextInt(tokens.length)]);
+      }
+
+      String styleAttribute = style.toString();
+      assertEquals(styleAttribute, isValidBySplitter(styleAttribute), Styles.isValid(styleAttribute));
+    }
+  }
+
+  @Test
+  public void validateWithCache() throws Exception {
+    Styles styles = new Styles(10);
+    styles.check("color:green");
+    styles.check("color:green");
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Invalid property(s): [back] in the \"style\" attribute");
+    styles.check("back:c");
+  }
+
+  @Test
+  public void validateLongAttributeWithCache() throws Exception {
+    Styles styles = new Styles(10);
+    String longAttribute = "color:" + StringUtils.repeat("green", Styles.MAX_CACHED_LENGTH);
+    styles.check(longAttribute);
+    styles.check(longAttribute);
+
+    expectedException.expect(InvalidInputException.class);
+    expectedException.expectMessage("Invalid property(s): [back] in the \"style\" attribute");
+    styles.check(longAttribute + ";back:c");
+  }
+
+  private static boolean isValidBySplitter(String styleAttribute) {
+    try {
+      Map<String, String> styleMap = Splitter.on(";").omitEmptyStrings().withKeyValueSeparator(":")
+          .split(styleAttribute);
+      return Styles.ALLOWED_PROPERTIES.containsAll(styleMap.keySet());
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
 }
\ No newline at end of file
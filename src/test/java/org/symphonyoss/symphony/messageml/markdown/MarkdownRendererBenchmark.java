@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.markdown;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.symphonyoss.symphony.messageml.MessageMLEngine;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rendering of long chat messages to Markdown, for plain prose, for text full of reserved Markdown
+ * characters and for a large table, from the message element tree and through its Markdown node tree, and the
+ * serialization of the legacy entities found in them. Run with the test classpath, e.g.
+ * from the IDE via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownRendererBenchmark {
+
+  @Param({"prose", "reserved", "table"})
+  private String message;
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private MessageML messageML;
+  private MarkdownRenderer renderer;
+
+  @Setup
+  public void setUp() throws Exception {
+    StringBuilder messageML = new StringBuilder("<messageML>");
+
+    if ("table".equals(message)) {
+      messageML.append("<table>");
+      for (int i = 0; i < 200; i++) {
+        messageML.append("<tr><td>").append(i).append("</td><td><b>name</b></td><td><i>status</i></td>")
+            .append("<td><hash tag=\"tag").append(i).append("\"/></td><td><a href=\"https://example.com/")
+            .append(i).append("\"/></td></tr>");
+      }
+      messageML.append("</table>");
+    } else {
+      String line = "prose".equals(message)
+          ? "Hi team, the release went out this morning and everything looks fine so far.\nLet me know if you see"
+          + " anything unusual in the logs. "
+          : "Run snake_case-names with --dry-run +x and *glob* `cmd` then check a_b-c+d*e.\n";
+
+      for (int i = 0; i < 200; i++) {
+        messageML.append(line).append("<b>").append(i).append("</b> ");
+      }
+    }
+
+    MessageMLEngine engine = new MessageMLEngine(new TestDataProvider());
+    this.messageML = engine.parseMessageML(messageML.append("</messageML>").toString(), null,
+        MessageML.MESSAGEML_VERSION).getMessageML();
+    this.renderer = new MarkdownRenderer(this.messageML);
+  }
+
+  @Benchmark
+  public String render() throws Exception {
+    return new MarkdownRenderer(messageML).getText();
+  }
+
+  @Benchmark
+  public String renderDocument() throws Exception {
+    return new MarkdownRenderer(messageML.asMarkdown()).getText();
+  }
+
+  @Benchmark
+  public void writeEntityTree() throws IOException {
+    MAPPER.writeValue(new NullOutputStream(), renderer.getJson());
+  }
+
+  @Benchmark
+  public void writeEntities() throws IOException {
+    try (JsonGenerator generator = JSON_FACTORY.createGenerator(new NullOutputStream())) {
+      renderer.writeJson(generator);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(MarkdownRendererBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.markdown;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.commons.lang3.StringUtils;
+import org.commonmark.node.Document;
+import org.commonmark.node.Text;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.MessageMLEngine;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.UserPresentation;
+import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+
+import java.util.Scanner;
+import java.util.regex.Pattern;
+
+public class MarkdownRendererTest {
+  private static final Pattern NOESCAPE_PATTERN = Pattern.compile("^\\s*([_*\\-+`])\\1*\\s*$");
+
+  @Test
+  public void testSameAsDocument() throws Exception {
+    IDataProvider dataProvider = mock(IDataProvider.class);
+    UserPresentation user = new UserPresentation(123456789L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    when(dataProvider.getUserPresentation(anyLong())).thenReturn(user);
+    when(dataProvider.getUserPresentation(anyString())).thenReturn(user);
+    MessageMLEngine engine = new MessageMLEngine(dataProvider);
+
+    String[] messages = {
+        "<messageML/>",
+        "<messageML>  Hello <b> world </b>! <i>a_b</i> ---</messageML>",
+        "<messageML><p></p><p><span></span></p><p><span>text</span></p><div>div</div><hr/>end</messageML>",
+        "<messageML><pre>pre\n\nformatted <b>bold\n\ntext</b></pre><code>code\n\n<b>block</b> <i>_</i> "
+            + "<hash tag=\"tag\"/><mention uid=\"1\"/></code></messageML>",
+        "<messageML><hash tag=\"tag\"/> <cash tag=\"ticker\"/> <mention uid=\"1\"/> <mention email=\"a@b.com\"/>"
+            + "<emoji shortcode=\"smiley\"/><a href=\"https://example.com\">link</a></messageML>",
+        "<messageML><table><tr><td>1</td> <td>2</td></tr> <tr><td>3</td><td><span/></td><td>4</td></tr>"
+            + "</table><table><tr><td>a</td></tr><tr><td/><td/></tr></table></messageML>",
+        "<messageML><table><thead><tr><th>h1</th> <th>h2</th></tr></thead> <tbody><tr><td>1</td></tr> </tbody>"
+            + "<tfoot><tr><td>f</td></tr></tfoot> </table><table><tbody><tr><td><table><tr><td>inner</td></tr>"
+            + "</table></td><td>outer</td></tr></tbody></table></messageML>",
+        "<messageML><code><a href=\"https://example.com\">link text</a> <emoji shortcode=\"smiley\"/> "
+            + "<span>in span</span><br/>after break</code></messageML>",
+        "<messageML><ul><li>one<ul><li>nested <ol><li>deep</li></ol></li></ul></li><li>two</li></ul>"
+            + "<ol><li>first</li><li>second<ol><li>inner</li></ol></li></ol></messageML>",
+        "<messageML><ul><li><span><ul><li>in span</li></ul></span></li><li><p><ol><li>in paragraph</li></ol></p>"
+            + "</li></ul><ol><li><ul><li>bullet in ordered</li></ul></li></ol></messageML>",
+        "<messageML><card iconSrc=\"https://example.com/icon.png\"><header>Header</header><body>Body</body></card>"
+            + "<br/>after<br/></messageML>",
+        "<messageML><form id=\"form\"><checkbox name=\"cb\" value=\"v\">Check</checkbox><radio name=\"rd\">Radio</radio>"
+            + "<text-field name=\"tf\" placeholder=\"text\"/><textarea name=\"ta\">Initial</textarea>"
+            + "<select name=\"sel\"><option value=\"1\">One</option><option value=\"2\">Two</option></select>"
+            + "<person-selector name=\"ps\"/><date-selector name=\"ds\"/><button name=\"send\">Send</button></form>"
+            + "</messageML>"
+    };
+
+    for (String message : messages) {
+      assertSameAsDocument(engine.parseMessageML(message, null, MessageML.MESSAGEML_VERSION).getMessageML());
+    }
+
+    assertSameAsDocument(engine.parseMessageML(getPayload("payloads/templated_message_all_tags.messageml"),
+        getPayload("payloads/templated_message_all_tags.json"), MessageML.MESSAGEML_VERSION).getMessageML());
+    assertSameAsDocument(engine.parseMarkdown("Hello *world* #tag $cash https://example.com\n\n```\ncode\n```\n"
+        + "- one\n- two", null, null).getMessageML());
+  }
+
+  @Test
+  public void testEscapeText() throws Exception {
+    String[] texts = {"", " ", "\n\n", "plain text", "a_b*c-d+e`f", "_", "___", " --- ", "\t***\n", "\n+++\n\n",
+        "``` ", "-_", "--x", "x--", "- -", "__ _", "line\n\n\nbreak\n", "\u000B-\f\r", "\\_ escaped"};
+
+    for (String text : texts) {
+      assertEquals(text, expected(text), render(text));
+    }
+  }
+
+  @Test
+  public void testSeparateTextNodes() throws Exception {
+    Document document = new Document();
+    document.appendChild(new Text("---"));
+    document.appendChild(new Text("a-b\n\n"));
+    document.appendChild(new Text("\n___"));
+
+    assertEquals("---a\\-b  ___", new MarkdownRenderer(document).getText());
+  }
+
+  private static void assertSameAsDocument(MessageML messageML) throws Exception {
+    MarkdownRenderer expected = new MarkdownRenderer(messageML.asMarkdown());
+    MarkdownRenderer actual = new MarkdownRenderer(messageML);
+
+    assertEquals("Markdown", expected.getText(), actual.getText());
+    assertEquals("JSON", expected.getJson(), actual.getJson());
+  }
+
+  private static String getPayload(String filename) {
+    try (Scanner scanner = new Scanner(MarkdownRendererTest.class.getClassLoader().getResourceAsStream(filename))) {
+      return scanner.useDelimiter("\\A").next();
+    }
+  }
+
+  private static String render(String text) {
+    Document document = new Document();
+    document.appendChild(new Text(text));
+    return new MarkdownRenderer(document).getText();
+  }
+
+  private static String expected(String text) {
+    String content = XmlPrintStream.removeNewLines(text);
+    if (NOESCAPE_PATTERN.matcher(content).matches()) {
+      return content;
+    }
+    return StringUtils.replaceEach(content, new String[] {"_", "*", "-", "+", "`"},
+        new String[] {"\\_", "\\*", "\\-", "\\+", "\\`"});
+  }
+}
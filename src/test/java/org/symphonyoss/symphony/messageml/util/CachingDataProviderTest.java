@@ -0,0 +1,218 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheStats;
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.MessageMLContext;
+import org.symphonyoss.symphony.messageml.MessageMLEngine;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CachingDataProviderTest {
+  private static final UserPresentation USER =
+      new UserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+
+  private final AtomicLong nanos = new AtomicLong();
+  private IDataProvider dataProvider;
+  private CachingDataProvider cachingDataProvider;
+
+  @Before
+  public void setUp() throws Exception {
+    dataProvider = mock(IDataProvider.class);
+    when(dataProvider.getUserPresentation(1L)).thenReturn(USER);
+    when(dataProvider.getUserPresentation("bot.user1@localhost.com")).thenReturn(USER);
+    when(dataProvider.getUserPresentation(0L)).thenThrow(new InvalidInputException("Failed to lookup user \"0\""));
+
+    Ticker ticker = new Ticker() {
+      @Override
+      public long read() {
+        return nanos.get();
+      }
+    };
+    cachingDataProvider = new CachingDataProvider(dataProvider, 100, 10, 1, TimeUnit.MINUTES, ticker);
+  }
+
+  @Test
+  public void testCacheUser() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      assertSame(USER, cachingDataProvider.getUserPresentation(1L));
+      assertSame(USER, cachingDataProvider.getUserPresentation("bot.user1@localhost.com"));
+    }
+
+    verify(dataProvider, times(1)).getUserPresentation(1L);
+    verify(dataProvider, times(1)).getUserPresentation("bot.user1@localhost.com");
+    assertEquals(new CacheStats(4, 2, 0, 0, 0, 0), cachingDataProvider.getUserCacheStats());
+
+    nanos.addAndGet(TimeUnit.MINUTES.toNanos(10));
+    cachingDataProvider.getUserPresentation(1L);
+    verify(dataProvider, times(2)).getUserPresentation(1L);
+  }
+
+  @Test
+  public void testCacheUserNotFound() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      assertUserNotFound(0L);
+    }
+    verify(dataProvider, times(1)).getUserPresentation(0L);
+    assertEquals(new CacheStats(2, 1, 0, 0, 0, 0), cachingDataProvider.getUserCacheStats());
+
+    nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+    assertUserNotFound(0L);
+    verify(dataProvider, times(2)).getUserPresentation(0L);
+  }
+
+  @Test
+  public void testBatchLookup() throws Exception {
+    UserPresentation user2 = new UserPresentation(2L, "bot.user2", "Bot User02", "bot.user2@localhost.com");
+    when(dataProvider.getUserPresentations(any(), any())).thenReturn(Collections.singletonList(user2));
+    cachingDataProvider.getUserPresentation(1L);
+    assertUserNotFound(0L);
+
+    assertEquals(Arrays.asList(USER, user2), cachingDataProvider.getUserPresentations(Arrays.asList(0L, 1L),
+        Collections.singletonList("Bot.User2@localhost.com")));
+    verify(dataProvider).getUserPresentations(Collections.emptySet(),
+        Collections.singletonList("Bot.User2@localhost.com"));
+
+    assertSame(user2, cachingDataProvider.getUserPresentation("Bot.User2@localhost.com"));
+    assertEquals(Collections.singletonList(user2), cachingDataProvider.getUserPresentations(Collections.emptyList(),
+        Collections.singletonList("Bot.User2@localhost.com")));
+    verify(dataProvider, times(1)).getUserPresentations(any(), any());
+  }
+
+  @Test
+  public void testCacheUserByEmailIgnoringCase() throws Exception {
+    for (String email : Arrays.asList("bot.user1@localhost.com", "Bot.User1@localhost.com", "BOT.USER1@LOCALHOST.COM")) {
+      assertSame(USER, cachingDataProvider.getUserPresentation(email));
+    }
+    verify(dataProvider, times(1)).getUserPresentation(any(String.class));
+
+    assertEquals(Collections.singletonList(USER), cachingDataProvider.getUserPresentations(Collections.emptyList(),
+        Collections.singletonList("Bot.User1@LocalHost.com")));
+    verify(dataProvider, times(0)).getUserPresentations(any(), any());
+
+    when(dataProvider.getUserPresentation("Missing@localhost.com"))
+        .thenThrow(new InvalidInputException("Failed to lookup user \"Missing@localhost.com\""));
+    for (String email : Arrays.asList("Missing@localhost.com", "missing@localhost.com")) {
+      try {
+        cachingDataProvider.getUserPresentation(email);
+        fail("Should have thrown an exception");
+      } catch (InvalidInputException e) {
+        assertEquals("Failed to lookup user \"Missing@localhost.com\"", e.getMessage());
+      }
+    }
+    verify(dataProvider, times(1)).getUserPresentation("Missing@localhost.com");
+    verify(dataProvider, times(0)).getUserPresentation("missing@localhost.com");
+  }
+
+  @Test
+  public void testCacheURI() throws Exception {
+    doThrow(new InvalidInputException("URI scheme \"ftp\" is not supported by the pod."))
+        .when(dataProvider).validateURI(URI.create("ftp://localhost/a"));
+
+    for (int i = 0; i < 3; i++) {
+      cachingDataProvider.validateURI(URI.create("https://localhost/" + i));
+
+      try {
+        cachingDataProvider.validateURI(URI.create("ftp://localhost/a"));
+        fail("Should have thrown an exception");
+      } catch (InvalidInputException e) {
+        assertEquals("URI scheme \"ftp\" is not supported by the pod.", e.getMessage());
+      }
+    }
+
+    verify(dataProvider, times(1)).validateURI(URI.create("https://localhost/0"));
+    verify(dataProvider, times(1)).validateURI(URI.create("ftp://localhost/a"));
+    assertEquals(4, cachingDataProvider.getURICacheStats().hitCount());
+    assertEquals(2, cachingDataProvider.getURICacheStats().missCount());
+
+    cachingDataProvider.invalidateAll();
+    cachingDataProvider.validateURI(URI.create("https://localhost/"));
+    verify(dataProvider, times(3)).validateURI(any());
+  }
+
+  @Test
+  public void testParseMessageML() throws Exception {
+    MessageMLContext context = new MessageMLContext(cachingDataProvider);
+    String message = "<messageML><mention uid=\"1\"/> <mention email=\"bot.user1@localhost.com\"/> "
+        + "<a href=\"https://localhost/\">link</a></messageML>";
+
+    for (int i = 0; i < 3; i++) {
+      context.parseMessageML(message, null, MessageML.MESSAGEML_VERSION);
+      assertEquals("<div data-format=\"PresentationML\" data-version=\"2.0\">"
+          + "<span class=\"entity\" data-entity-id=\"mention1\">@Bot User01</span> "
+          + "<span class=\"entity\" data-entity-id=\"mention2\">@Bot User01</span> "
+          + "<a href=\"https://localhost/\">link</a></div>", context.getPresentationML());
+    }
+
+    verify(dataProvider, times(1)).getUserPresentation(1L);
+    verify(dataProvider, times(1)).getUserPresentation("bot.user1@localhost.com");
+    verify(dataProvider, times(1)).validateURI(any());
+  }
+
+  @Test
+  public void testUserCacheStatsWithoutBatchLookup() throws Exception {
+    TestDataProvider singleDataProvider = new TestDataProvider();
+    singleDataProvider.setUserPresentation(USER);
+    CachingDataProvider cachingSingleDataProvider = new CachingDataProvider(singleDataProvider);
+    MessageMLEngine engine = new MessageMLEngine(cachingSingleDataProvider);
+
+    engine.parseMessageML("<messageML><mention uid=\"1\"/></messageML>", null, MessageML.MESSAGEML_VERSION);
+    assertEquals("Cold mention", new CacheStats(0, 1, 0, 0, 0, 0), cachingSingleDataProvider.getUserCacheStats());
+
+    engine.parseMessageML("<messageML><mention uid=\"1\"/></messageML>", null, MessageML.MESSAGEML_VERSION);
+    assertEquals("Cached mention", new CacheStats(1, 1, 0, 0, 0, 0), cachingSingleDataProvider.getUserCacheStats());
+
+    for (int i = 0; i < 3; i++) {
+      try {
+        engine.parseMessageML("<messageML><mention uid=\"2\"/></messageML>", null, MessageML.MESSAGEML_VERSION);
+        fail("Should have thrown an exception");
+      } catch (InvalidInputException e) {
+        assertEquals("Failed to lookup user \"2\"", e.getMessage());
+      }
+    }
+    assertEquals("Repeated user not found", new CacheStats(3, 2, 0, 0, 0, 0),
+        cachingSingleDataProvider.getUserCacheStats());
+  }
+
+  private void assertUserNotFound(Long uid) {
+    try {
+      cachingDataProvider.getUserPresentation(uid);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("Failed to lookup user \"" + uid + "\"", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class JsonFieldIndexTest {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Test
+  public void testSameAsDeepSearch() throws Exception {
+    JsonNode json = MAPPER.readTree("{"
+        + "\"mention1\": {\"type\": \"com.symphony.user.mention\", \"id\": [{\"type\": \"userId\", \"value\": 1}]},"
+        + "\"nested\": {\"a\": {\"id\": \"inner\", \"value\": {\"value\": \"deep\"}}, \"list\": [{\"id\": 2}, 3]},"
+        + "\"duplicate\": {\"x\": 1}, \"other\": {\"duplicate\": {\"x\": 2}},"
+        + "\"self\": {\"self\": {\"self\": 1}, \"next\": {\"self\": 2}},"
+        + "\"scalar\": \"text\", \"\": {\"empty\": true}}");
+    JsonFieldIndex index = new JsonFieldIndex(json);
+
+    for (String name : new String[] {"mention1", "type", "id", "value", "nested", "a", "list", "duplicate", "x",
+        "other", "self", "next", "scalar", "", "empty", "missing"}) {
+      List<JsonNode> expected = json.findValues(name);
+      assertEquals(name, expected, index.findValues(name));
+      assertEquals(name, json.findPath(name), index.findPath(name));
+
+      for (int i = 0; i < expected.size(); i++) {
+        assertSame(name, expected.get(i), index.findValues(name).get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    JsonFieldIndex index = new JsonFieldIndex(MAPPER.readTree("{}"));
+
+    assertEquals(Collections.emptyList(), index.findValues("id"));
+    assertEquals(true, index.findPath("id").isMissingNode());
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import static org.junit.Assert.assertEquals;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Map;
+
+public class JsonNodeObjectWrapperTest {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final String DATA = "{\"text\": \"Hello\", \"int\": 1234, \"long\": 12345678901, "
+      + "\"big\": 123456789012345678901234567890, \"double\": 1.5, \"whole\": 2.0, \"true\": true, \"false\": false, "
+      + "\"null\": null, \"empty\": {}, \"list\": [1, \"two\", {\"three\": 3}], \"object\": {\"a\": 1, \"b\": [true]}}";
+
+  private final Configuration mapConfig = new Configuration(Configuration.getVersion());
+  private final Configuration jsonConfig = new Configuration(Configuration.getVersion());
+
+  public JsonNodeObjectWrapperTest() {
+    jsonConfig.setObjectWrapper(new JsonNodeObjectWrapper(jsonConfig.getIncompatibleImprovements()));
+  }
+
+  @Test
+  public void testSameAsConvertedMap() throws Exception {
+    String[] templates = {
+        "${data.text} ${data.int} ${data.long} ${data.big} ${data.double} ${data.whole}",
+        "${data.int + data.long} ${data.double * 2} ${data.int?c} ${data.big?c} ${(data.int > 1000)?c}",
+        "${data.true?c} ${data.false?string('yes', 'no')} <#if data.true>true</#if>",
+        "${data.null!'default'} ${data.missing!'missing'} ${(data.null??)?c} ${(data.text??)?c}",
+        "${data.empty?has_content?c} ${data.empty?size} ${data.object?size} ${data.list?size}",
+        "<#list data.list as item>${item?is_number?c}/${item?is_string?c}/${item?is_hash?c} </#list>",
+        "${data.list[0]} ${data.list[1]} ${data.list[2].three} ${data.object.b[0]?c}",
+        "<#list data.object?keys as key>${key} </#list><#list data.object?values as value>${value?is_hash?c} </#list>",
+        "<#list data.object as key, value>${key}=${value?is_sequence?c} </#list>",
+        "${data?is_hash_ex?c} ${data.list?is_sequence?c} ${data.list?is_enumerable?c} ${data.text?is_string?c}",
+        "<#list data?keys as key>${key},</#list>"
+    };
+
+    JsonNode json = MAPPER.readTree(DATA);
+
+    for (String template : templates) {
+      Map<String, Object> map = Collections.singletonMap("data", MAPPER.convertValue(json, Map.class));
+      Map<String, Object> node = Collections.singletonMap("data", json);
+
+      assertEquals(template, process(mapConfig, template, map), process(jsonConfig, template, node));
+    }
+  }
+
+  private String process(Configuration config, String template, Map<String, Object> data) throws Exception {
+    StringWriter sw = new StringWriter();
+    new Template("test", template, config).process(data, sw);
+    return sw.toString();
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2016-2017 MessageML - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.symphony.messageml.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class XmlWriterTest {
+
+  @Test
+  public void testSameAsXmlPrintStream() throws Exception {
+    Map<String, String> attributes = new LinkedHashMap<>();
+    attributes.put("class", "a \"quoted\" <value>");
+    attributes.put("data-x", "1 & 2");
+
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    XmlPrintStream stream = new XmlPrintStream(bout);
+    stream.setNoIndent(true);
+    stream.setNoNl(true);
+    XmlWriter writer = new XmlWriter(4);
+
+    stream.openElement("div");
+    writer.openElement("div");
+    stream.openElement("span", attributes);
+    writer.openElement("span", attributes);
+    stream.print(stream.escape("text <&> \"\u263a\" \ud83d\ude00"));
+    writer.printText("text <&> \"\u263a\" \ud83d\ude00");
+    stream.printElement("br");
+    writer.printElement("br");
+    stream.printElement("input", Collections.singletonMap("name", "x"));
+    writer.printElement("input", Collections.singletonMap("name", "x"));
+    stream.printElement("b", "bold & strong", attributes);
+    writer.printElement("b", "bold & strong", attributes);
+    stream.printElement("i", "italic", "class", "entity", "data-entity-id", "id1");
+    writer.printElement("i", "italic", "class", "entity", "data-entity-id", "id1");
+    stream.printElement("audio", null, "src", "chime.mp3", "autoplay", "true");
+    writer.printElement("audio", null, "src", "chime.mp3", "autoplay", "true");
+    stream.openElement("p", "class", "c");
+    writer.openElement("p", "class", "c");
+    stream.openElement("p", "class", "c", "style", "s");
+    writer.openElement("p", "class", "c", "style", "s");
+    stream.print("raw <b/>");
+    writer.print("raw <b/>");
+    stream.closeElement();
+    writer.closeElement();
+    stream.closeElement();
+    writer.closeElement();
+    stream.closeElement();
+    writer.closeElement();
+    stream.closeElement();
+    writer.closeElement();
+    stream.flush();
+
+    // The stream encodes its output in the platform charset, the writer in UTF-8
+    assertArrayEquals(bout.toByteArray(), writer.toString().getBytes());
+    assertEquals(writer.toString().length(), writer.length());
+    assertArrayEquals(writer.toString().getBytes(StandardCharsets.UTF_8), writer.toByteArray());
+  }
+
+  @Test
+  public void testEscapeAttributes() throws Exception {
+    XmlWriter writer = new XmlWriter();
+    writer.printElement("span", "", "class", "\"<&>\"", "data-entity-id", null);
+
+    assertEquals("<span class=\"&quot;&lt;&amp;&gt;&quot;\" data-entity-id=\"null\"></span>", writer.toString());
+  }
+
+  @Test
+  public void testPrintTextRemoveNl() throws Exception {
+    String[] texts = {"", "plain text", "\n", "\n\n\n", "a\nb", "a\n\n\nb\n", "\n<a>\n\n&\"\n", "<\n>", "a &\n\n b",
+        "\u263a\n\ud83d\ude00"};
+    XmlPrintStream stream = new XmlPrintStream(new ByteArrayOutputStream());
+
+    for (String text : texts) {
+      XmlWriter writer = new XmlWriter(1);
+      writer.printText(text, true);
+      assertEquals(text, stream.escape(XmlPrintStream.removeNewLines(text)), writer.toString());
+
+      writer.reset();
+      writer.printText(text, false);
+      assertEquals(text, stream.escape(text), writer.toString());
+    }
+  }
+
+  @Test
+  public void testWriteTo() throws Exception {
+    XmlWriter writer = new XmlWriter();
+    StringBuilder text = new StringBuilder();
+
+    // Larger than the byte buffer, with multi-byte characters across its boundaries
+    for (int i = 0; i < 5000; i++) {
+      text.append("a\u00e9\u263a\ud83d\ude00");
+    }
+    text.append("\ud83d");
+
+    writer.openElement("div");
+    writer.printText(text.toString());
+    writer.closeElement();
+
+    String expected = "<div>" + text + "</div>";
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    writer.writeTo(bout);
+    assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), bout.toByteArray());
+    assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), writer.toByteArray());
+
+    StringWriter sw = new StringWriter();
+    writer.writeTo(sw);
+    assertEquals(expected, sw.toString());
+
+    StringBuilder sb = new StringBuilder("prefix");
+    writer.writeTo(sb);
+    assertEquals("prefix" + expected, sb.toString());
+
+    CharBuffer cb = CharBuffer.allocate(expected.length());
+    writer.writeTo(cb);
+    cb.flip();
+    assertEquals(expected, cb.toString());
+  }
+
+  @Test
+  public void testReset() throws Exception {
+    XmlWriter writer = new XmlWriter();
+    writer.openElement("div");
+    writer.openElement("b");
+    writer.setRemoveNl(false);
+    writer.startPreformatted();
+    writer.reset();
+
+    assertEquals(0, writer.length());
+    assertEquals(true, writer.isRemoveNl());
+
+    writer.openElement("i");
+    writer.closeElement();
+    assertEquals("<i></i>", writer.toString());
+  }
+
+  @Test
+  public void testPreformatted() throws Exception {
+    XmlWriter writer = new XmlWriter();
+    writer.startPreformatted();
+    writer.startPreformatted();
+    writer.endPreformatted();
+    assertEquals(false, writer.isRemoveNl());
+
+    writer.endPreformatted();
+    assertEquals(true, writer.isRemoveNl());
+
+    writer.setRemoveNl(false);
+    assertEquals(false, writer.isRemoveNl());
+  }
+
+  @Test
+  public void testMaxBytes() throws Exception {
+    String[] texts = {"ascii", "\u00e9\u00e9", "\u263A\u263A", "a\ud83d\ude00b"};
+
+    for (String text : texts) {
+      int bytes = ("<p>" + text + "</p>").getBytes(StandardCharsets.UTF_8).length;
+      XmlWriter writer = new XmlWriter();
+      writer.setMaxBytes(bytes);
+      writer.openElement("p");
+      writer.printText(text);
+      writer.closeElement();
+      assertEquals(text, bytes, writer.toByteArray().length);
+
+      writer.reset();
+      writer.setMaxBytes(bytes - 1);
+      writer.openElement("p");
+      writer.printText(text);
+      try {
+        writer.closeElement();
+        fail("Should have thrown an exception for " + text);
+      } catch (XmlWriter.LimitExceeded e) {
+        assertEquals("The output exceeds the maximum size of " + (bytes - 1) + " bytes", e.getMessage());
+      }
+
+      // The limit is lifted by reset()
+      writer.reset();
+      writer.printText(text + text);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCloseWithoutOpen() throws Exception {
+    new XmlWriter().closeElement();
+  }
+}